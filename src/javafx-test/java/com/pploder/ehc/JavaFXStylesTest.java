@@ -0,0 +1,27 @@
+package com.pploder.ehc;
+
+import javafx.scene.paint.Color;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JavaFXStylesTest {
+
+    @Test
+    public void testJavaFX() {
+        MessageStyle style = JavaFXStyles.of(Color.rgb(255, 128, 0), true, null, null, null);
+
+        Assert.assertEquals(0xFF8000, style.getRGB());
+        Assert.assertEquals(128 / 255.0, JavaFXStyles.getColor(style).getGreen(), 1e-9);
+        Assert.assertNull(JavaFXStyles.getColor(MessageStyle.PLAIN));
+        Assert.assertSame(MessageStyle.PLAIN, JavaFXStyles.of(null));
+    }
+
+    @Test
+    public void testEncodedMessage() {
+        MessageContent content = new MessageContent(new MessageSnippet("a",
+                JavaFXStyles.of(Color.RED, true, false, null, true)));
+
+        Assert.assertEquals(content.asJSON().toJSONString(), new EncodedMessage(content).getJSON());
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.pploder.ehc;
+
+import javafx.scene.paint.Color;
+
+/**
+ * Converts between JavaFX colors and {@link MessageStyle}s.
+ * <p>
+ * This is the only class that depends on JavaFX; everything else runs on JREs without it. It is kept apart from
+ * the core sources and only built where JavaFX is available (see the {@code javafx} profiles of the build).
+ * Color components are truncated to 8 bits and the opacity is ignored.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+public final class JavaFXStyles {
+
+    private JavaFXStyles() {
+    }
+
+    /**
+     * @param color The color override or {@code null}.
+     * @return The style with the given color override.
+     */
+    public static MessageStyle of(Color color) {
+        return withColor(MessageStyle.PLAIN, color);
+    }
+
+    /**
+     * @param color         The color override or {@code null}.
+     * @param bold          The bold override or {@code null}.
+     * @param italic        The italic override or {@code null}.
+     * @param underlined    The underlined override or {@code null}.
+     * @param strikethrough The strikethrough override or {@code null}.
+     * @return The style with the given overrides.
+     */
+    public static MessageStyle of(Color color, Boolean bold, Boolean italic, Boolean underlined, Boolean strikethrough) {
+        return of(color)
+                .withBold(bold)
+                .withItalic(italic)
+                .withUnderlined(underlined)
+                .withStrikethrough(strikethrough);
+    }
+
+    /**
+     * @param style The style.
+     * @param color The color override or {@code null} for none.
+     * @return The style with the given color override.
+     */
+    public static MessageStyle withColor(MessageStyle style, Color color) {
+        if (color == null) {
+            return style.withoutColor();
+        }
+
+        return style.withColor((int) (color.getRed() * 255), (int) (color.getGreen() * 255),
+                (int) (color.getBlue() * 255));
+    }
+
+    /**
+     * @param style The style.
+     * @return The color override of the style or {@code null}.
+     */
+    public static Color getColor(MessageStyle style) {
+        return style.hasColor() ? Color.rgb(style.getRed(), style.getGreen(), style.getBlue()) : null;
+    }
+
+}
@@ -0,0 +1,356 @@
+package com.pploder.ehc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The compact binary encoding of messages (see {@link WireFormat#BINARY}).
+ * <p>
+ * All integers are unsigned LEB128 varints. A message is encoded as the amount of snippets followed by the
+ * snippets. A snippet is encoded as a style token, the style definition (if any), the length of the UTF-8 encoded
+ * text and the text. The style tokens are:
+ * <ul>
+ * <li>{@code 0}: No overrides.</li>
+ * <li>{@code 1}: A new style without color; followed by the flags byte.</li>
+ * <li>{@code 2}: A new style with color; followed by the flags byte and the red, green and blue bytes.</li>
+ * <li>{@code 3} and above: The style that was defined {@code token - 3} new styles earlier in the message.</li>
+ * </ul>
+ * The flags byte holds two bits for each of bold, italic, underlined and strikethrough (in this order starting
+ * at the least significant bits): {@code 0} for no override, {@code 1} for {@code false} and {@code 2} for
+ * {@code true} (see {@link MessageStyle}). Each new style is only defined once per message. Several messages are simply concatenated.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+final class BinaryMessageFormat {
+
+    static final int TOKEN_PLAIN = 0;
+    static final int TOKEN_STYLE = 1;
+    static final int TOKEN_COLORED_STYLE = 2;
+    static final int TOKEN_REFERENCE = 3;
+
+    private static final long COLORED = 1L << 8;
+
+    private BinaryMessageFormat() {
+    }
+
+    /**
+     * Encodes a message.
+     *
+     * @param content The message content.
+     * @return The encoded message.
+     */
+    static byte[] encode(MessageContent content) {
+        Writer writer = new Writer(16 + 8 * content.getSnippetsCount());
+        long[] styles = new long[4];
+        int styleCount = 0;
+
+        writer.writeVarint(content.getSnippetsCount());
+
+        for (MessageSnippet snippet : content) {
+            long style = snippet.getStyle().getBits();
+
+            if (style == 0) {
+                writer.writeVarint(TOKEN_PLAIN);
+            } else {
+                int index = 0;
+                while (index < styleCount && styles[index] != style) {
+                    index++;
+                }
+
+                if (index < styleCount) {
+                    writer.writeVarint(TOKEN_REFERENCE + index);
+                } else {
+                    if (styleCount == styles.length) {
+                        styles = Arrays.copyOf(styles, styleCount * 2);
+                    }
+
+                    styles[styleCount++] = style;
+
+                    boolean colored = (style & COLORED) != 0;
+                    writer.writeVarint(colored ? TOKEN_COLORED_STYLE : TOKEN_STYLE);
+                    writer.write((int) style);
+
+                    if (colored) {
+                        writer.write((int) (style >>> 25));
+                        writer.write((int) (style >>> 17));
+                        writer.write((int) (style >>> 9));
+                    }
+                }
+            }
+
+            writer.writeText(snippet.getCharSequence());
+        }
+
+        return writer.toByteArray();
+    }
+
+    /**
+     * Decodes a single message.
+     *
+     * @param encoded The encoded message.
+     * @return The message content.
+     * @throws IllegalArgumentException If the data is not a single valid message.
+     */
+    static MessageContent decode(byte[] encoded) throws IllegalArgumentException {
+        Reader reader = new Reader(encoded);
+        int count = reader.readVarint();
+
+        // Every snippet takes at least two bytes (its style token and its length)
+        if (count > (encoded.length - reader.position) / 2) {
+            throw new IllegalArgumentException("Snippet count " + count + " exceeds the message");
+        }
+
+        MessageSnippet[] snippets = new MessageSnippet[count];
+        long[] styles = new long[4];
+        int styleCount = 0;
+
+        for (int i = 0; i < snippets.length; i++) {
+            int token = reader.readVarint();
+            long style;
+
+            if (token == TOKEN_PLAIN) {
+                style = 0;
+            } else if (token == TOKEN_STYLE || token == TOKEN_COLORED_STYLE) {
+                style = reader.read();
+
+                if (token == TOKEN_COLORED_STYLE) {
+                    style |= COLORED | (long) reader.read() << 25;
+                    style |= (long) reader.read() << 17;
+                    style |= (long) reader.read() << 9;
+                }
+
+                if (styleCount == styles.length) {
+                    styles = Arrays.copyOf(styles, styleCount * 2);
+                }
+
+                styles[styleCount++] = style;
+            } else if (token - TOKEN_REFERENCE < styleCount) {
+                style = styles[token - TOKEN_REFERENCE];
+            } else {
+                throw new IllegalArgumentException("Undefined style reference " + token);
+            }
+
+            String text = reader.readText(reader.readVarint());
+
+            snippets[i] = new MessageSnippet(text, MessageStyle.of(style));
+        }
+
+        if (reader.position != encoded.length) {
+            throw new IllegalArgumentException("Trailing data after the message");
+        }
+
+        return new MessageContent(snippets);
+    }
+
+    /**
+     * Inserts an unstyled snippet in front of an encoded message without encoding the message again.
+     * Style references stay valid because an unstyled snippet defines no style.
+     *
+     * @param text    The text of the new first snippet.
+     * @param encoded The encoded message.
+     * @return The encoded message with the additional snippet.
+     * @throws IllegalArgumentException If the data does not start with a valid snippet count.
+     */
+    static byte[] prepend(String text, byte[] encoded) throws IllegalArgumentException {
+        Reader reader = new Reader(encoded);
+        int count = reader.readVarint();
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+
+        Writer writer = new Writer(encoded.length + bytes.length + 12);
+        writer.writeVarint(count + 1);
+        writer.writeVarint(TOKEN_PLAIN);
+        writer.writeVarint(bytes.length);
+        writer.write(bytes);
+        writer.write(encoded, reader.position, encoded.length - reader.position);
+
+        return writer.toByteArray();
+    }
+
+    private static final class Writer {
+
+        private byte[] buffer;
+        private int size;
+
+        private Writer(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        private void write(int b) {
+            ensureCapacity(1);
+            buffer[size++] = (byte) b;
+        }
+
+        private void write(byte[] bytes) {
+            write(bytes, 0, bytes.length);
+        }
+
+        private void write(byte[] bytes, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, offset, buffer, size, length);
+            size += length;
+        }
+
+        /**
+         * Writes the length of the UTF-8 encoded text followed by the encoded text. Ropes are encoded piece by piece
+         * without materializing them. Unpaired surrogates are encoded as {@code ?} like {@link String#getBytes}
+         * does.
+         */
+        private void writeText(CharSequence text) {
+            if (text instanceof String) {
+                byte[] bytes = ((String) text).getBytes(StandardCharsets.UTF_8);
+                writeVarint(bytes.length);
+                write(bytes);
+                return;
+            }
+
+            int length = encodeUTF8(text, null, 0);
+            writeVarint(length);
+            ensureCapacity(length);
+            size += encodeUTF8(text, buffer, size);
+        }
+
+        private void writeVarint(int value) {
+            ensureCapacity(5);
+
+            while ((value & ~0x7F) != 0) {
+                buffer[size++] = (byte) (value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+
+            buffer[size++] = (byte) value;
+        }
+
+        private void ensureCapacity(int additional) {
+            if (size + additional > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + additional));
+            }
+        }
+
+        private byte[] toByteArray() {
+            return size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+        }
+
+    }
+
+    /**
+     * Encodes a text as UTF-8.
+     *
+     * @param text   The text.
+     * @param out    The buffer or {@code null} to only measure the encoded length.
+     * @param offset The offset in the buffer.
+     * @return The length of the encoded text.
+     */
+    private static int encodeUTF8(CharSequence text, byte[] out, int offset) {
+        int n = offset;
+        char high = 0;
+
+        for (int p = 0; p < Rope.pieceCount(text); p++) {
+            CharSequence piece = Rope.piece(text, p);
+
+            for (int i = 0; i < piece.length(); i++) {
+                char c = piece.charAt(i);
+
+                if (high != 0) {
+                    if (Character.isLowSurrogate(c)) {
+                        int codePoint = Character.toCodePoint(high, c);
+                        high = 0;
+
+                        if (out != null) {
+                            out[n] = (byte) (0xF0 | codePoint >>> 18);
+                            out[n + 1] = (byte) (0x80 | codePoint >>> 12 & 0x3F);
+                            out[n + 2] = (byte) (0x80 | codePoint >>> 6 & 0x3F);
+                            out[n + 3] = (byte) (0x80 | codePoint & 0x3F);
+                        }
+
+                        n += 4;
+                        continue;
+                    }
+
+                    n = put(out, n, '?');
+                    high = 0;
+                }
+
+                if (Character.isHighSurrogate(c)) {
+                    high = c;
+                } else if (Character.isLowSurrogate(c)) {
+                    n = put(out, n, '?');
+                } else if (c < 0x80) {
+                    n = put(out, n, c);
+                } else if (c < 0x800) {
+                    n = put(out, n, 0xC0 | c >>> 6);
+                    n = put(out, n, 0x80 | c & 0x3F);
+                } else {
+                    n = put(out, n, 0xE0 | c >>> 12);
+                    n = put(out, n, 0x80 | c >>> 6 & 0x3F);
+                    n = put(out, n, 0x80 | c & 0x3F);
+                }
+            }
+        }
+
+        if (high != 0) {
+            n = put(out, n, '?');
+        }
+
+        return n - offset;
+    }
+
+    private static int put(byte[] out, int position, int b) {
+        if (out != null) {
+            out[position] = (byte) b;
+        }
+
+        return position + 1;
+    }
+
+    private static final class Reader {
+
+        private final byte[] buffer;
+        private int position;
+
+        private Reader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        private int read() {
+            if (position >= buffer.length) {
+                throw new IllegalArgumentException("Truncated message");
+            }
+
+            return buffer[position++] & 0xFF;
+        }
+
+        private int readVarint() {
+            int value = 0;
+
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = read();
+                value |= (b & 0x7F) << shift;
+
+                if ((b & 0x80) == 0) {
+                    if (value < 0) {
+                        break;
+                    }
+
+                    return value;
+                }
+            }
+
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        private String readText(int length) {
+            if (length > buffer.length - position) {
+                throw new IllegalArgumentException("Truncated message");
+            }
+
+            String text = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+
+            return text;
+        }
+
+    }
+
+}
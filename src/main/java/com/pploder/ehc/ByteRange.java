@@ -0,0 +1,113 @@
+package com.pploder.ehc;
+
+/**
+ * A single byte range as requested via the HTTP {@code Range} header.
+ * Only single ranges are supported; requests for multiple ranges are answered with the whole content.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+final class ByteRange {
+
+    /**
+     * Represents a syntactically valid range that does not overlap the content.
+     */
+    static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+    private static final String UNIT = "bytes=";
+
+    private final long first;
+    private final long last;
+
+    private ByteRange(long first, long last) {
+        this.first = first;
+        this.last = last;
+    }
+
+    /**
+     * Parses the value of a {@code Range} header for content of the given length.
+     *
+     * @param header The value of the header or {@code null} if absent.
+     * @param length The length of the content.
+     * @return The range, {@link #UNSATISFIABLE} or {@code null} if the whole content should be sent.
+     */
+    static ByteRange parse(String header, long length) {
+        if (header == null || !header.regionMatches(true, 0, UNIT, 0, UNIT.length())
+                || header.indexOf(',') >= 0) {
+            return null;
+        }
+
+        String spec = header.substring(UNIT.length()).trim();
+        int dash = spec.indexOf('-');
+
+        if (dash < 0) {
+            return null;
+        }
+
+        try {
+            String firstPart = spec.substring(0, dash).trim();
+            String lastPart = spec.substring(dash + 1).trim();
+
+            if (firstPart.isEmpty()) {
+                // Suffix range: the last n bytes
+                long suffix = Long.parseLong(lastPart);
+
+                if (suffix <= 0 || length == 0) {
+                    return UNSATISFIABLE;
+                }
+
+                return new ByteRange(Math.max(0, length - suffix), length - 1);
+            }
+
+            long first = Long.parseLong(firstPart);
+            long last = lastPart.isEmpty() ? Long.MAX_VALUE : Long.parseLong(lastPart);
+
+            if (first < 0 || last < first) {
+                return null;
+            }
+
+            if (first >= length) {
+                return UNSATISFIABLE;
+            }
+
+            return new ByteRange(first, Math.min(last, length - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return The index of the first byte.
+     */
+    long getFirst() {
+        return first;
+    }
+
+    /**
+     * @return The index of the last byte (inclusive).
+     */
+    long getLast() {
+        return last;
+    }
+
+    /**
+     * @return The amount of bytes in the range.
+     */
+    long getLength() {
+        return last - first + 1;
+    }
+
+    /**
+     * @param length The length of the whole content.
+     * @return The value of the {@code Content-Range} header.
+     */
+    String toContentRange(long length) {
+        if (this == UNSATISFIABLE) {
+            return "bytes */" + length;
+        }
+
+        return "bytes " + first + "-" + last + "/" + length;
+    }
+
+}
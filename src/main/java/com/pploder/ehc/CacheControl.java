@@ -0,0 +1,44 @@
+package com.pploder.ehc;
+
+import java.time.Duration;
+
+/**
+ * Values for the {@code Cache-Control} header of served content.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+public final class CacheControl {
+
+    /**
+     * Clients may store the content but have to revalidate it before every use.
+     * Revalidation is cheap because all served content carries an entity tag.
+     */
+    public static final String NO_CACHE = "no-cache";
+
+    /**
+     * Clients must not store the content at all.
+     */
+    public static final String NO_STORE = "no-store";
+
+    private CacheControl() {
+    }
+
+    /**
+     * @param maxAge The duration for which the content is fresh.
+     * @return A policy that lets clients reuse the content without revalidation for the given duration.
+     */
+    public static String maxAge(Duration maxAge) {
+        return "public, max-age=" + maxAge.getSeconds();
+    }
+
+    /**
+     * @param maxAge The duration for which the content is fresh.
+     * @return A policy that additionally tells clients that the content will not change while fresh.
+     */
+    public static String immutable(Duration maxAge) {
+        return maxAge(maxAge) + ", immutable";
+    }
+
+}
@@ -0,0 +1,138 @@
+package com.pploder.ehc;
+
+import java.nio.charset.StandardCharsets;
+import java.text.DateFormat;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A supplier of the current time as a formatted and UTF-8 encoded timestamp.
+ * The timestamp is only formatted once per clock tick (by default one minute) and the encoded value is shared
+ * between all callers until the next tick.
+ * <p>
+ * Instances are thread-safe and do not lock. When a tick elapses, concurrent callers may format the new
+ * timestamp more than once but will always receive a complete value.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+public class CachedTimestamp implements Supplier<byte[]> {
+
+    /**
+     * The default resolution.
+     * It matches formats that display the time with minute precision.
+     */
+    public static final Duration DEFAULT_RESOLUTION = Duration.ofMinutes(1);
+
+    private final Function<Instant, String> formatter;
+    private final long resolutionMillis;
+    private final Clock clock;
+
+    private volatile Tick current;
+
+    /**
+     * Creates a new instance with the given formatter and the default resolution.
+     * The default resolution is {@link #DEFAULT_RESOLUTION}.
+     *
+     * @param formatter The formatter. Must have a zone if the pattern contains zone dependent fields.
+     */
+    public CachedTimestamp(DateTimeFormatter formatter) {
+        this(formatter, DEFAULT_RESOLUTION);
+    }
+
+    /**
+     * Creates a new instance with the given formatter and resolution.
+     *
+     * @param formatter  The formatter. Must have a zone if the pattern contains zone dependent fields.
+     * @param resolution The duration for which a formatted timestamp is reused.
+     */
+    public CachedTimestamp(DateTimeFormatter formatter, Duration resolution) {
+        this(Objects.requireNonNull(formatter)::format, resolution, Clock.systemUTC());
+    }
+
+    /**
+     * Creates a new instance with the given legacy date format and the default resolution.
+     * The default resolution is {@link #DEFAULT_RESOLUTION}.
+     * Because {@link DateFormat} is not thread-safe, access to it is synchronized on the format.
+     *
+     * @param dateFormat The date format.
+     */
+    public CachedTimestamp(DateFormat dateFormat) {
+        this(instant -> {
+            synchronized (dateFormat) {
+                return dateFormat.format(Date.from(instant));
+            }
+        }, DEFAULT_RESOLUTION, Clock.systemUTC());
+
+        Objects.requireNonNull(dateFormat);
+    }
+
+    /**
+     * Creates a new instance with the given formatting function, resolution and clock.
+     *
+     * @param formatter  The function that formats an instant.
+     * @param resolution The duration for which a formatted timestamp is reused.
+     * @param clock      The clock from which the time is read.
+     * @throws IllegalArgumentException If the resolution is shorter than one millisecond.
+     */
+    public CachedTimestamp(Function<Instant, String> formatter, Duration resolution, Clock clock)
+            throws IllegalArgumentException {
+        this.formatter = Objects.requireNonNull(formatter);
+        this.resolutionMillis = Objects.requireNonNull(resolution).toMillis();
+        this.clock = Objects.requireNonNull(clock);
+
+        if (resolutionMillis < 1) {
+            throw new IllegalArgumentException("The resolution must be at least one millisecond");
+        }
+    }
+
+    /**
+     * Returns the encoded timestamp of the current tick.
+     * The returned array is shared and must not be modified.
+     *
+     * @return The UTF-8 encoded timestamp.
+     */
+    @Override
+    public byte[] get() {
+        long millis = clock.millis();
+        long tick = Math.floorDiv(millis, resolutionMillis);
+
+        Tick current = this.current;
+
+        if (current == null || current.tick != tick) {
+            Instant start = Instant.ofEpochMilli(tick * resolutionMillis);
+            current = new Tick(tick, formatter.apply(start).getBytes(StandardCharsets.UTF_8));
+            this.current = current;
+        }
+
+        return current.encoded;
+    }
+
+    /**
+     * @return The timestamp of the current tick.
+     */
+    @Override
+    public String toString() {
+        return new String(get(), StandardCharsets.UTF_8);
+    }
+
+    private static final class Tick {
+
+        private final long tick;
+        private final byte[] encoded;
+
+        private Tick(long tick, byte[] encoded) {
+            this.tick = tick;
+            this.encoded = encoded;
+        }
+
+    }
+
+}
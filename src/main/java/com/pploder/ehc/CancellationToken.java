@@ -0,0 +1,110 @@
+package com.pploder.ehc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Signals that a command should stop (see {@link Command#getCancellationToken()}).
+ * Long running commands should check {@link #isCancelled()} regularly or register a callback to abort
+ * blocking operations. A command that runs on a worker thread is additionally interrupted.
+ * <p>
+ * Instances are thread-safe. A token can only be cancelled once.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+public final class CancellationToken {
+
+    /**
+     * A token that is never cancelled.
+     */
+    public static final CancellationToken NONE = new CancellationToken();
+
+    private List<Runnable> callbacks = new ArrayList<>();
+    private volatile CancellationException reason;
+
+    /**
+     * @return Whether the command has been cancelled.
+     */
+    public boolean isCancelled() {
+        return reason != null;
+    }
+
+    /**
+     * @return The reason of the cancellation or {@code null} if the command has not been cancelled.
+     */
+    public CancellationException getReason() {
+        return reason;
+    }
+
+    /**
+     * Throws the reason of the cancellation if the command has been cancelled.
+     *
+     * @throws CancellationException If the command has been cancelled.
+     */
+    public void throwIfCancelled() throws CancellationException {
+        CancellationException reason = this.reason;
+
+        if (reason != null) {
+            throw reason;
+        }
+    }
+
+    /**
+     * Registers a callback that runs when the command is cancelled.
+     * The callback runs immediately if the command already has been cancelled.
+     *
+     * @param callback The callback.
+     */
+    public void onCancel(Runnable callback) {
+        Objects.requireNonNull(callback);
+
+        synchronized (this) {
+            if (reason == null) {
+                if (this != NONE) {
+                    callbacks.add(callback);
+                }
+
+                return;
+            }
+        }
+
+        callback.run();
+    }
+
+    /**
+     * Cancels the command and runs the callbacks.
+     * Has no effect if the command already has been cancelled.
+     *
+     * @param message The reason of the cancellation.
+     * @return Whether this call cancelled the command.
+     * @throws UnsupportedOperationException If this is {@link #NONE}.
+     */
+    public boolean cancel(String message) throws UnsupportedOperationException {
+        if (this == NONE) {
+            throw new UnsupportedOperationException("The token can not be cancelled");
+        }
+
+        List<Runnable> callbacks;
+
+        synchronized (this) {
+            if (reason != null) {
+                return false;
+            }
+
+            reason = new CancellationException(message);
+            callbacks = this.callbacks;
+            this.callbacks = null;
+        }
+
+        for (Runnable callback : callbacks) {
+            callback.run();
+        }
+
+        return true;
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.pploder.ehc;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A single message between the nodes of a {@link ClusteredConsole}.
+ * <p>
+ * A record is encoded as its type (one byte), the id of the connection it refers to (eight bytes), the length
+ * of its payload (four bytes) and the payload. A batch is a concatenation of records, so batches can be joined by
+ * concatenation as well (see {@link FrameCodec#BINARY}).
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+final class ClusterRecord {
+
+    /**
+     * A message for all connections of the receiving node. The payload is the binary encoded message
+     * (see {@link BinaryMessageFormat}).
+     */
+    static final int BROADCAST = 0;
+
+    /**
+     * A command that a connection of the sending node addressed to the receiving node.
+     * The payload is the UTF-8 encoded command.
+     */
+    static final int COMMAND = 1;
+
+    /**
+     * A response to a connection of the receiving node. The payload is the binary encoded message.
+     */
+    static final int RESPONSE = 2;
+
+    /**
+     * The connection of the sending node was closed. There is no payload.
+     */
+    static final int CLOSED = 3;
+
+    private static final int HEADER_SIZE = 1 + 8 + 4;
+
+    private final int type;
+    private final long connection;
+    private final byte[] payload;
+
+    private ClusterRecord(int type, long connection, byte[] payload) {
+        this.type = type;
+        this.connection = connection;
+        this.payload = payload;
+    }
+
+    /**
+     * Encodes a record.
+     *
+     * @param type       The type.
+     * @param connection The id of the connection on the node that sent the command.
+     * @param payload    The payload.
+     * @return The encoded record.
+     */
+    static byte[] encode(int type, long connection, byte[] payload) {
+        return ByteBuffer.allocate(HEADER_SIZE + payload.length)
+                .put((byte) type)
+                .putLong(connection)
+                .putInt(payload.length)
+                .put(payload)
+                .array();
+    }
+
+    /**
+     * Decodes the records of a batch.
+     *
+     * @param batch The batch.
+     * @return The records in order.
+     * @throws IllegalArgumentException If the batch is malformed.
+     */
+    static List<ClusterRecord> decode(byte[] batch) throws IllegalArgumentException {
+        ByteBuffer buffer = ByteBuffer.wrap(batch);
+        List<ClusterRecord> records = new ArrayList<>();
+
+        try {
+            while (buffer.hasRemaining()) {
+                int type = buffer.get();
+                long connection = buffer.getLong();
+                int length = buffer.getInt();
+
+                if (length < 0) {
+                    throw new IllegalArgumentException("Negative payload length");
+                }
+
+                if (length > buffer.remaining()) {
+                    throw new IllegalArgumentException("Truncated record");
+                }
+
+                byte[] payload = new byte[length];
+                buffer.get(payload);
+
+                records.add(new ClusterRecord(type, connection, payload));
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated record", e);
+        }
+
+        return records;
+    }
+
+    /**
+     * @return The type.
+     */
+    int getType() {
+        return type;
+    }
+
+    /**
+     * @return The id of the connection on the node that sent the command.
+     */
+    long getConnection() {
+        return connection;
+    }
+
+    /**
+     * @return The payload.
+     */
+    byte[] getPayload() {
+        return payload;
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.pploder.ehc;
+
+import com.pploder.events.Event;
+
+import java.util.Collection;
+import java.util.function.BiConsumer;
+
+/**
+ * Moves batches of cluster messages between the nodes of a {@link ClusteredConsole}.
+ * Batches are opaque byte arrays; a transport only has to deliver each batch completely and in the order in which
+ * the batches were sent to the same node. Delivery may be asynchronous and lost batches are not retried.
+ * <p>
+ * Implementations must be thread-safe.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ * @see LoopbackTransport
+ */
+public interface ClusterTransport extends AutoCloseable {
+
+    /**
+     * @return The name of the local node. Unique within the cluster.
+     */
+    String getLocalNode();
+
+    /**
+     * @return The names of all nodes that are currently reachable, including the local node.
+     */
+    Collection<String> getNodes();
+
+    /**
+     * Triggered with the name of a node that left the cluster, for example because it was closed or is no longer
+     * reachable. The batches that were received from the node before are delivered before the event.
+     *
+     * @return The event.
+     */
+    Event<String> nodeLeftEvent();
+
+    /**
+     * Starts receiving batches.
+     *
+     * @param receiver Receives the name of the sending node and the batch. The batch must not be modified.
+     * @throws Exception If something goes wrong.
+     */
+    void open(BiConsumer<String, byte[]> receiver) throws Exception;
+
+    /**
+     * Sends a batch to a node. Batches to unknown nodes are dropped.
+     *
+     * @param node  The name of the receiving node.
+     * @param batch The batch. The array is handed over and must not be modified afterwards.
+     */
+    void send(String node, byte[] batch);
+
+    /**
+     * Stops receiving batches and leaves the cluster.
+     *
+     * @throws Exception If something goes wrong.
+     */
+    @Override
+    void close() throws Exception;
+
+}
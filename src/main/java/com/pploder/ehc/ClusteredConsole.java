@@ -0,0 +1,495 @@
+package com.pploder.ehc;
+
+import com.pploder.events.Event;
+import com.pploder.events.SimpleEvent;
+import lombok.extern.slf4j.XSlf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * A console that joins the consoles of several nodes into a cluster (see {@link ClusterTransport}).
+ * <p>
+ * A message that starts with {@link #TARGET_PREFIX} followed by the name of a node and a command (for example
+ * {@code @node-2 status}) runs the command on that node; {@code @*} runs it on every node. All other messages run on
+ * the local node. Remote commands are received by the {@link #messageReceivedEvent()} of their node with a
+ * connection that streams every response back to the client, prefixed with the name of the responding node.
+ * Such connections are reported via {@link #connectionAddedEvent()} and {@link #connectionRemovedEvent()} (when the
+ * client disconnects) but are not part of {@link #connections()}. An {@link SimpleCommandRegistry#INTERRUPT} is
+ * forwarded to every node that received a command of the connection. When a node leaves the cluster, the
+ * connections of its commands are removed.
+ * <p>
+ * {@link #broadcast(MessageContent)} reaches the clients of every node. Messages are relayed in their binary
+ * encoding (see {@link BinaryMessageFormat}), so they are neither encoded again for the cluster nor for clients
+ * of the {@link WireFormat#BINARY} format. Messages to the same node can be batched (see {@link #enableBatching()}).
+ * <p>
+ * Command registries should be attached to the clustered console instead of the local one
+ * (see {@link CommandRegistry#attach(Console)}).
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+@XSlf4j
+public class ClusteredConsole implements Console {
+
+    /**
+     * The prefix of messages that address other nodes.
+     */
+    public static final String TARGET_PREFIX = "@";
+
+    /**
+     * The target that addresses every node.
+     */
+    public static final String ALL_NODES = "*";
+
+    /**
+     * The default time for which messages to a node are batched (see {@link #enableBatching()}).
+     */
+    public static final Duration DEFAULT_BATCHING_WINDOW = Duration.ofMillis(5);
+
+    /**
+     * The default size in bytes after which batched messages are sent (see {@link #enableBatching()}).
+     */
+    public static final int DEFAULT_BATCHING_THRESHOLD = 64 * 1024;
+
+    private final Console local;
+    private final ClusterTransport transport;
+
+    private final Event<Message> messageReceivedEvent = new SimpleEvent<>();
+    private final Event<Connection> connectionAddedEvent = new SimpleEvent<>();
+    private final Event<Connection> connectionRemovedEvent = new SimpleEvent<>();
+
+    private final AtomicLong originIds = new AtomicLong();
+    private final Map<Connection, Origin> origins = new ConcurrentHashMap<>();
+    private final Map<Long, Origin> originsById = new ConcurrentHashMap<>();
+    private final Map<String, RemoteConnection> remoteConnections = new ConcurrentHashMap<>();
+    private final Map<String, MessageCoalescer<byte[]>> batches = new ConcurrentHashMap<>();
+
+    private Duration batchingWindow;
+    private int batchingThreshold;
+
+    private volatile ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param local     The console of the local node.
+     * @param transport The transport to the other nodes.
+     */
+    public ClusteredConsole(Console local, ClusterTransport transport) {
+        this.local = Objects.requireNonNull(local);
+        this.transport = Objects.requireNonNull(transport);
+
+        local.messageReceivedEvent().addListener(this::route);
+        local.connectionAddedEvent().addListener(connectionAddedEvent::trigger);
+        local.connectionRemovedEvent().addListener(this::removed);
+        transport.nodeLeftEvent().addListener(this::left);
+    }
+
+    /**
+     * @return The console of the local node.
+     */
+    public Console getLocalConsole() {
+        return local;
+    }
+
+    /**
+     * @return The transport to the other nodes.
+     */
+    public ClusterTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Batches the messages to every node with the default window and threshold.
+     * The default window is {@link #DEFAULT_BATCHING_WINDOW} and the default threshold is
+     * {@link #DEFAULT_BATCHING_THRESHOLD}.
+     * Must be invoked before {@link #start()}.
+     *
+     * @see #enableBatching(Duration, int)
+     */
+    public void enableBatching() {
+        enableBatching(DEFAULT_BATCHING_WINDOW, DEFAULT_BATCHING_THRESHOLD);
+    }
+
+    /**
+     * Batches the messages to every node. Instead of passing each message to the transport, messages are buffered
+     * and sent together once the window after the first buffered message elapses, once the buffered messages
+     * reach the threshold or when a remote connection is flushed (see {@link Connection#flush()}).
+     * Must be invoked before {@link #start()}.
+     *
+     * @param window    The maximum time a message is held back.
+     * @param threshold The size in bytes after which buffered messages are sent immediately.
+     */
+    public void enableBatching(Duration window, int threshold) {
+        this.batchingWindow = Objects.requireNonNull(window);
+        this.batchingThreshold = threshold;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s(%s, %s)", getClass().getSimpleName(), transport.getLocalNode(), local);
+    }
+
+    @Override
+    public void start() throws Exception {
+        log.info("Starting {}...", this);
+
+        if (batchingWindow != null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ehc-cluster");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        transport.open(this::receive);
+        local.start();
+    }
+
+    @Override
+    public void close() throws Exception {
+        log.info("Closing {}...", this);
+
+        try {
+            local.close();
+        } finally {
+            for (MessageCoalescer<byte[]> batch : batches.values()) {
+                batch.flush();
+            }
+
+            batches.clear();
+            transport.close();
+
+            if (scheduler != null) {
+                scheduler.shutdown();
+                scheduler = null;
+            }
+        }
+    }
+
+    @Override
+    public Event<Message> messageReceivedEvent() {
+        return messageReceivedEvent;
+    }
+
+    @Override
+    public Event<Connection> connectionAddedEvent() {
+        return connectionAddedEvent;
+    }
+
+    @Override
+    public Event<Connection> connectionRemovedEvent() {
+        return connectionRemovedEvent;
+    }
+
+    /**
+     * @return The amount of active connections of the local node.
+     */
+    @Override
+    public int getConnectionCount() {
+        return local.getConnectionCount();
+    }
+
+    /**
+     * @return All active connections of the local node in no defined order.
+     */
+    @Override
+    public Iterable<Connection> connections() {
+        return local.connections();
+    }
+
+    /**
+     * Sends a message to all active connections of every node.
+     * The message is encoded only once for the whole cluster.
+     *
+     * @param messageContent The content of the message.
+     */
+    @Override
+    public void broadcast(MessageContent messageContent) {
+        EncodedMessage encodedMessage = messageContent.getEncoded();
+
+        for (Connection connection : local.connections()) {
+            connection.send(encodedMessage);
+        }
+
+        byte[] record = null;
+
+        for (String node : transport.getNodes()) {
+            if (!node.equals(transport.getLocalNode())) {
+                if (record == null) {
+                    record = ClusterRecord.encode(ClusterRecord.BROADCAST, 0, encodedMessage.getBinary());
+                }
+
+                enqueue(node, record);
+            }
+        }
+    }
+
+    /**
+     * Sends a message to all active connections of the local node that are accepted by the filter.
+     * The filter cannot be evaluated on other nodes.
+     *
+     * @param messageContent The content of the message.
+     * @param filter         Decides which connections receive the message.
+     */
+    @Override
+    public void broadcast(MessageContent messageContent, Predicate<Connection> filter) {
+        local.broadcast(messageContent, filter);
+    }
+
+    private void route(Message message) {
+        String text = message.getMessage();
+
+        if (!text.startsWith(TARGET_PREFIX)) {
+            if (text.equals(SimpleCommandRegistry.INTERRUPT)) {
+                Origin origin = origins.get(message.getConnection());
+
+                if (origin != null) {
+                    for (String node : origin.nodes) {
+                        enqueue(node, ClusterRecord.encode(ClusterRecord.COMMAND, origin.id, utf8(text)));
+                    }
+                }
+            }
+
+            messageReceivedEvent.trigger(message);
+            return;
+        }
+
+        int separator = text.indexOf(' ');
+        String target = text.substring(TARGET_PREFIX.length(), separator < 0 ? text.length() : separator);
+        String command = separator < 0 ? "" : text.substring(separator + 1).trim();
+        Set<String> nodes = new TreeSet<>(transport.getNodes());
+
+        if (command.isEmpty()) {
+            message.respond(String.format("Usage: %s<node> <command> or %s%s <command> (nodes: %s)",
+                    TARGET_PREFIX, TARGET_PREFIX, ALL_NODES, String.join(", ", nodes)));
+            return;
+        }
+
+        if (target.equals(ALL_NODES)) {
+            for (String node : nodes) {
+                dispatch(node, message.getConnection(), command);
+            }
+        } else if (nodes.contains(target)) {
+            dispatch(target, message.getConnection(), command);
+        } else {
+            message.respond("Unknown node: " + target);
+        }
+    }
+
+    private void dispatch(String node, Connection connection, String command) {
+        if (node.equals(transport.getLocalNode())) {
+            messageReceivedEvent.trigger(new SimpleMessage(connection, command));
+            return;
+        }
+
+        Origin origin = origins.computeIfAbsent(connection, c -> {
+            Origin created = new Origin(originIds.incrementAndGet(), c);
+            originsById.put(created.id, created);
+            return created;
+        });
+
+        origin.nodes.add(node);
+        enqueue(node, ClusterRecord.encode(ClusterRecord.COMMAND, origin.id, utf8(command)));
+    }
+
+    private void removed(Connection connection) {
+        Origin origin = origins.remove(connection);
+
+        if (origin != null) {
+            originsById.remove(origin.id);
+
+            for (String node : origin.nodes) {
+                enqueue(node, ClusterRecord.encode(ClusterRecord.CLOSED, origin.id, new byte[0]));
+            }
+        }
+
+        connectionRemovedEvent.trigger(connection);
+    }
+
+    private void left(String node) {
+        log.info("Node {} left the cluster", node);
+
+        // Records that are still batched are dropped by the transport
+        batches.remove(node);
+
+        for (Origin origin : origins.values()) {
+            origin.nodes.remove(node);
+        }
+
+        for (RemoteConnection connection : remoteConnections.values()) {
+            if (connection.node.equals(node) && remoteConnections.remove(connection.key, connection)) {
+                connectionRemovedEvent.trigger(connection);
+            }
+        }
+    }
+
+    private void receive(String sender, byte[] batch) {
+        try {
+            for (ClusterRecord record : ClusterRecord.decode(batch)) {
+                receive(sender, record);
+            }
+        } catch (IllegalArgumentException e) {
+            log.warn("Dropping malformed batch from {}", sender, e);
+        }
+    }
+
+    private void receive(String sender, ClusterRecord record) {
+        switch (record.getType()) {
+            case ClusterRecord.BROADCAST: {
+                EncodedMessage encodedMessage = new EncodedMessage(record.getPayload());
+
+                for (Connection connection : local.connections()) {
+                    connection.send(encodedMessage);
+                }
+                break;
+            }
+            case ClusterRecord.COMMAND: {
+                String key = sender + '#' + record.getConnection();
+                RemoteConnection connection = remoteConnections.get(key);
+
+                if (connection == null) {
+                    RemoteConnection created = new RemoteConnection(sender, record.getConnection(), key);
+                    connection = remoteConnections.putIfAbsent(key, created);
+
+                    if (connection == null) {
+                        connection = created;
+                        connectionAddedEvent.trigger(connection);
+                    }
+                }
+
+                String command = new String(record.getPayload(), StandardCharsets.UTF_8);
+                messageReceivedEvent.trigger(new SimpleMessage(connection, command));
+                break;
+            }
+            case ClusterRecord.RESPONSE: {
+                Origin origin = originsById.get(record.getConnection());
+
+                if (origin != null) {
+                    origin.connection.send(new EncodedMessage(record.getPayload()));
+                }
+                break;
+            }
+            case ClusterRecord.CLOSED: {
+                RemoteConnection connection = remoteConnections.remove(sender + '#' + record.getConnection());
+
+                if (connection != null) {
+                    connectionRemovedEvent.trigger(connection);
+                }
+                break;
+            }
+            default:
+                log.warn("Ignoring record of unknown type {} from {}", record.getType(), sender);
+        }
+    }
+
+    private void enqueue(String node, byte[] record) {
+        ScheduledExecutorService scheduler = this.scheduler;
+
+        if (scheduler == null) {
+            transport.send(node, record);
+            return;
+        }
+
+        batches.computeIfAbsent(node, n -> new MessageCoalescer<>(FrameCodec.BINARY,
+                batch -> transport.send(n, batch), scheduler, Runnable::run, batchingWindow, batchingThreshold))
+                .append(record);
+    }
+
+    private void flush(String node) {
+        MessageCoalescer<byte[]> batch = batches.get(node);
+
+        if (batch != null) {
+            batch.flush();
+        }
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A local connection that sent commands to other nodes.
+     */
+    private static final class Origin {
+
+        private final long id;
+        private final Connection connection;
+        private final Set<String> nodes = ConcurrentHashMap.newKeySet();
+
+        private Origin(long id, Connection connection) {
+            this.id = id;
+            this.connection = connection;
+        }
+
+    }
+
+    /**
+     * The connection of another node that sent commands to this node.
+     */
+    private final class RemoteConnection implements Connection {
+
+        private final String node;
+        private final long id;
+        private final String key;
+        private final String label;
+
+        private RemoteConnection(String node, long id, String key) {
+            this.node = node;
+            this.id = id;
+            this.key = key;
+            this.label = "[" + transport.getLocalNode() + "] ";
+        }
+
+        @Override
+        public Console getConsole() {
+            return ClusteredConsole.this;
+        }
+
+        @Override
+        public String getRemoteAddress() {
+            return key;
+        }
+
+        @Override
+        public void send(MessageContent messageContent) {
+            send(messageContent.getEncoded());
+        }
+
+        @Override
+        public void send(EncodedMessage encodedMessage) {
+            byte[] labelled = BinaryMessageFormat.prepend(label, encodedMessage.getBinary());
+            enqueue(node, ClusterRecord.encode(ClusterRecord.RESPONSE, id, labelled));
+        }
+
+        @Override
+        public void flush() {
+            ClusteredConsole.this.flush(node);
+        }
+
+        @Override
+        public void close() {
+            if (remoteConnections.remove(key, this)) {
+                connectionRemovedEvent.trigger(this);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("RemoteConnection(%s)", key);
+        }
+
+    }
+
+}
@@ -35,6 +35,13 @@ public interface Command {
      */
     Iterable<String> args();
 
+    /**
+     * @return The token that signals that the command should stop.
+     */
+    default CancellationToken getCancellationToken() {
+        return CancellationToken.NONE;
+    }
+
     /**
      * Responds to the message with the given message content.
      * This is a convenience method.
@@ -55,4 +62,14 @@ public interface Command {
         getSource().respond(charSequence);
     }
 
+    /**
+     * Opens a writer that streams the output of the command to the client (see {@link Connection#openOutput()}).
+     * This is a convenience method.
+     *
+     * @return The writer.
+     */
+    default ConsoleOutput openOutput() {
+        return getSource().getConnection().openOutput();
+    }
+
 }
@@ -0,0 +1,60 @@
+package com.pploder.ehc;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Executes the command listeners of a {@link SimpleCommandRegistry}.
+ * Implementations must execute the tasks of a connection one after another and in the order in which they were
+ * submitted, so that a client receives the responses to its commands in order.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+@FunctionalInterface
+public interface CommandExecutor {
+
+    /**
+     * Executes every task immediately on the calling thread (usually the thread that handles network I/O).
+     */
+    CommandExecutor DIRECT = (connection, task) -> task.run();
+
+    /**
+     * Executes a task.
+     *
+     * @param connection The connection that the task belongs to.
+     * @param task       The task.
+     */
+    void execute(Connection connection, Runnable task);
+
+    /**
+     * Creates an executor that runs tasks on the given executor (such as a thread pool).
+     * Tasks of different connections may run concurrently while the tasks of each connection run one after
+     * another in order.
+     *
+     * @param executor The executor.
+     * @return The command executor.
+     */
+    static CommandExecutor ordered(Executor executor) {
+        return new OrderedCommandExecutor(executor);
+    }
+
+    /**
+     * Creates an executor service that starts a new virtual thread for each task.
+     * Virtual threads are only available on Java 21 and newer.
+     *
+     * @return The executor service or nothing if virtual threads are not available.
+     */
+    static Optional<ExecutorService> newVirtualThreadExecutor() {
+        try {
+            Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return Optional.of((ExecutorService) factory.invoke(null));
+        } catch (ReflectiveOperationException e) {
+            return Optional.empty();
+        }
+    }
+
+}
@@ -1,7 +1,9 @@
 package com.pploder.ehc;
 
 import java.util.Optional;
+import java.util.concurrent.CompletionStage;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * A mapping of commands to consumers.
@@ -29,6 +31,44 @@ public interface CommandRegistry {
      */
     void put(String command, Consumer<Command> commandListener);
 
+    /**
+     * Sets an asynchronous handler for a command.
+     * The handler returns immediately with a stage that completes with the response to the command (or with
+     * {@code null} if there is no response). The response is sent once the stage completes.
+     * This will overwrite any previous command listener.
+     * <p>
+     * The default implementation sends the response from the thread that completes the stage and ignores failures.
+     *
+     * @param command The command for which the handler should be set.
+     * @param handler The handler.
+     */
+    default void putAsync(String command, Function<Command, ? extends CompletionStage<? extends MessageContent>> handler) {
+        put(command, cmd -> handler.apply(cmd).thenAccept(response -> {
+            if (response != null) {
+                cmd.respond(response);
+            }
+        }));
+    }
+
+    /**
+     * Cancels the running commands of a connection.
+     * The default implementation does nothing.
+     *
+     * @param connection The connection.
+     */
+    default void cancel(Connection connection) {
+    }
+
+    /**
+     * Processes the messages of a console and cancels the commands of its connections when they are closed.
+     *
+     * @param console The console.
+     */
+    default void attach(Console console) {
+        console.messageReceivedEvent().addListener(this::supplyMessage);
+        console.connectionRemovedEvent().addListener(this::cancel);
+    }
+
     /**
      * Removes the command listener for the given command.
      *
@@ -35,6 +35,84 @@ public interface Connection {
         send(MessageContent.of(charSequence));
     }
 
+    /**
+     * Sends an already encoded message.
+     * Implementations should send the existing encoding instead of encoding the content again.
+     * By default the content is sent via {@link #send(MessageContent)}.
+     *
+     * @param encodedMessage The encoded message.
+     */
+    default void send(EncodedMessage encodedMessage) {
+        send(encodedMessage.getContent());
+    }
+
+    /**
+     * Opens a writer that streams text to the client in messages of at most
+     * {@link ConsoleOutput#DEFAULT_CHUNK_SIZE} characters.
+     * The writer should be closed once the output is complete.
+     *
+     * @return The writer.
+     */
+    default ConsoleOutput openOutput() {
+        return new ConsoleOutput(this, ConsoleOutput.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Sends all messages that the connection has buffered (if any) immediately.
+     * By default messages are not buffered and this does nothing.
+     */
+    default void flush() {
+    }
+
+    /**
+     * By default {@code 0} is returned.
+     *
+     * @return The amount of messages that were written to the client.
+     */
+    default long getSentMessageCount() {
+        return 0;
+    }
+
+    /**
+     * By default {@code 0} is returned.
+     *
+     * @return The amount of messages that the client has not received yet, including held back messages.
+     * @see OutboundLimit
+     */
+    default long getPendingMessageCount() {
+        return 0;
+    }
+
+    /**
+     * By default {@code 0} is returned.
+     *
+     * @return The amount of messages that were dropped because the client did not keep up.
+     * @see OverflowPolicy
+     */
+    default long getDroppedMessageCount() {
+        return 0;
+    }
+
+    /**
+     * By default {@code 0} is returned.
+     *
+     * @return The total size in bytes of the frames before compression.
+     * @see FrameCompression
+     */
+    default long getUncompressedByteCount() {
+        return 0;
+    }
+
+    /**
+     * By default {@code 0} is returned.
+     *
+     * @return The total size in bytes of the frames after compression.
+     * @see FrameCompression
+     */
+    default long getCompressedByteCount() {
+        return 0;
+    }
+
     /**
      * Closes the connection.
      *
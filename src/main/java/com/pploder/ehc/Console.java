@@ -2,6 +2,8 @@ package com.pploder.ehc;
 
 import com.pploder.events.Event;
 
+import java.util.function.Predicate;
+
 /**
  * A console that is provided via a network.
  * The received messages as well as newly opened and closed connection can be observed
@@ -54,4 +56,40 @@ public interface Console extends AutoCloseable {
      */
     Iterable<Connection> connections();
 
+    /**
+     * Sends a message to all active connections.
+     * The message is encoded only once for all connections.
+     *
+     * @param messageContent The content of the message.
+     */
+    default void broadcast(MessageContent messageContent) {
+        broadcast(messageContent, connection -> true);
+    }
+
+    /**
+     * Sends an unstyled message with the given content to all active connections.
+     *
+     * @param charSequence The content.
+     */
+    default void broadcast(CharSequence charSequence) {
+        broadcast(MessageContent.of(charSequence));
+    }
+
+    /**
+     * Sends a message to all active connections that are accepted by the filter.
+     * The message is encoded only once for all connections.
+     *
+     * @param messageContent The content of the message.
+     * @param filter         Decides which connections receive the message.
+     */
+    default void broadcast(MessageContent messageContent, Predicate<Connection> filter) {
+        EncodedMessage encodedMessage = messageContent.getEncoded();
+
+        for (Connection connection : connections()) {
+            if (filter.test(connection)) {
+                connection.send(encodedMessage);
+            }
+        }
+    }
+
 }
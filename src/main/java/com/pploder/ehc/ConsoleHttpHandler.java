@@ -6,19 +6,24 @@ import org.webbitserver.HttpHandler;
 import org.webbitserver.HttpRequest;
 import org.webbitserver.HttpResponse;
 
-import java.io.IOException;
-import java.net.URISyntaxException;
 import java.nio.ByteBuffer;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.HashMap;
-import java.util.Map;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.Objects;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 /**
  * Serves the HTTP content of the web interface.
  * This includes the HTML interface and some various resources (like icons).
+ * Additionally whole directories and custom routes can be served (see {@link Router}). Content that is served
+ * from a buffer (such as memory-mapped files) supports single byte ranges. The web server copies such content into
+ * the buffer of the response, so the size of a single response of it can be limited
+ * (see {@link #limitBufferedResponses(int)}). Content that fails to load (for example
+ * a resource that cannot be read) is answered with {@code 500}.
  *
  * @author Philipp Ploder
  * @version 2.0.0
@@ -27,63 +32,127 @@ import java.util.function.Supplier;
 @XSlf4j
 class ConsoleHttpHandler implements HttpHandler {
 
+    /**
+     * The format of dates in HTTP headers (IMF-fixdate).
+     */
+    private static final DateTimeFormatter HTTP_DATE_FORMAT = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+
     private final NetModule netModule;
 
-    private final Map<String, Supplier<Page>> uriHandler = new HashMap<>();
+    private final Router router = new Router();
+    private final ResourceStore resourceStore;
+
+    private int maxBufferedResponseSize = Integer.MAX_VALUE;
 
     /**
      * Creates a new instance for the given host and with the given absolute HTML resource path.
      * The path is the page that gets served when the root page is requested.
+     * The resources are loaded from the store when they are first requested.
      *
      * @param netModule         The module for which the site will be hosted.
      * @param interfaceSupplier The supplier for the interface.
+     * @param resourceStore     The store that loads the resources.
      * @param resources         The resources to be served besides the interface
-     * @throws IOException If such an exception occurs whilst reading from the resource at the given path.
      */
-    public ConsoleHttpHandler(NetModule netModule, Supplier<Page> interfaceSupplier, Resource... resources)
-            throws IOException {
+    public ConsoleHttpHandler(NetModule netModule, Supplier<Page> interfaceSupplier, ResourceStore resourceStore,
+                              Resource... resources) {
         this.netModule = netModule;
+        this.resourceStore = Objects.requireNonNull(resourceStore);
 
-        uriHandler.put("/", Objects.requireNonNull(interfaceSupplier));
+        addRoute("GET", "/", supply(Objects.requireNonNull(interfaceSupplier)));
 
         for (Resource resource : resources) {
-            log.debug("Loading resource {}", resource.getPath());
-
-            try {
-                uriHandler.put(resource.getWebPath(), new RawHttpSupplier(
-                        Files.readAllBytes(Paths.get(Resource.class.getResource(resource.getPath()).toURI())),
-                        resource.getMime()
-                ));
-            } catch (IOException | URISyntaxException e) {
-                log.catching(e);
-            }
+            addResource(resource);
         }
     }
 
+    /**
+     * Serves the resource at its web path.
+     * This will overwrite anything that was previously served at the same path.
+     *
+     * @param resource The resource.
+     */
+    public void addResource(Resource resource) {
+        addRoute("GET", resource.getWebPath(), supply(resourceStore.lazy(resource)));
+    }
+
+    /**
+     * Serves the directory under its prefix.
+     * Exactly registered paths take precedence; among directories the longest prefix wins.
+     *
+     * @param directory The directory.
+     */
+    public void addDirectory(StaticDirectory directory) {
+        addRoute("GET", directory.getPrefix() + "**", match -> directory.get(match.getRemainder()));
+    }
+
+    /**
+     * Adds a route (see {@link Router#add(String, String, RouteHandler)}).
+     * This will overwrite any previous route with the same method and pattern.
+     *
+     * @param method  The request method or {@link Router#ANY_METHOD}.
+     * @param pattern The pattern.
+     * @param handler The handler.
+     */
+    public void addRoute(String method, String pattern, RouteHandler handler) {
+        router.add(method, pattern, handler);
+    }
+
+    /**
+     * Limits the amount of content served from a buffer (such as a memory-mapped file) by a single response.
+     * Larger responses are refused with {@code 500}; clients can still request byte ranges within the limit.
+     *
+     * @param maxSize The maximum size of a response in bytes.
+     * @throws IllegalArgumentException If the maximum size is not positive.
+     */
+    public void limitBufferedResponses(int maxSize) throws IllegalArgumentException {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("The maximum response size must be positive");
+        }
+
+        this.maxBufferedResponseSize = maxSize;
+    }
+
     @Override
     public void handleHttpRequest(HttpRequest httpRequest, HttpResponse httpResponse, HttpControl httpControl) throws Exception {
-        log.debug("Incoming HTTP request of '{}' ({})", httpRequest.uri(), httpRequest.method());
+        handle(httpRequest.uri(), httpRequest, httpResponse);
+    }
+
+    /**
+     * Handles a request whose URI has been resolved relative to the console's mount (see {@link ConsoleServer}).
+     *
+     * @param uri          The URI relative to the mount. Starts with {@code /}.
+     * @param httpRequest  The request.
+     * @param httpResponse The response.
+     */
+    void handle(String uri, HttpRequest httpRequest, HttpResponse httpResponse) {
+        log.debug("Incoming HTTP request of '{}' ({})", uri, httpRequest.method());
 
-        String uri = httpRequest.uri();
+        Page page;
 
-        Supplier<Page> pageSupplier = uriHandler.get(uri);
+        try {
+            page = router.route(httpRequest.method(), uri);
+        } catch (RuntimeException e) {
+            log.error("Could not supply '{}'; sending 500", uri, e);
+            httpResponse
+                    .status(500)
+                    .header("Content-Type", "text/html")
+                    .content("Could not load " + uri)
+                    .end();
+            return;
+        }
 
-        if (pageSupplier == null) {
+        if (page == null) {
             httpResponse
                     .status(404)
                     .header("Content-Type", "text/html")
                     .content("URI handler not found for " + uri)
                     .end();
         } else {
-            Page page = pageSupplier.get();
-
             Object data = page.getData();
 
-            if (page.isSite()) {
-                if (!(data instanceof String)) {
-                    data = String.valueOf(data);
-                }
-
+            if (page.isSite() && data instanceof String) {
+                // Sites supplied as bytes are already bound to the module (see SiteHttpSupplier#bind)
                 data = ((String) data)
                         .replace("{{ADDRESS}}", netModule.getHttpURL())
                         .replace("{{WEBSOCKET}}", netModule.getWebsocketURL());
@@ -93,10 +162,97 @@ class ConsoleHttpHandler implements HttpHandler {
                     .status(page.getResponseCode())
                     .header("Content-Type", page.getMime());
 
+            if (page.getCacheControl() != null) {
+                httpResponse.header("Cache-Control", page.getCacheControl());
+            }
+
+            if (page.getLastModified() != null) {
+                httpResponse.header("Last-Modified", HTTP_DATE_FORMAT.format(page.getLastModified()));
+            }
+
+            String entityTag = page.getEntityTag();
+            Predicate<String> entityTags = ifNoneMatch -> EntityTags.matches(ifNoneMatch, page.getEntityTag());
+            ContentEncoding encoding = ContentEncoding.IDENTITY;
+
+            if (data instanceof EncodedContent) {
+                EncodedContent content = (EncodedContent) data;
+
+                if (content.isNegotiable()) {
+                    httpResponse.header("Vary", "Accept-Encoding");
+                }
+
+                encoding = content.negotiate(httpRequest.header("Accept-Encoding"));
+
+                if (encoding == null) {
+                    // Nothing acceptable; fall back to the uncompressed form instead of failing
+                    encoding = ContentEncoding.IDENTITY;
+                }
+
+                data = content.get(encoding);
+                entityTag = content.getEntityTag(encoding);
+                entityTags = content::matches;
+            }
+
+            if (entityTag != null) {
+                httpResponse.header("ETag", entityTag);
+            }
+
+            if (page.getResponseCode() == 200 && isNotModified(httpRequest, entityTags, page.getLastModified())) {
+                log.debug("Requested URI not modified; sending 304 ({})", uri);
+                httpResponse.status(304).end();
+                return;
+            }
+
+            if (encoding != ContentEncoding.IDENTITY) {
+                httpResponse.header("Content-Encoding", encoding.getToken());
+            }
+
             if (data instanceof byte[]) {
                 httpResponse.content((byte[]) data);
             } else if (data instanceof ByteBuffer) {
-                httpResponse.content((ByteBuffer) data);
+                ByteBuffer buffer = (ByteBuffer) data;
+                long length = buffer.remaining();
+
+                httpResponse.header("Accept-Ranges", "bytes");
+
+                ByteRange range = page.getResponseCode() == 200
+                        && isRangeApplicable(httpRequest, entityTag, page.getLastModified())
+                        ? ByteRange.parse(httpRequest.header("Range"), length)
+                        : null;
+
+                if (range == ByteRange.UNSATISFIABLE) {
+                    httpResponse
+                            .status(416)
+                            .header("Content-Range", range.toContentRange(length))
+                            .end();
+                    return;
+                }
+
+                if ((range == null ? length : range.getLength()) > maxBufferedResponseSize) {
+                    log.warn("Refusing to send more than {} bytes of '{}'; sending 500", maxBufferedResponseSize, uri);
+                    httpResponse
+                            .status(500)
+                            .header("Content-Type", "text/html")
+                            .header("Cache-Control", CacheControl.NO_STORE)
+                            .content("Response too large; request a byte range of at most " + maxBufferedResponseSize
+                                    + " bytes")
+                            .end();
+                    return;
+                }
+
+                if (range != null) {
+                    log.debug("Sending range {} of '{}'", range.toContentRange(length), uri);
+
+                    buffer = buffer.duplicate();
+                    buffer.position(buffer.position() + (int) range.getFirst());
+                    buffer.limit(buffer.position() + (int) range.getLength());
+
+                    httpResponse
+                            .status(206)
+                            .header("Content-Range", range.toContentRange(length));
+                }
+
+                httpResponse.content(buffer.slice());
             } else {
                 httpResponse.content(String.valueOf(data));
             }
@@ -134,4 +290,65 @@ class ConsoleHttpHandler implements HttpHandler {
         */
     }
 
+    private static RouteHandler supply(Supplier<Page> supplier) {
+        return match -> supplier.get();
+    }
+
+    /**
+     * Evaluates the {@code If-Range} header of a request.
+     *
+     * @param httpRequest  The request.
+     * @param entityTag    The entity tag of the content or {@code null}.
+     * @param lastModified The modification time of the content or {@code null}.
+     * @return Whether a requested range may be served.
+     */
+    private static boolean isRangeApplicable(HttpRequest httpRequest, String entityTag, Instant lastModified) {
+        String ifRange = httpRequest.header("If-Range");
+
+        if (ifRange == null) {
+            return true;
+        }
+
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // Strong comparison is required for If-Range
+            return ifRange.equals(entityTag);
+        }
+
+        try {
+            return lastModified != null
+                    && lastModified.equals(ZonedDateTime.parse(ifRange, HTTP_DATE_FORMAT).toInstant());
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Evaluates the conditional headers of a request.
+     * {@code If-None-Match} takes precedence over {@code If-Modified-Since}.
+     *
+     * @param httpRequest  The request.
+     * @param entityTags   Checks an {@code If-None-Match} header against the entity tags of the content.
+     * @param lastModified The modification time of the content or {@code null}.
+     * @return Whether the client's copy is still valid.
+     */
+    private static boolean isNotModified(HttpRequest httpRequest, Predicate<String> entityTags, Instant lastModified) {
+        String ifNoneMatch = httpRequest.header("If-None-Match");
+
+        if (ifNoneMatch != null) {
+            return entityTags.test(ifNoneMatch);
+        }
+
+        String ifModifiedSince = httpRequest.header("If-Modified-Since");
+
+        if (ifModifiedSince == null || lastModified == null) {
+            return false;
+        }
+
+        try {
+            return !lastModified.isAfter(ZonedDateTime.parse(ifModifiedSince, HTTP_DATE_FORMAT).toInstant());
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
 }
@@ -0,0 +1,212 @@
+package com.pploder.ehc;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Streams styled text to a connection (see {@link Connection#openOutput()}).
+ * The text is buffered until a chunk is full and then sent as a single message. Chunks end at the last line
+ * break if possible so that lines are not split between messages. At most one chunk is buffered, so the memory
+ * used by the output does not depend on the amount of text that is written.
+ * <p>
+ * The writer does not wait for the client by itself. If the connection has an outbound limit with
+ * {@link OverflowPolicy#BLOCK}, writing blocks while the client is too far behind.
+ * <p>
+ * Closing the writer sends the remaining text. Instances are thread-safe.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+public class ConsoleOutput extends Writer {
+
+    /**
+     * The default amount of characters per message.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 16 * 1024;
+
+    private final Connection connection;
+    private final int chunkSize;
+
+    private final List<MessageSnippet> snippets = new ArrayList<>();
+    private final StringBuilder current = new StringBuilder();
+    private int buffered;
+    private boolean closed;
+
+    private MessageStyle style = MessageStyle.PLAIN;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param connection The connection to which the text is sent.
+     * @param chunkSize  The maximum amount of characters per message.
+     * @throws IllegalArgumentException If the chunk size is less than one.
+     */
+    public ConsoleOutput(Connection connection, int chunkSize) throws IllegalArgumentException {
+        this.connection = Objects.requireNonNull(connection);
+        this.chunkSize = chunkSize;
+
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("The chunk size must be at least one");
+        }
+    }
+
+    /**
+     * Sets the style of the text that is written afterwards.
+     *
+     * @param style The style ({@link MessageStyle#PLAIN} for the default style of the client).
+     * @return This instance.
+     */
+    public ConsoleOutput style(MessageStyle style) {
+        Objects.requireNonNull(style);
+
+        synchronized (lock) {
+            endSnippet();
+
+            this.style = style;
+        }
+
+        return this;
+    }
+
+    /**
+     * Sets the color of the text that is written afterwards and resets the other style attributes.
+     *
+     * @param rgb The color as {@code 0xRRGGBB}.
+     * @return This instance.
+     */
+    public ConsoleOutput color(int rgb) {
+        return style(MessageStyle.PLAIN.withColor(rgb));
+    }
+
+    /**
+     * Resets the style of the text that is written afterwards to the default style of the client.
+     *
+     * @return This instance.
+     */
+    public ConsoleOutput resetStyle() {
+        return style(MessageStyle.PLAIN);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        synchronized (lock) {
+            ensureOpen();
+
+            while (len > 0) {
+                int n = Math.min(len, chunkSize - buffered);
+
+                current.append(cbuf, off, n);
+                buffered += n;
+                off += n;
+                len -= n;
+
+                if (buffered >= chunkSize) {
+                    emit(false);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        synchronized (lock) {
+            ensureOpen();
+
+            while (len > 0) {
+                int n = Math.min(len, chunkSize - buffered);
+
+                current.append(str, off, off + n);
+                buffered += n;
+                off += n;
+                len -= n;
+
+                if (buffered >= chunkSize) {
+                    emit(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends the buffered text immediately.
+     *
+     * @throws IOException If the output has been closed.
+     */
+    @Override
+    public void flush() throws IOException {
+        synchronized (lock) {
+            ensureOpen();
+            emit(true);
+        }
+
+        connection.flush();
+    }
+
+    /**
+     * Sends the remaining text and closes the output.
+     * Has no effect if the output already has been closed.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+            emit(true);
+        }
+
+        connection.flush();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("The output has been closed");
+        }
+    }
+
+    /**
+     * Turns the text of the current style into a snippet.
+     */
+    private void endSnippet() {
+        if (current.length() > 0) {
+            snippets.add(snippet(current.toString()));
+            current.setLength(0);
+        }
+    }
+
+    /**
+     * Sends the buffered text as a message.
+     * Unless everything is requested, text after the last line break is kept for the next message.
+     * The line break at the end of a message is dropped because every message starts a new line on the client.
+     */
+    private void emit(boolean everything) {
+        int lineBreak = current.lastIndexOf("\n");
+        String remainder = "";
+
+        if (lineBreak >= 0 && (!everything || lineBreak == current.length() - 1)) {
+            remainder = current.substring(lineBreak + 1);
+            current.setLength(lineBreak);
+        }
+
+        endSnippet();
+
+        if (!snippets.isEmpty()) {
+            connection.send(new MessageContent(snippets.toArray(new MessageSnippet[0])));
+            snippets.clear();
+        }
+
+        current.append(remainder);
+        buffered = remainder.length();
+    }
+
+    private MessageSnippet snippet(String text) {
+        return new MessageSnippet(text, style);
+    }
+
+}
@@ -0,0 +1,294 @@
+package com.pploder.ehc;
+
+import lombok.extern.slf4j.XSlf4j;
+import org.webbitserver.HttpControl;
+import org.webbitserver.HttpHandler;
+import org.webbitserver.HttpRequest;
+import org.webbitserver.HttpResponse;
+import org.webbitserver.WebServer;
+import org.webbitserver.WebServers;
+import org.webbitserver.WebSocketHandler;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A web server that hosts several consoles on a single port.
+ * <p>
+ * Every console is mounted under its own path prefix by an {@link HttpNetModule} that is created with
+ * {@link HttpNetModule#HttpNetModule(ConsoleServer, String)}. Each mount serves its own interface, websocket and
+ * routes below its prefix while all mounts share the I/O threads of the server and its {@link ResourceStore}.
+ * Requests are dispatched to the mount with the longest matching prefix.
+ * <p>
+ * The amount of data that the server buffers for a single request or websocket frame is limited for all mounts
+ * (see {@link #setMaxContentLength(int)}).
+ * <p>
+ * The server is started together with the first module that is started and stopped when the last module
+ * is closed (or when the server itself is closed).
+ * <p>
+ * Instances are thread-safe.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+@XSlf4j
+public class ConsoleServer implements AutoCloseable {
+
+    /**
+     * The default maximum amount of bytes buffered for a request body or websocket frame (the default of webbit).
+     */
+    public static final int DEFAULT_MAX_CONTENT_LENGTH = 65536;
+
+    private final String host;
+    private final int port;
+    private final ResourceStore resourceStore = new ResourceStore();
+
+    /**
+     * The mounts ordered by descending prefix length so that the longest prefix is matched first.
+     */
+    private final List<Mount> mounts = new CopyOnWriteArrayList<>();
+
+    private int maxContentLength = DEFAULT_MAX_CONTENT_LENGTH;
+
+    private WebServer server;
+
+    /**
+     * Creates a new instance with the default host on the default port.
+     * The default host in {@link HttpNetModule#DEFAULT_HOST} and the default port is
+     * {@link HttpNetModule#DEFAULT_PORT}.
+     */
+    public ConsoleServer() {
+        this(HttpNetModule.DEFAULT_PORT);
+    }
+
+    /**
+     * Creates a new instance with the default host on the given port.
+     * The default host in {@link HttpNetModule#DEFAULT_HOST}.
+     *
+     * @param port The port to run the server on.
+     */
+    public ConsoleServer(int port) {
+        this(HttpNetModule.DEFAULT_HOST, port);
+    }
+
+    /**
+     * Creates a new instance with the given host on the given port.
+     *
+     * @param host The host to run the server on.
+     * @param port The port to run the server on.
+     */
+    public ConsoleServer(String host, int port) {
+        this.host = Objects.requireNonNull(host);
+        this.port = port;
+    }
+
+    /**
+     * @return The host that the server runs on.
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * @return The port that the server runs on.
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * @return The number of mounted consoles.
+     */
+    public int getMountCount() {
+        return mounts.size();
+    }
+
+    /**
+     * @return Whether the server is running.
+     */
+    public synchronized boolean isRunning() {
+        return server != null;
+    }
+
+    /**
+     * @return The maximum amount of bytes buffered for a request body or websocket frame.
+     */
+    public synchronized int getMaxContentLength() {
+        return maxContentLength;
+    }
+
+    /**
+     * Limits the amount of bytes that the server buffers for a single request body or websocket frame.
+     * Larger requests and frames are rejected by the web server before they have been received completely.
+     * This is a server-wide setting: it applies to every mounted console and to all HTTP requests.
+     * The default is {@link #DEFAULT_MAX_CONTENT_LENGTH}. Must be invoked before the server is started.
+     *
+     * @param maxContentLength The maximum amount of bytes.
+     * @throws IllegalArgumentException If the amount is not positive.
+     * @throws IllegalStateException    If the server is running.
+     */
+    public synchronized void setMaxContentLength(int maxContentLength)
+            throws IllegalArgumentException, IllegalStateException {
+        if (maxContentLength <= 0) {
+            throw new IllegalArgumentException("The maximum content length must be positive");
+        }
+
+        if (server != null) {
+            throw new IllegalStateException("The maximum content length can not be changed while the server runs");
+        }
+
+        this.maxContentLength = maxContentLength;
+    }
+
+    /**
+     * @return The store that is shared by all mounts.
+     */
+    ResourceStore getResourceStore() {
+        return resourceStore;
+    }
+
+    /**
+     * Normalizes a mount path to a prefix that starts and ends with {@code /}.
+     *
+     * @param path The path. Leading and trailing {@code /} are optional.
+     * @return The prefix.
+     */
+    static String toPrefix(String path) {
+        String prefix = Objects.requireNonNull(path).startsWith("/") ? path : "/" + path;
+        return prefix.endsWith("/") ? prefix : prefix + "/";
+    }
+
+    /**
+     * Mounts a console.
+     *
+     * @param prefix           The prefix (see {@link #toPrefix(String)}).
+     * @param websocketPath    The absolute path of the websocket.
+     * @param webSocketHandler The handler of the websocket.
+     * @param httpHandler      The handler of all other requests below the prefix.
+     * @throws IllegalStateException If a console is already mounted at the prefix.
+     */
+    synchronized void mount(String prefix, String websocketPath, WebSocketHandler webSocketHandler,
+                            ConsoleHttpHandler httpHandler) throws IllegalStateException {
+        Objects.requireNonNull(websocketPath);
+        Objects.requireNonNull(webSocketHandler);
+        Objects.requireNonNull(httpHandler);
+
+        for (Mount mount : mounts) {
+            if (mount.prefix.equals(prefix)) {
+                throw new IllegalStateException("A console is already mounted at " + prefix);
+            }
+        }
+
+        mounts.add(new Mount(prefix, websocketPath, webSocketHandler, httpHandler));
+        mounts.sort(Comparator.comparingInt((Mount mount) -> mount.prefix.length()).reversed());
+
+        log.info("Console mounted on {}:{}{} (websocket {})", host, port, prefix, websocketPath);
+    }
+
+    /**
+     * Unmounts a console. The server is stopped when no console is left.
+     *
+     * @param prefix The prefix (see {@link #toPrefix(String)}).
+     */
+    synchronized void unmount(String prefix) {
+        mounts.removeIf(mount -> mount.prefix.equals(prefix));
+
+        if (mounts.isEmpty()) {
+            close();
+        }
+    }
+
+    /**
+     * Starts the server unless it is already running. Blocks until the server has been started.
+     *
+     * @throws Exception If the server fails to start.
+     */
+    public synchronized void start() throws Exception {
+        if (server != null) {
+            return;
+        }
+
+        WebServer server = WebServers.createWebServer(port)
+                .maxContentLength(maxContentLength)
+                .add(this::dispatch);
+        server.start().get();
+
+        this.server = server;
+
+        log.info("Webserver started on {}:{}", host, port);
+    }
+
+    /**
+     * Stops the server (non-blocking). Mounted consoles remain mounted and are served again once the server is
+     * restarted.
+     */
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop();
+            server = null;
+
+            log.info("Webserver on {}:{} stopped", host, port);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%s:%d", getClass().getSimpleName(), host, port);
+    }
+
+    /**
+     * Dispatches a request to the mount it belongs to.
+     */
+    void dispatch(HttpRequest httpRequest, HttpResponse httpResponse, HttpControl httpControl) throws Exception {
+        String uri = httpRequest.uri();
+        int query = uri.indexOf('?');
+        String path = query < 0 ? uri : uri.substring(0, query);
+
+        for (Mount mount : mounts) {
+            if (path.equals(mount.websocketPath)) {
+                httpControl.upgradeToWebSocketConnection(mount.webSocketHandler);
+                return;
+            }
+        }
+
+        for (Mount mount : mounts) {
+            if (path.startsWith(mount.prefix)) {
+                mount.httpHandler.handle(uri.substring(mount.prefix.length() - 1), httpRequest, httpResponse);
+                return;
+            }
+
+            if (path.length() == mount.prefix.length() - 1 && mount.prefix.startsWith(path)) {
+                // Relative links of the interface only resolve below the prefix
+                httpResponse
+                        .status(301)
+                        .header("Location", mount.prefix + (query < 0 ? "" : uri.substring(query)))
+                        .end();
+                return;
+            }
+        }
+
+        httpControl.nextHandler();
+    }
+
+    private static final class Mount {
+
+        private final String prefix;
+        private final String websocketPath;
+        private final WebSocketHandler webSocketHandler;
+        private final ConsoleHttpHandler httpHandler;
+
+        private Mount(String prefix, String websocketPath, WebSocketHandler webSocketHandler,
+                      ConsoleHttpHandler httpHandler) {
+            this.prefix = prefix;
+            this.websocketPath = websocketPath;
+            this.webSocketHandler = webSocketHandler;
+            this.httpHandler = httpHandler;
+        }
+
+    }
+
+}
@@ -6,11 +6,22 @@ import lombok.extern.slf4j.XSlf4j;
 import org.webbitserver.BaseWebSocketHandler;
 import org.webbitserver.WebSocketConnection;
 
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Hosts the websocket for console communication.
+ * Optionally the clients are pinged regularly and connections without any sign of life are closed
+ * (see {@link #enableHeartbeat(TimerWheel, Duration, Duration)}).
+ * If sessions can be resumed (see {@link SessionResume}) a closed connection is kept for the resume timeout and
+ * attached to the websocket connection of the client that presents its session token.
+ * Optionally incoming messages that exceed a maximum size are rejected
+ * (see {@link #limitInboundMessages(int)}).
  *
  * @author Philipp Ploder
  * @version 2.0.0
@@ -19,23 +30,96 @@ import java.util.concurrent.ConcurrentHashMap;
 @XSlf4j
 class ConsoleWebSocketHandler extends BaseWebSocketHandler {
 
+    private static final byte[] HEARTBEAT_PAYLOAD = {'H'};
+
     private final Event<Message> messageReceivedEvent = new SimpleEvent<>();
     private final Event<Connection> connectionOpenedEvent = new SimpleEvent<>();
     private final Event<Connection> connectionClosedEvent = new SimpleEvent<>();
 
     private final Console console;
 
-    private final Map<WebSocketConnection, Connection> connections = new ConcurrentHashMap<>();
+    private final Map<WebSocketConnection, WebSocketConnectionWrapper> connections = new ConcurrentHashMap<>();
+    private final Map<String, WebSocketConnectionWrapper> sessions = new ConcurrentHashMap<>();
+
+    private final OutboundOptions outboundOptions;
+
+    private TimerWheel timerWheel;
+    private long heartbeatNanos;
+    private long idleTimeoutNanos;
+    private long resumeTimeoutNanos;
+    private int maxInboundMessageSize;
 
     public ConsoleWebSocketHandler(Console console) {
+        this(console, OutboundOptions.DEFAULT);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param console         The console for which the websocket is hosted.
+     * @param outboundOptions The options for the outgoing messages of the connections.
+     */
+    public ConsoleWebSocketHandler(Console console, OutboundOptions outboundOptions) {
         this.console = console;
+        this.outboundOptions = outboundOptions;
+    }
+
+    /**
+     * Pings every client regularly and closes connections whose client has not shown any sign of life
+     * (a message or a pong) for the idle timeout. Must be invoked before the first connection is opened.
+     *
+     * @param timerWheel  The timer wheel that schedules the heartbeats of all connections.
+     * @param interval    The interval of the pings.
+     * @param idleTimeout The time after which a silent connection is closed.
+     */
+    public void enableHeartbeat(TimerWheel timerWheel, Duration interval, Duration idleTimeout) {
+        this.timerWheel = Objects.requireNonNull(timerWheel);
+        this.heartbeatNanos = interval.toNanos();
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+    }
+
+    /**
+     * Keeps the sessions of closed connections for the resume timeout (see {@link SessionResume}).
+     * The options of the outgoing messages must contain the resume options.
+     * Must be invoked before the first connection is opened.
+     *
+     * @param timerWheel The timer wheel that schedules the expiry of the sessions.
+     */
+    public void enableSessionResume(TimerWheel timerWheel) {
+        this.timerWheel = Objects.requireNonNull(timerWheel);
+        this.resumeTimeoutNanos = outboundOptions.getResume().getResumeTimeout().toNanos();
+    }
+
+    /**
+     * Rejects incoming messages that exceed the maximum size instead of passing them on to the console.
+     * The client is notified about the rejected message. Must be invoked before the first connection is opened.
+     * <p>
+     * This check runs after the web server has received the whole frame; the web server itself must be limited to
+     * protect the server from oversized frames (see {@link ConsoleServer#setMaxContentLength(int)}).
+     *
+     * @param maxSize The maximum size of a message. Messages with more characters are rejected.
+     */
+    public void limitInboundMessages(int maxSize) {
+        this.maxInboundMessageSize = maxSize;
     }
 
     @Override
     public void onOpen(WebSocketConnection connection) throws Exception {
         log.debug("Websocket connection opened ({})", connection.httpRequest().remoteAddress());
 
-        Connection c = connections.put(connection, new WebSocketConnectionWrapper(console, connection));
+        if (resume(connection)) {
+            return;
+        }
+
+        WebSocketConnectionWrapper c = new WebSocketConnectionWrapper(console, connection, outboundOptions);
+        connections.put(connection, c);
+
+        if (c.getSession().isResumable()) {
+            sessions.put(c.getSession().getToken(), c);
+        }
+
+        scheduleHeartbeat(c);
+
         connectionOpenedEvent().trigger(c);
     }
 
@@ -43,15 +127,208 @@ class ConsoleWebSocketHandler extends BaseWebSocketHandler {
     public void onClose(WebSocketConnection connection) throws Exception {
         log.debug("Websocket connection closed ({})", connection.httpRequest().remoteAddress());
 
-        Connection c = connections.remove(connection);
-        connectionClosedEvent().trigger(c);
+        WebSocketConnectionWrapper c = connections.remove(connection);
+
+        // Connections that were evicted or replaced have already been unregistered
+        if (c != null) {
+            disconnected(c, connection);
+        }
+    }
+
+    @Override
+    public void onPong(WebSocketConnection connection, byte[] msg) throws Throwable {
+        WebSocketConnectionWrapper c = connections.get(connection);
+
+        if (c != null) {
+            c.pong(msg);
+        }
     }
 
     @Override
     public void onMessage(WebSocketConnection connection, String msg) throws Throwable {
+        WebSocketConnectionWrapper c = connections.get(connection);
+
+        if (c != null) {
+            c.touch();
+        }
+
+        if (maxInboundMessageSize > 0 && msg.length() > maxInboundMessageSize) {
+            log.warn("Websocket message of {} characters rejected ({})", msg.length(),
+                    connection.httpRequest().remoteAddress());
+
+            if (c != null) {
+                c.send(MessageContent.of("Message rejected: it is longer than " + maxInboundMessageSize
+                        + " characters."));
+            }
+
+            return;
+        }
+
         log.debug("Websocket message received ({}): {}", connection.httpRequest().remoteAddress(), msg);
 
-        messageReceivedEvent().trigger(new SimpleMessage(connections.get(connection), msg));
+        messageReceivedEvent().trigger(new SimpleMessage(c, msg));
+    }
+
+    /**
+     * Closes every connection and ends every session that could still be resumed, for example because the console
+     * is no longer served. Every connection is unregistered and reported via {@link #connectionClosedEvent()}.
+     */
+    public void close() {
+        Set<WebSocketConnectionWrapper> closed = new LinkedHashSet<>();
+
+        for (Map.Entry<WebSocketConnection, WebSocketConnectionWrapper> entry : connections.entrySet()) {
+            // Connections that the client closes meanwhile are handled by onClose
+            if (connections.remove(entry.getKey(), entry.getValue())) {
+                entry.getValue().getSession().end();
+                entry.getKey().close();
+                closed.add(entry.getValue());
+            }
+        }
+
+        for (WebSocketConnectionWrapper c : sessions.values()) {
+            if (sessions.remove(c.getSession().getToken(), c)) {
+                closed.add(c);
+            }
+        }
+
+        log.debug("Closing {} websocket connections", closed.size());
+
+        for (WebSocketConnectionWrapper c : closed) {
+            c.closed();
+            connectionClosedEvent().trigger(c);
+        }
+    }
+
+    /**
+     * Attaches the connection to the session that the client wants to resume.
+     *
+     * @return Whether a session was resumed.
+     */
+    private boolean resume(WebSocketConnection connection) {
+        if (outboundOptions.getResume() == null) {
+            return false;
+        }
+
+        String uri = connection.httpRequest().uri();
+        String token = WireFormat.queryParameter(uri, SessionResume.SESSION_PARAMETER);
+
+        if (token == null) {
+            return false;
+        }
+
+        WebSocketConnectionWrapper c = sessions.get(token);
+
+        if (c == null || c.getWireFormat() != WireFormat.negotiate(uri)) {
+            log.debug("Session can not be resumed ({})", connection.httpRequest().remoteAddress());
+            return false;
+        }
+
+        long received;
+
+        try {
+            received = Long.parseLong(WireFormat.queryParameter(uri, SessionResume.RECEIVED_PARAMETER));
+        } catch (NumberFormatException e) {
+            received = 0;
+        }
+
+        WebSocketConnection previous;
+
+        try {
+            previous = c.resume(connection, received);
+        } catch (IllegalStateException e) {
+            log.debug("Session has expired ({})", connection.httpRequest().remoteAddress());
+            return false;
+        }
+
+        connections.put(connection, c);
+
+        if (previous == null) {
+            scheduleHeartbeat(c);
+        } else {
+            // The client gave up on the previous connection before the server noticed
+            connections.remove(previous, c);
+            previous.close();
+        }
+
+        log.info("Session resumed ({})", c.getRemoteAddress());
+
+        return true;
+    }
+
+    /**
+     * Detaches a connection whose session can be resumed or closes it otherwise.
+     */
+    private void disconnected(WebSocketConnectionWrapper c, WebSocketConnection connection) {
+        Session<?> session = c.getSession();
+
+        if (session.isResumable() && !session.isEnded() && session.detach(connection)) {
+            log.debug("Session detached; it can be resumed ({})", c.getRemoteAddress());
+            timerWheel.schedule(() -> connection.execute(() -> expire(c)), resumeTimeoutNanos);
+            return;
+        }
+
+        if (session.isResumable()) {
+            sessions.remove(session.getToken(), c);
+        }
+
+        c.closed();
+        connectionClosedEvent().trigger(c);
+    }
+
+    /**
+     * Closes a session that has not been resumed in time.
+     */
+    private void expire(WebSocketConnectionWrapper c) {
+        Session<?> session = c.getSession();
+
+        if (session.expire() && sessions.remove(session.getToken(), c)) {
+            log.debug("Session expired ({})", c.getRemoteAddress());
+
+            c.closed();
+            connectionClosedEvent().trigger(c);
+        }
+    }
+
+    private void scheduleHeartbeat(WebSocketConnectionWrapper c) {
+        if (heartbeatNanos > 0) {
+            timerWheel.schedule(() -> heartbeat(c), heartbeatNanos);
+        }
+    }
+
+    /**
+     * Checks a connection on the timer wheel.
+     * The connection is pinged and checked again after the interval or evicted if it has been idle for too long.
+     */
+    private void heartbeat(WebSocketConnectionWrapper c) {
+        WebSocketConnection connection = c.getWebSocketConnection();
+
+        if (connections.get(connection) != c) {
+            return;
+        }
+
+        if (System.nanoTime() - c.getLastActivity() >= idleTimeoutNanos) {
+            connection.execute(() -> evict(c));
+            return;
+        }
+
+        connection.ping(HEARTBEAT_PAYLOAD);
+        timerWheel.schedule(() -> heartbeat(c), heartbeatNanos);
+    }
+
+    /**
+     * Unregisters and closes an idle connection.
+     */
+    private void evict(WebSocketConnectionWrapper c) {
+        WebSocketConnection connection = c.getWebSocketConnection();
+
+        if (!connections.remove(connection, c)) {
+            return;
+        }
+
+        log.info("Closing idle websocket connection ({})", c.getRemoteAddress());
+
+        disconnected(c, connection);
+        connection.close();
     }
 
     /**
@@ -88,19 +365,24 @@ class ConsoleWebSocketHandler extends BaseWebSocketHandler {
     }
 
     /**
+     * Connections whose session can still be resumed count as active.
+     *
      * @return The amount of active connection.
      */
     public int getConnectionCount() {
-        return connections.size();
+        return outboundOptions.getResume() == null ? connections.size() : sessions.size();
     }
 
     /**
      * Returns a read-only iterable of all active connections.
+     * Connections whose session can still be resumed count as active.
      *
      * @return All active connections.
      */
     public Iterable<Connection> connections() {
-        return connections.values();
+        return Collections.unmodifiableCollection(outboundOptions.getResume() == null
+                ? connections.values()
+                : sessions.values());
     }
 
 }
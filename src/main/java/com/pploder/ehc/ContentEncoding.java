@@ -0,0 +1,198 @@
+package com.pploder.ehc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The HTTP content codings that content can be served in.
+ * The codings are declared in the order of preference, which is used when a client accepts several
+ * codings equally.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+public enum ContentEncoding {
+    GZIP("gzip"),
+    DEFLATE("deflate"),
+    IDENTITY("identity");
+
+    private final String token;
+
+    ContentEncoding(String token) {
+        this.token = token;
+    }
+
+    /**
+     * @return The token of the coding as used in the {@code Content-Encoding} header.
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Encodes the given data with this coding.
+     *
+     * @param data The data to encode.
+     * @return The encoded data. For {@link #IDENTITY} this is the given array.
+     */
+    public byte[] encode(byte[] data) {
+        if (this == IDENTITY) {
+            return data;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 64);
+
+        Deflater deflater = this == GZIP ? null : new Deflater(Deflater.BEST_COMPRESSION);
+
+        try (OutputStream encoder = deflater == null
+                ? new BestGZIPOutputStream(out)
+                : new DeflaterOutputStream(out, deflater)) {
+            encoder.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (deflater != null) {
+                // The stream does not end a deflater it was given, so its native memory is released here
+                deflater.end();
+            }
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Chooses the best coding that is both available and acceptable according to an {@code Accept-Encoding} header.
+     * Quality values are honored; on equal quality the order of declaration decides. Identity is acceptable unless
+     * it is explicitly excluded (via {@code identity;q=0} or {@code *;q=0}).
+     *
+     * @param acceptEncoding The value of the {@code Accept-Encoding} header or {@code null} if absent.
+     * @param available      Whether a coding is available, indexed by ordinal.
+     * @return The chosen coding or {@code null} if none is acceptable.
+     */
+    static ContentEncoding negotiate(String acceptEncoding, boolean[] available) {
+        if (acceptEncoding == null) {
+            return available[IDENTITY.ordinal()] ? IDENTITY : null;
+        }
+
+        ContentEncoding[] values = values();
+        float[] quality = new float[values.length];
+        boolean[] listed = new boolean[values.length];
+        float wildcard = -1;
+
+        int length = acceptEncoding.length();
+        int position = 0;
+
+        while (position < length) {
+            int end = acceptEncoding.indexOf(',', position);
+            if (end < 0) {
+                end = length;
+            }
+
+            int semicolon = acceptEncoding.indexOf(';', position);
+            int tokenEnd = semicolon >= 0 && semicolon < end ? semicolon : end;
+
+            int tokenStart = skipWhitespace(acceptEncoding, position, tokenEnd);
+            int tokenStop = trimWhitespace(acceptEncoding, tokenStart, tokenEnd);
+
+            float q = tokenEnd < end ? parseQuality(acceptEncoding, tokenEnd + 1, end) : 1f;
+
+            if (regionEquals(acceptEncoding, tokenStart, tokenStop, "*")) {
+                wildcard = q;
+            } else if (regionEquals(acceptEncoding, tokenStart, tokenStop, "x-gzip")) {
+                quality[GZIP.ordinal()] = q;
+                listed[GZIP.ordinal()] = true;
+            } else {
+                for (ContentEncoding value : values) {
+                    if (regionEquals(acceptEncoding, tokenStart, tokenStop, value.token)) {
+                        quality[value.ordinal()] = q;
+                        listed[value.ordinal()] = true;
+                    }
+                }
+            }
+
+            position = end + 1;
+        }
+
+        ContentEncoding best = null;
+        float bestQuality = 0;
+
+        for (ContentEncoding value : values) {
+            if (!available[value.ordinal()]) {
+                continue;
+            }
+
+            float q = quality[value.ordinal()];
+
+            if (!listed[value.ordinal()]) {
+                if (wildcard >= 0) {
+                    q = wildcard;
+                } else if (value == IDENTITY) {
+                    // Identity is always acceptable unless excluded, but least preferred
+                    q = Float.MIN_VALUE;
+                }
+            }
+
+            if (q > bestQuality) {
+                best = value;
+                bestQuality = q;
+            }
+        }
+
+        return best;
+    }
+
+    private static float parseQuality(String header, int start, int end) {
+        int position = skipWhitespace(header, start, end);
+
+        if (end - position < 2 || Character.toLowerCase(header.charAt(position)) != 'q'
+                || header.charAt(position + 1) != '=') {
+            return 1f;
+        }
+
+        try {
+            return Math.max(0f, Math.min(1f,
+                    Float.parseFloat(header.substring(position + 2, trimWhitespace(header, position + 2, end)))));
+        } catch (NumberFormatException e) {
+            return 0f;
+        }
+    }
+
+    private static int skipWhitespace(String s, int start, int end) {
+        while (start < end && (s.charAt(start) == ' ' || s.charAt(start) == '\t')) {
+            start++;
+        }
+
+        return start;
+    }
+
+    private static int trimWhitespace(String s, int start, int end) {
+        while (end > start && (s.charAt(end - 1) == ' ' || s.charAt(end - 1) == '\t')) {
+            end--;
+        }
+
+        return end;
+    }
+
+    private static boolean regionEquals(String s, int start, int end, String token) {
+        return end - start == token.length() && s.regionMatches(true, start, token, 0, token.length());
+    }
+
+    /**
+     * A gzip stream that uses the best compression level since content is only encoded once.
+     */
+    private static class BestGZIPOutputStream extends GZIPOutputStream {
+
+        private BestGZIPOutputStream(OutputStream out) throws IOException {
+            super(out);
+            def.setLevel(Deflater.BEST_COMPRESSION);
+        }
+
+    }
+
+}
@@ -1,29 +1,44 @@
 package com.pploder.ehc;
 
+import java.time.Duration;
 import java.util.Objects;
 
 /**
  * An enum representing the default resources.
  * The resources listed are exclusively for the favicon of the interface in various browsers.
+ * Icons never change and are cached for {@link #ICON_MAX_AGE}, the browser configuration files
+ * for {@link #CONFIG_MAX_AGE}.
  */
 public enum DefaultResource implements Resource {
-    ANDROID_CHROME_192x192("android-chrome-192x192.png", "image/png"),
-    ANDROID_CHROME_256x256("android-chrome-256x256.png", "image/png"),
-    APPLE_TOUCH_ICON("apple-touch-icon.png", "image/png"),
-    BROWSERCONFIG("browserconfig.xml", "application/xml"),
-    FAVICON("favicon.ico", "image/x-icon"),
-    FAVICON_16x16("favicon-16x16.png", "image/png"),
-    FAVICON_32x32("favicon-32x32.png", "image/png"),
-    MANIFEST("manifest.json", "application/json"),
-    MSTILE_150x150("mstile-150x150.png", "image/png"),
-    SAFARI_PINNED_TAB("safari-pinned-tab.svg", "image/svg+xml");
+    ANDROID_CHROME_192x192("android-chrome-192x192.png", "image/png", Constants.ICON),
+    ANDROID_CHROME_256x256("android-chrome-256x256.png", "image/png", Constants.ICON),
+    APPLE_TOUCH_ICON("apple-touch-icon.png", "image/png", Constants.ICON),
+    BROWSERCONFIG("browserconfig.xml", "application/xml", Constants.CONFIG),
+    FAVICON("favicon.ico", "image/x-icon", Constants.ICON),
+    FAVICON_16x16("favicon-16x16.png", "image/png", Constants.ICON),
+    FAVICON_32x32("favicon-32x32.png", "image/png", Constants.ICON),
+    MANIFEST("manifest.json", "application/json", Constants.CONFIG),
+    MSTILE_150x150("mstile-150x150.png", "image/png", Constants.ICON),
+    SAFARI_PINNED_TAB("safari-pinned-tab.svg", "image/svg+xml", Constants.ICON);
+
+    /**
+     * The duration for which icons are cached.
+     */
+    public static final Duration ICON_MAX_AGE = Constants.ICON_MAX_AGE;
+
+    /**
+     * The duration for which the browser configuration files are cached.
+     */
+    public static final Duration CONFIG_MAX_AGE = Constants.CONFIG_MAX_AGE;
 
     private final String path;
     private final String mime;
+    private final String cacheControl;
 
-    DefaultResource(String path, String mime) {
+    DefaultResource(String path, String mime, String cacheControl) {
         this.path = Objects.requireNonNull(path);
         this.mime = Objects.requireNonNull(mime);
+        this.cacheControl = Objects.requireNonNull(cacheControl);
     }
 
     @Override
@@ -41,4 +56,22 @@ public enum DefaultResource implements Resource {
         return mime;
     }
 
+    @Override
+    public String getCacheControl() {
+        return cacheControl;
+    }
+
+    /**
+     * Enum constants cannot refer to static fields of their own enum, hence they are declared here.
+     */
+    private static final class Constants {
+
+        private static final Duration ICON_MAX_AGE = Duration.ofDays(365);
+        private static final Duration CONFIG_MAX_AGE = Duration.ofDays(1);
+
+        private static final String ICON = CacheControl.immutable(ICON_MAX_AGE);
+        private static final String CONFIG = CacheControl.maxAge(CONFIG_MAX_AGE);
+
+    }
+
 }
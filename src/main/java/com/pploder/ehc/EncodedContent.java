@@ -0,0 +1,125 @@
+package com.pploder.ehc;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Binary content together with its precompressed forms.
+ * The content is encoded with every {@link ContentEncoding} once when the instance is created. Encoded forms
+ * that are not smaller than the identity form are discarded.
+ * <p>
+ * Every form has a strong entity tag that is derived from a hash of the identity form, suffixed with the
+ * coding for compressed forms.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+public class EncodedContent {
+
+    private final byte[][] encoded = new byte[ContentEncoding.values().length][];
+    private final boolean[] available = new boolean[encoded.length];
+    private final String[] entityTags = new String[encoded.length];
+
+    /**
+     * Creates a new instance and compresses the given data.
+     *
+     * @param identity The uncompressed data.
+     */
+    public EncodedContent(byte[] identity) {
+        Objects.requireNonNull(identity);
+
+        for (ContentEncoding encoding : ContentEncoding.values()) {
+            byte[] data = encoding.encode(identity);
+
+            if (encoding == ContentEncoding.IDENTITY || data.length < identity.length) {
+                encoded[encoding.ordinal()] = data;
+                available[encoding.ordinal()] = true;
+            }
+        }
+
+        String hash = hash(identity);
+
+        for (ContentEncoding encoding : ContentEncoding.values()) {
+            if (!available[encoding.ordinal()]) {
+                continue;
+            }
+
+            entityTags[encoding.ordinal()] = encoding == ContentEncoding.IDENTITY
+                    ? '"' + hash + '"'
+                    : '"' + hash + '-' + encoding.getToken() + '"';
+        }
+    }
+
+    /**
+     * @return The uncompressed data.
+     */
+    public byte[] getIdentity() {
+        return encoded[ContentEncoding.IDENTITY.ordinal()];
+    }
+
+    /**
+     * @param encoding The encoding.
+     * @return The data in the given encoding or {@code null} if it was not kept.
+     */
+    public byte[] get(ContentEncoding encoding) {
+        return encoded[encoding.ordinal()];
+    }
+
+    /**
+     * @param encoding The encoding.
+     * @return The quoted strong entity tag of the form in the given encoding or {@code null} if it was not kept.
+     */
+    public String getEntityTag(ContentEncoding encoding) {
+        return entityTags[encoding.ordinal()];
+    }
+
+    /**
+     * Checks the value of an {@code If-None-Match} header against the entity tags of all forms.
+     * The weak comparison is used as required for {@code If-None-Match}.
+     *
+     * @param ifNoneMatch The value of the header.
+     * @return Whether any of the listed tags matches (or the header is {@code *}).
+     */
+    public boolean matches(String ifNoneMatch) {
+        return EntityTags.matches(ifNoneMatch, entityTags);
+    }
+
+    /**
+     * @return Whether there is any form besides the identity form.
+     */
+    public boolean isNegotiable() {
+        for (ContentEncoding encoding : ContentEncoding.values()) {
+            if (encoding != ContentEncoding.IDENTITY && available[encoding.ordinal()]) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Chooses the best available form for the given {@code Accept-Encoding} header.
+     *
+     * @param acceptEncoding The value of the header or {@code null} if absent.
+     * @return The chosen encoding or {@code null} if no available form is acceptable.
+     */
+    public ContentEncoding negotiate(String acceptEncoding) {
+        return ContentEncoding.negotiate(acceptEncoding, available);
+    }
+
+    private static String hash(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 12));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
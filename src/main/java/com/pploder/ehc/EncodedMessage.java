@@ -0,0 +1,99 @@
+package com.pploder.ehc;
+
+import java.util.Objects;
+
+/**
+ * A message content together with its wire encodings (see {@link WireFormat}).
+ * Each encoding is computed when it is first needed and then shared, so a message that is sent to many
+ * connections (see {@link Console#broadcast(MessageContent)}) is serialized only once.
+ * Every content memoizes its own instance (see {@link MessageContent#getEncoded()}).
+ * <p>
+ * Instances are thread-safe. Concurrent first uses may encode the content more than once but always observe
+ * a complete encoding.
+ * <p>
+ * Messages that were relayed in their binary encoding (see {@link ClusteredConsole}) keep that encoding and only
+ * decode their content when it is needed.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+public class EncodedMessage {
+
+    private volatile MessageContent content;
+
+    private volatile String json;
+    private volatile byte[] binary;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param content The message content.
+     */
+    public EncodedMessage(MessageContent content) {
+        this.content = Objects.requireNonNull(content);
+    }
+
+    /**
+     * Creates a new instance from the binary encoding of a message (see {@link BinaryMessageFormat}).
+     * The content is decoded when it is first needed.
+     *
+     * @param binary The encoded message. The array is shared and must not be modified.
+     */
+    EncodedMessage(byte[] binary) {
+        this.binary = Objects.requireNonNull(binary);
+    }
+
+    /**
+     * Computes every encoding that has not been computed yet.
+     */
+    void encodeAll() {
+        getJSON();
+        getBinary();
+    }
+
+    /**
+     * @return The message content.
+     */
+    public MessageContent getContent() {
+        MessageContent content = this.content;
+
+        if (content == null) {
+            content = BinaryMessageFormat.decode(binary);
+            this.content = content;
+        }
+
+        return content;
+    }
+
+    /**
+     * @return The content encoded as a JSON string (see {@link JsonMessageFormat}).
+     */
+    public String getJSON() {
+        String json = this.json;
+
+        if (json == null) {
+            json = JsonMessageFormat.encode(getContent());
+            this.json = json;
+        }
+
+        return json;
+    }
+
+    /**
+     * The returned array is shared and must not be modified.
+     *
+     * @return The content in the binary format (see {@link BinaryMessageFormat}).
+     */
+    public byte[] getBinary() {
+        byte[] binary = this.binary;
+
+        if (binary == null) {
+            binary = BinaryMessageFormat.encode(content);
+            this.binary = binary;
+        }
+
+        return binary;
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.pploder.ehc;
+
+/**
+ * Helpers for entity tags as used in the {@code ETag} and {@code If-None-Match} headers.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+final class EntityTags {
+
+    private EntityTags() {
+    }
+
+    /**
+     * Checks the value of an {@code If-None-Match} header against the given entity tags.
+     * The weak comparison is used as required for {@code If-None-Match}.
+     *
+     * @param ifNoneMatch The value of the header.
+     * @param entityTags  The quoted entity tags of the current representations. {@code null} entries are ignored.
+     * @return Whether any of the listed tags matches (or the header is {@code *}).
+     */
+    static boolean matches(String ifNoneMatch, String... entityTags) {
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+
+            if (tag.equals("*")) {
+                return true;
+            }
+
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+
+            for (String entityTag : entityTags) {
+                if (tag.equals(entityTag)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+}
@@ -0,0 +1,161 @@
+package com.pploder.ehc;
+
+import org.webbitserver.WebSocketConnection;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Handles the frames of a {@link WireFormat}.
+ *
+ * @param <F> The type of the frames.
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+abstract class FrameCodec<F> {
+
+    /**
+     * Text frames of {@link WireFormat#JSON}.
+     */
+    static final FrameCodec<String> JSON = new FrameCodec<String>() {
+
+        @Override
+        String encode(EncodedMessage message) {
+            return message.getJSON();
+        }
+
+        @Override
+        int sizeOf(String frame) {
+            return frame.length();
+        }
+
+        @Override
+        String join(List<String> frames, int size) {
+            StringBuilder builder = new StringBuilder(size + frames.size() + 1).append('[');
+
+            for (int i = 0; i < frames.size(); i++) {
+                if (i > 0) {
+                    builder.append(',');
+                }
+
+                builder.append(frames.get(i));
+            }
+
+            return builder.append(']').toString();
+        }
+
+        @Override
+        byte[] toBytes(String frame) {
+            return frame.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        void write(WebSocketConnection connection, String frame) {
+            connection.send(frame);
+        }
+
+        @Override
+        void write(FrameFragmenter fragmenter, String frame) {
+            fragmenter.send(frame);
+        }
+
+    };
+
+    /**
+     * Binary frames of {@link WireFormat#BINARY}.
+     */
+    static final FrameCodec<byte[]> BINARY = new FrameCodec<byte[]>() {
+
+        @Override
+        byte[] encode(EncodedMessage message) {
+            return message.getBinary();
+        }
+
+        @Override
+        int sizeOf(byte[] frame) {
+            return frame.length;
+        }
+
+        @Override
+        byte[] join(List<byte[]> frames, int size) {
+            byte[] joined = new byte[size];
+            int offset = 0;
+
+            for (byte[] frame : frames) {
+                System.arraycopy(frame, 0, joined, offset, frame.length);
+                offset += frame.length;
+            }
+
+            return joined;
+        }
+
+        @Override
+        byte[] toBytes(byte[] frame) {
+            return frame;
+        }
+
+        @Override
+        void write(WebSocketConnection connection, byte[] frame) {
+            connection.send(frame);
+        }
+
+        @Override
+        void write(FrameFragmenter fragmenter, byte[] frame) {
+            fragmenter.send(frame);
+        }
+
+    };
+
+    /**
+     * @param format The wire format.
+     * @return The codec of the format.
+     */
+    static FrameCodec<?> of(WireFormat format) {
+        return format == WireFormat.BINARY ? BINARY : JSON;
+    }
+
+    /**
+     * @param message The message.
+     * @return The frame of a single message. The frame is shared and must not be modified.
+     */
+    abstract F encode(EncodedMessage message);
+
+    /**
+     * @param frame The frame.
+     * @return The size of the frame in characters or bytes.
+     */
+    abstract int sizeOf(F frame);
+
+    /**
+     * Joins several frames into a single one.
+     *
+     * @param frames The frames (at least two).
+     * @param size   The total size of the frames.
+     * @return The joined frame.
+     */
+    abstract F join(List<F> frames, int size);
+
+    /**
+     * @param frame The frame.
+     * @return The binary representation of the frame. May be the frame itself and must not be modified.
+     */
+    abstract byte[] toBytes(F frame);
+
+    /**
+     * Sends a frame.
+     *
+     * @param connection The connection.
+     * @param frame      The frame.
+     */
+    abstract void write(WebSocketConnection connection, F frame);
+
+    /**
+     * Sends a frame in bounded fragments.
+     *
+     * @param fragmenter The fragmenter of the connection.
+     * @param frame      The frame.
+     */
+    abstract void write(FrameFragmenter fragmenter, F frame);
+
+}
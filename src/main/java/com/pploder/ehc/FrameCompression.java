@@ -0,0 +1,118 @@
+package com.pploder.ehc;
+
+import java.util.zip.Deflater;
+
+/**
+ * The options for compressing the outgoing frames of websocket connections.
+ * <p>
+ * A client requests compression when it opens the websocket by adding the {@link #QUERY_PARAMETER} with the
+ * value {@link #DEFLATE} to the websocket URL (for example {@code ws://localhost:8080/ws?compression=deflate}).
+ * For such connections every frame is a binary frame that starts with a header byte: {@code 0} if the rest of the
+ * frame is the uncompressed payload and {@code 1} if it is followed by the uncompressed length of the payload
+ * (as an unsigned LEB128 varint) and the compressed payload. The payload is a frame of the {@link WireFormat} of the
+ * connection (UTF-8 encoded for {@link WireFormat#JSON}). Compressed payloads are raw deflate data that has been
+ * flushed with a sync flush, without the final four bytes {@code 00 00 ff ff} (like the permessage-deflate websocket
+ * extension). With context takeover the payloads form a single deflate stream.
+ * <p>
+ * Instances are immutable.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+public class FrameCompression {
+
+    /**
+     * The name of the query parameter that requests compression.
+     */
+    public static final String QUERY_PARAMETER = "compression";
+
+    /**
+     * The value of the query parameter that requests deflate compression.
+     */
+    public static final String DEFLATE = "deflate";
+
+    /**
+     * The default compression level.
+     */
+    public static final int DEFAULT_LEVEL = Deflater.DEFAULT_COMPRESSION;
+
+    /**
+     * The default size in bytes below which payloads are sent uncompressed.
+     */
+    public static final int DEFAULT_THRESHOLD = 256;
+
+    private final int level;
+    private final boolean contextTakeover;
+    private final int threshold;
+
+    /**
+     * Creates a new instance with the default level and threshold and context takeover.
+     * The default level is {@link #DEFAULT_LEVEL} and the default threshold is {@link #DEFAULT_THRESHOLD}.
+     */
+    public FrameCompression() {
+        this(DEFAULT_LEVEL, true, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Creates a new instance.
+     * Context takeover compresses considerably better for repetitive output but keeps a compression window
+     * (about 300 KiB) for every connection.
+     *
+     * @param level           The compression level ({@code 0} to {@code 9} or {@code -1} for the default level).
+     * @param contextTakeover Whether a payload may refer to data of previous payloads.
+     * @param threshold       The size in bytes below which payloads are sent uncompressed.
+     * @throws IllegalArgumentException If the level or threshold is invalid.
+     */
+    public FrameCompression(int level, boolean contextTakeover, int threshold) throws IllegalArgumentException {
+        if (level < -1 || level > 9) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+
+        if (threshold < 0) {
+            throw new IllegalArgumentException("The threshold must not be negative");
+        }
+
+        this.level = level;
+        this.contextTakeover = contextTakeover;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Determines whether compression was requested in the handshake request.
+     *
+     * @param uri The URI of the handshake request.
+     * @return Whether compression was requested.
+     */
+    static boolean isRequested(String uri) {
+        return DEFLATE.equals(WireFormat.queryParameter(uri, QUERY_PARAMETER));
+    }
+
+    /**
+     * @return The compression level.
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * @return Whether a payload may refer to data of previous payloads.
+     */
+    public boolean isContextTakeover() {
+        return contextTakeover;
+    }
+
+    /**
+     * @return The size in bytes below which payloads are sent uncompressed.
+     */
+    public int getThreshold() {
+        return threshold;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FrameCompression{level=%d, contextTakeover=%s, threshold=%d}",
+                level, contextTakeover, threshold);
+    }
+
+}
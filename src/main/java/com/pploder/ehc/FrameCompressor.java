@@ -0,0 +1,156 @@
+package com.pploder.ehc;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+
+/**
+ * Writes the frames of a connection that requested compression (see {@link FrameCompression}).
+ * Frames are compressed and written atomically so that the deflate stream is received in order.
+ * <p>
+ * Instances are thread-safe.
+ *
+ * @param <F> The type of the frames.
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+class FrameCompressor<F> {
+
+    static final int HEADER_RAW = 0;
+    static final int HEADER_DEFLATED = 1;
+
+    private static final int SYNC_FLUSH_TAIL = 4;
+
+    private final FrameCodec<F> codec;
+    private final Consumer<byte[]> sink;
+    private final Deflater deflater;
+    private final boolean contextTakeover;
+    private final int threshold;
+
+    private byte[] buffer = new byte[1024];
+
+    private long uncompressedBytes;
+    private long compressedBytes;
+    private boolean closed;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param codec       The codec of the frames.
+     * @param sink        Writes a binary frame to the client.
+     * @param compression The compression options or {@code null} to send every frame uncompressed.
+     */
+    public FrameCompressor(FrameCodec<F> codec, Consumer<byte[]> sink, FrameCompression compression) {
+        this.codec = Objects.requireNonNull(codec);
+        this.sink = Objects.requireNonNull(sink);
+
+        if (compression == null) {
+            deflater = null;
+            contextTakeover = false;
+            threshold = Integer.MAX_VALUE;
+        } else {
+            deflater = new Deflater(compression.getLevel(), true);
+            contextTakeover = compression.isContextTakeover();
+            threshold = compression.getThreshold();
+        }
+    }
+
+    /**
+     * Compresses and writes a frame.
+     * Frames written after {@link #close()} are discarded.
+     *
+     * @param frame The frame.
+     */
+    public synchronized void write(F frame) {
+        if (closed) {
+            return;
+        }
+
+        byte[] payload = codec.toBytes(frame);
+        byte[] compressed = payload.length < threshold ? raw(payload) : deflate(payload);
+
+        uncompressedBytes += payload.length;
+        compressedBytes += compressed.length;
+
+        sink.accept(compressed);
+    }
+
+    /**
+     * Releases the compression window.
+     */
+    public synchronized void close() {
+        closed = true;
+
+        if (deflater != null) {
+            deflater.end();
+        }
+    }
+
+    /**
+     * @return The total size of the payloads that were written.
+     */
+    public synchronized long getUncompressedByteCount() {
+        return uncompressedBytes;
+    }
+
+    /**
+     * @return The total size of the frames that were written.
+     */
+    public synchronized long getCompressedByteCount() {
+        return compressedBytes;
+    }
+
+    private static byte[] raw(byte[] payload) {
+        byte[] frame = new byte[payload.length + 1];
+        frame[0] = HEADER_RAW;
+        System.arraycopy(payload, 0, frame, 1, payload.length);
+        return frame;
+    }
+
+    private byte[] deflate(byte[] payload) {
+        int offset = 1;
+        for (int length = payload.length; (length & ~0x7F) != 0; length >>>= 7) {
+            offset++;
+        }
+
+        offset++;
+
+        deflater.setInput(payload);
+
+        int size = offset;
+        int count;
+
+        do {
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+
+            count = deflater.deflate(buffer, size, buffer.length - size, Deflater.SYNC_FLUSH);
+            size += count;
+        } while (size == buffer.length);
+
+        if (!contextTakeover) {
+            deflater.reset();
+        }
+
+        // The sync flush always ends with an empty stored block which the client appends again
+        size -= SYNC_FLUSH_TAIL;
+
+        buffer[0] = HEADER_DEFLATED;
+
+        int position = 1;
+        int length = payload.length;
+
+        while ((length & ~0x7F) != 0) {
+            buffer[position++] = (byte) (length & 0x7F | 0x80);
+            length >>>= 7;
+        }
+
+        buffer[position] = (byte) length;
+
+        return Arrays.copyOf(buffer, size);
+    }
+
+}
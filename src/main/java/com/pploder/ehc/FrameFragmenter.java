@@ -0,0 +1,111 @@
+package com.pploder.ehc;
+
+import org.webbitserver.WebSocketConnection;
+
+import java.util.Objects;
+
+/**
+ * Writes the frames of a connection in bounded fragments.
+ * A frame that exceeds the maximum frame size is announced by a control frame, a JSON object with the amount of
+ * fragments: {@code {"fragments":<count>}}. The fragments follow as frames of the same type (text or binary) and
+ * are concatenated by the client before it processes them as a single frame. Smaller frames are written unchanged.
+ * <p>
+ * Fragmentation happens after coalescing and compression, so the client counts a fragmented frame once
+ * (see {@link Session}) and inflates it only after it has been reassembled. Text frames are never split within a
+ * surrogate pair.
+ * <p>
+ * Instances are thread-safe. The fragments of a frame are never interleaved with other frames.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+class FrameFragmenter {
+
+    private final WebSocketConnection connection;
+    private final int maxFrameSize;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param connection   The connection.
+     * @param maxFrameSize The maximum size of a frame (characters for text frames, bytes for binary frames).
+     * @throws IllegalArgumentException If the maximum frame size is not positive.
+     */
+    public FrameFragmenter(WebSocketConnection connection, int maxFrameSize) throws IllegalArgumentException {
+        if (maxFrameSize <= 0) {
+            throw new IllegalArgumentException("The maximum frame size must be positive");
+        }
+
+        this.connection = Objects.requireNonNull(connection);
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    /**
+     * Writes a text frame.
+     *
+     * @param frame The frame.
+     */
+    public synchronized void send(String frame) {
+        if (frame.length() <= maxFrameSize) {
+            connection.send(frame);
+            return;
+        }
+
+        int count = 0;
+        for (int start = 0; start < frame.length(); start = end(frame, start)) {
+            count++;
+        }
+
+        connection.send(header(count));
+
+        for (int start = 0, end; start < frame.length(); start = end) {
+            end = end(frame, start);
+            connection.send(frame.substring(start, end));
+        }
+    }
+
+    /**
+     * Writes a binary frame.
+     *
+     * @param frame The frame.
+     */
+    public synchronized void send(byte[] frame) {
+        if (frame.length <= maxFrameSize) {
+            connection.send(frame);
+            return;
+        }
+
+        connection.send(header((frame.length + maxFrameSize - 1) / maxFrameSize));
+
+        for (int offset = 0; offset < frame.length; offset += maxFrameSize) {
+            connection.send(frame, offset, Math.min(maxFrameSize, frame.length - offset));
+        }
+    }
+
+    /**
+     * @return The maximum size of a frame.
+     */
+    public int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
+    /**
+     * @return The end of the fragment that starts at the given index.
+     */
+    private int end(String frame, int start) {
+        int end = Math.min(start + maxFrameSize, frame.length());
+
+        if (end < frame.length() && Character.isHighSurrogate(frame.charAt(end - 1))) {
+            // Keep the surrogate pair together; a fragment of a single character holds the whole pair
+            end += end - 1 == start ? 1 : -1;
+        }
+
+        return end;
+    }
+
+    private static String header(int count) {
+        return "{\"fragments\":" + count + "}";
+    }
+
+}
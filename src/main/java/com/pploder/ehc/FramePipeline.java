@@ -0,0 +1,204 @@
+package com.pploder.ehc;
+
+import org.webbitserver.WebSocketConnection;
+
+import java.util.Objects;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Carries the outgoing messages of a websocket connection to the client.
+ * Messages are encoded in the wire format of the connection, optionally coalesced (see {@link MessageCoalescer}),
+ * optionally limited (see {@link OutboundQueue}), if the client requested it, compressed
+ * (see {@link FrameCompressor}) and optionally split into bounded fragments (see {@link FrameFragmenter}) before
+ * they are written. Resumable sessions route the frames through the
+ * {@link Session} instead so that they are recorded.
+ * <p>
+ * Instances are thread-safe.
+ *
+ * @param <F> The type of the frames.
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+class FramePipeline<F> {
+
+    private final FrameCodec<F> codec;
+    private final WebSocketConnection connection;
+    private final MessageCoalescer<F> coalescer;
+    private final OutboundQueue<F> queue;
+    private final FrameCompressor<F> compressor;
+    private final FrameFragmenter fragmenter;
+    private final Consumer<F> transmitter;
+
+    /**
+     * Creates a new instance.
+     * Must be invoked on the thread that handles the events of the connection.
+     *
+     * @param codec      The codec of the wire format.
+     * @param connection The connection.
+     * @param options    The options.
+     * @param compressed Whether the client requested compression.
+     * @param transmitter Receives the frames that are ready to be written instead of this pipeline (see
+     *                    {@link #resend(Object)}) or {@code null}.
+     */
+    public FramePipeline(FrameCodec<F> codec, WebSocketConnection connection, OutboundOptions options,
+                         boolean compressed, Consumer<F> transmitter) {
+        this.codec = Objects.requireNonNull(codec);
+        this.connection = Objects.requireNonNull(connection);
+        this.transmitter = transmitter;
+
+        fragmenter = options.getMaxFrameSize() == 0 ? null : new FrameFragmenter(connection, options.getMaxFrameSize());
+        Consumer<byte[]> sink = fragmenter == null ? connection::send : fragmenter::send;
+
+        // Clients that request compression expect the compression header even if the server does not compress
+        compressor = compressed ? new FrameCompressor<>(codec, sink, options.getCompression()) : null;
+
+        Thread ioThread = Thread.currentThread();
+        BooleanSupplier mayBlock = () -> Thread.currentThread() != ioThread;
+
+        // Acknowledgements are received on the I/O thread, so it must never wait for them, neither in the queue
+        // nor for a thread that the queue blocks while it flushes coalesced messages
+        queue = options.getLimit() == null ? null : new OutboundQueue<>(codec, this::transmit,
+                connection::ping, connection::close, mayBlock, options.getLimit());
+        coalescer = options.getScheduler() == null ? null : new MessageCoalescer<>(codec, this::write,
+                options.getScheduler(), connection, options.getCoalescingWindow(), options.getCoalescingThreshold(),
+                mayBlock, queue == null ? size -> true : queue::accepts);
+    }
+
+    /**
+     * Sends a message.
+     *
+     * @param message The message.
+     */
+    public void send(EncodedMessage message) {
+        F frame = codec.encode(message);
+
+        if (coalescer == null) {
+            write(frame);
+        } else {
+            coalescer.append(frame);
+        }
+    }
+
+    /**
+     * Writes a control frame immediately (see {@link Session}).
+     * Control frames are JSON objects and are always written as text frames, so the client tells them apart from
+     * the data frames of every wire format: data frames are JSON arrays, binary frames or, if the client requested
+     * compression, compressed binary frames. Hence control frames are neither coalesced, limited nor compressed,
+     * but they are fragmented like any other frame.
+     *
+     * @param frame The control frame.
+     */
+    public void sendControl(String frame) {
+        if (fragmenter == null) {
+            connection.send(frame);
+        } else {
+            fragmenter.send(frame);
+        }
+    }
+
+    /**
+     * Sends all coalesced messages immediately.
+     */
+    public void flush() {
+        if (coalescer != null) {
+            coalescer.flush();
+        }
+    }
+
+    /**
+     * Processes a pong of the client.
+     *
+     * @param payload The payload of the pong.
+     */
+    public void pong(byte[] payload) {
+        if (queue != null) {
+            queue.acknowledge(payload);
+        }
+    }
+
+    /**
+     * Releases the held back messages after the connection has been closed.
+     */
+    public void closed() {
+        if (queue != null) {
+            queue.close();
+        }
+
+        if (compressor != null) {
+            compressor.close();
+        }
+    }
+
+    /**
+     * @return The amount of frames that were written to the client.
+     */
+    public long getSentMessageCount() {
+        return queue == null ? 0 : queue.getSentMessageCount();
+    }
+
+    /**
+     * @return The amount of frames that were written but not acknowledged or held back.
+     */
+    public long getPendingMessageCount() {
+        return queue == null ? 0 : queue.getPendingMessageCount();
+    }
+
+    /**
+     * @return The amount of frames that were dropped.
+     */
+    public long getDroppedMessageCount() {
+        return queue == null ? 0 : queue.getDroppedMessageCount();
+    }
+
+    /**
+     * @return The total size of the payloads that were written to a client that requested compression.
+     */
+    public long getUncompressedByteCount() {
+        return compressor == null ? 0 : compressor.getUncompressedByteCount();
+    }
+
+    /**
+     * @return The total size of the frames that were written to a client that requested compression.
+     */
+    public long getCompressedByteCount() {
+        return compressor == null ? 0 : compressor.getCompressedByteCount();
+    }
+
+    private void write(F frame) {
+        if (queue == null) {
+            transmit(frame);
+        } else {
+            queue.offer(frame);
+        }
+    }
+
+    /**
+     * Writes a frame immediately, bypassing coalescing and limits.
+     *
+     * @param frame The frame.
+     */
+    public void resend(F frame) {
+        writeFrame(frame);
+    }
+
+    private void transmit(F frame) {
+        if (transmitter == null) {
+            writeFrame(frame);
+        } else {
+            transmitter.accept(frame);
+        }
+    }
+
+    private void writeFrame(F frame) {
+        if (compressor != null) {
+            compressor.write(frame);
+        } else if (fragmenter != null) {
+            codec.write(fragmenter, frame);
+        } else {
+            codec.write(connection, frame);
+        }
+    }
+
+}
@@ -2,22 +2,37 @@ package com.pploder.ehc;
 
 import com.pploder.events.Event;
 import lombok.extern.slf4j.XSlf4j;
-import org.webbitserver.WebServer;
-import org.webbitserver.WebServers;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * This class provides network I/O functionality via HTTP and websockets.
  * <p>
  * Instances expose a single interface site (at {@code /}), a websocket (configurable)
  * and an arbitrary amount of general-purpose resources (such as icons).
+ * Besides the {@link DefaultResource}s further resources and whole directories can be served
+ * (see {@link #addResources(Resource...)} and {@link #addDirectory(String, Path)}) as well as custom routes
+ * (see {@link #addRoute(String, String, RouteHandler)}).
  * <p>
  * The {@link #init(Console)} method must be called before {@link #start()}. Additionally the module should
  * be closed when it is longer being used. The behaviour that occurs when the state-controlling methods
  * are not invoked in order is undefined. After invoking {@link #close()} an instance may be recycled by
  * invoking {@link #init(Console)} and {@link #start()} again.
+ * <p>
+ * Several consoles can share a single port by mounting their modules on a common {@link ConsoleServer}
+ * (see {@link #HttpNetModule(ConsoleServer, String)}). Each of them serves its interface, websocket and routes
+ * below its own path.
  *
  * @author Philipp Ploder
  * @version 2.0.0
@@ -44,17 +59,68 @@ public class HttpNetModule implements NetModule {
      */
     public static final String DEFAULT_HOST = "localhost";
 
+    /**
+     * The default time for which outgoing messages are coalesced (see {@link #enableCoalescing()}).
+     */
+    public static final Duration DEFAULT_COALESCING_WINDOW = Duration.ofMillis(10);
+
+    /**
+     * The default size after which coalesced messages are sent (see {@link #enableCoalescing()}).
+     * The size is measured in characters for {@link WireFormat#JSON} and in bytes for {@link WireFormat#BINARY}.
+     */
+    public static final int DEFAULT_COALESCING_THRESHOLD = 32 * 1024;
+
+    /**
+     * The default interval of heartbeat pings (see {@link #enableHeartbeat()}).
+     */
+    public static final Duration DEFAULT_HEARTBEAT_INTERVAL = Duration.ofSeconds(30);
+
+    /**
+     * The default time after which silent connections are closed (see {@link #enableHeartbeat()}).
+     */
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofSeconds(90);
+
+    /**
+     * The default size after which outgoing frames are fragmented (see {@link #enableFragmentation()}).
+     */
+    public static final int DEFAULT_MAX_FRAME_SIZE = 16 * 1024;
+
+    /**
+     * The default maximum size of incoming messages in bytes (see {@link #limitInboundMessages()}).
+     */
+    public static final int DEFAULT_MAX_INBOUND_MESSAGE_SIZE = 16 * 1024;
+
+    /**
+     * The default maximum size of a single response of a memory-mapped file (see {@link #limitMappedResponses(int)}).
+     */
+    public static final int DEFAULT_MAX_MAPPED_RESPONSE_SIZE = 8 * 1024 * 1024;
+
     private Console console;
 
-    private final String host;
-    private final int port;
-    private final String websocketURI;
+    private final ConsoleServer server;
+    private final String prefix;
+    private final String websocketPath;
     private final String httpURL;
     private final String websocketURL;
     private final SiteHttpSupplier httpSupplier;
+    private final ResourceStore resourceStore;
+    private final List<Resource> resources = new ArrayList<>(Arrays.asList(DefaultResource.values()));
+    private final List<StaticDirectory> directories = new ArrayList<>();
+    private final List<Consumer<ConsoleHttpHandler>> routes = new ArrayList<>();
+
+    private Duration coalescingWindow;
+    private int coalescingThreshold;
+    private OutboundLimit outboundLimit;
+    private FrameCompression compression;
+    private Duration heartbeatInterval;
+    private Duration idleTimeout;
+    private SessionResume sessionResume;
+    private int maxFrameSize;
+    private int maxInboundMessageSize;
+    private int maxMappedResponseSize = DEFAULT_MAX_MAPPED_RESPONSE_SIZE;
 
-    private WebServer server;
     private ConsoleWebSocketHandler webSocketHandler;
+    private ScheduledExecutorService scheduler;
 
     /**
      * Creates a new instance with the default host on the default port and the default websocket URI.
@@ -154,12 +220,51 @@ public class HttpNetModule implements NetModule {
      */
     public HttpNetModule(SiteHttpSupplier httpSupplier, String host, int port, String websocketURI)
             throws IOException {
+        this(httpSupplier, new ConsoleServer(host, port), "/", websocketURI);
+    }
+
+    /**
+     * Creates a new instance that is mounted on the given server under the given path and uses the default
+     * websocket URI below that path. The default websocket URI is {@link #DEFAULT_WEBSOCKET_URI}.
+     * The site supplier from {@link SiteHttpSupplier#defaultSite()} will be used.
+     *
+     * @param server The server that is shared with other modules.
+     * @param path   The path under which the console is served. Leading and trailing {@code /} are optional.
+     */
+    public HttpNetModule(ConsoleServer server, String path) {
+        this(SiteHttpSupplier.defaultSite(), server, path);
+    }
+
+    /**
+     * Creates a new instance that is mounted on the given server under the given path and uses the default
+     * websocket URI below that path. The default websocket URI is {@link #DEFAULT_WEBSOCKET_URI}.
+     *
+     * @param httpSupplier The supplier of HTTP responses.
+     * @param server       The server that is shared with other modules.
+     * @param path         The path under which the console is served. Leading and trailing {@code /} are optional.
+     */
+    public HttpNetModule(SiteHttpSupplier httpSupplier, ConsoleServer server, String path) {
+        this(httpSupplier, server, path, DEFAULT_WEBSOCKET_URI);
+    }
+
+    /**
+     * Creates a new instance that is mounted on the given server under the given path and uses the given
+     * websocket URI below that path.
+     *
+     * @param httpSupplier The supplier of HTTP responses.
+     * @param server       The server that is shared with other modules.
+     * @param path         The path under which the console is served. Leading and trailing {@code /} are optional.
+     * @param websocketURI The URI that the websocket will be served over, relative to the path.
+     *                     The leading {@code /} is optional.
+     */
+    public HttpNetModule(SiteHttpSupplier httpSupplier, ConsoleServer server, String path, String websocketURI) {
         this.httpSupplier = Objects.requireNonNull(httpSupplier);
-        this.host = Objects.requireNonNull(host);
-        this.port = port;
-        this.websocketURI = websocketURI.startsWith("/") ? websocketURI : "/" + websocketURI;
-        this.httpURL = String.format("http://%s:%d/", host, port);
-        this.websocketURL = String.format("ws://%s:%d%s", host, port, this.websocketURI);
+        this.server = Objects.requireNonNull(server);
+        this.prefix = ConsoleServer.toPrefix(path);
+        this.websocketPath = prefix + (websocketURI.startsWith("/") ? websocketURI.substring(1) : websocketURI);
+        this.resourceStore = server.getResourceStore();
+        this.httpURL = String.format("http://%s:%d%s", server.getHost(), server.getPort(), prefix);
+        this.websocketURL = String.format("ws://%s:%d%s", server.getHost(), server.getPort(), websocketPath);
     }
 
     /**
@@ -169,6 +274,20 @@ public class HttpNetModule implements NetModule {
         return console;
     }
 
+    /**
+     * @return The server that this module is mounted on.
+     */
+    public ConsoleServer getServer() {
+        return server;
+    }
+
+    /**
+     * @return The path under which the console is served. Starts and ends with {@code /}.
+     */
+    public String getPath() {
+        return prefix;
+    }
+
     /**
      * @return The module's supplier of the interface.
      */
@@ -176,24 +295,317 @@ public class HttpNetModule implements NetModule {
         return httpSupplier;
     }
 
+    /**
+     * Serves additional resources besides the {@link DefaultResource}s.
+     * Must be invoked before {@link #init(Console)}.
+     *
+     * @param resources The resources.
+     */
+    public void addResources(Resource... resources) {
+        Collections.addAll(this.resources, resources);
+    }
+
+    /**
+     * Serves the files of a directory under the given URI prefix.
+     * The files will be revalidated by clients on every use.
+     * Must be invoked before {@link #init(Console)}.
+     *
+     * @param uriPrefix The URI prefix. Leading and trailing {@code /} are optional.
+     * @param directory The directory.
+     * @throws IOException If the directory does not exist.
+     */
+    public void addDirectory(String uriPrefix, Path directory) throws IOException {
+        addDirectory(uriPrefix, directory, CacheControl.NO_CACHE);
+    }
+
+    /**
+     * Serves the files of a directory under the given URI prefix.
+     * Large files are memory-mapped and support range requests (see {@link #limitMappedResponses(int)}).
+     * Must be invoked before {@link #init(Console)}.
+     *
+     * @param uriPrefix    The URI prefix. Leading and trailing {@code /} are optional.
+     * @param directory    The directory.
+     * @param cacheControl The {@code Cache-Control} policy of the files (see {@link CacheControl}).
+     * @throws IOException If the directory does not exist.
+     */
+    public void addDirectory(String uriPrefix, Path directory, String cacheControl) throws IOException {
+        directories.add(new StaticDirectory(uriPrefix, directory, cacheControl, resourceStore));
+    }
+
+    /**
+     * Adds a custom route.
+     * A pattern consists of segments separated by {@code /}. {@code *} and {@code {name}} match any single segment,
+     * a trailing {@code **} matches any remaining path. Literal segments take precedence over wildcard segments,
+     * which take precedence over prefix routes. The query of a request is ignored when matching.
+     * Must be invoked before {@link #init(Console)}.
+     *
+     * @param method  The request method (such as {@code GET}) or {@code *} for any method.
+     * @param pattern The pattern. Must start with {@code /}.
+     * @param handler The handler.
+     */
+    public void addRoute(String method, String pattern, RouteHandler handler) {
+        Objects.requireNonNull(method);
+        Objects.requireNonNull(pattern);
+        Objects.requireNonNull(handler);
+
+        routes.add(httpHandler -> httpHandler.addRoute(method, pattern, handler));
+    }
+
+    /**
+     * Coalesces the outgoing messages of every connection with the default window and threshold.
+     * The default window is {@link #DEFAULT_COALESCING_WINDOW} and the default threshold is
+     * {@link #DEFAULT_COALESCING_THRESHOLD}.
+     * Must be invoked before {@link #init(Console)}.
+     *
+     * @see #enableCoalescing(Duration, int)
+     */
+    public void enableCoalescing() {
+        enableCoalescing(DEFAULT_COALESCING_WINDOW, DEFAULT_COALESCING_THRESHOLD);
+    }
+
+    /**
+     * Coalesces the outgoing messages of every connection.
+     * Instead of sending a frame per message, messages are buffered and sent together in a single frame when the
+     * window after the first buffered message elapses, when the buffered messages reach the threshold or when
+     * the connection is flushed (see {@link Connection#flush()}). The bundled interface understands such frames
+     * in every {@link WireFormat}.
+     * Must be invoked before {@link #init(Console)}.
+     *
+     * @param window    The maximum time a message is held back.
+     * @param threshold The encoded size after which buffered messages are sent immediately
+     *                  (characters for {@link WireFormat#JSON}, bytes for {@link WireFormat#BINARY}).
+     */
+    public void enableCoalescing(Duration window, int threshold) {
+        this.coalescingWindow = Objects.requireNonNull(window);
+        this.coalescingThreshold = threshold;
+    }
+
+    /**
+     * Limits the outgoing messages of every connection that the client has not received yet.
+     * Without a limit a client that stops reading makes the server buffer all messages sent to it.
+     * Must be invoked before {@link #init(Console)}.
+     *
+     * @param outboundLimit The limit or {@code null} for no limit.
+     * @see Connection#getPendingMessageCount()
+     * @see Connection#getDroppedMessageCount()
+     */
+    public void setOutboundLimit(OutboundLimit outboundLimit) {
+        this.outboundLimit = outboundLimit;
+    }
+
+    /**
+     * Compresses the outgoing frames of connections whose client requests it with the default options
+     * (see {@link FrameCompression#FrameCompression()}).
+     * Must be invoked before {@link #init(Console)}.
+     */
+    public void enableCompression() {
+        setCompression(new FrameCompression());
+    }
+
+    /**
+     * Compresses the outgoing frames of connections whose client requests it (see {@link FrameCompression}).
+     * The bundled interface requests compression if the browser supports it.
+     * Must be invoked before {@link #init(Console)}.
+     *
+     * @param compression The compression options or {@code null} to not compress frames.
+     * @see Connection#getUncompressedByteCount()
+     * @see Connection#getCompressedByteCount()
+     */
+    public void setCompression(FrameCompression compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Pings every client with the default interval and closes connections that have been silent for
+     * the default idle timeout. The default interval is {@link #DEFAULT_HEARTBEAT_INTERVAL} and the default
+     * idle timeout is {@link #DEFAULT_IDLE_TIMEOUT}.
+     * Must be invoked before {@link #init(Console)}.
+     *
+     * @see #enableHeartbeat(Duration, Duration)
+     */
+    public void enableHeartbeat() {
+        enableHeartbeat(DEFAULT_HEARTBEAT_INTERVAL, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    /**
+     * Pings every client regularly and closes connections whose client has not sent a message or answered a ping
+     * within the idle timeout. This detects connections that were never closed properly (for example when a
+     * client lost its network). Closed connections are unregistered and reported via
+     * {@link #connectionClosedEvent()}. The idle timeout should be a multiple of the interval.
+     * Must be invoked before {@link #init(Console)}.
+     *
+     * @param interval    The interval of the pings.
+     * @param idleTimeout The time after which a silent connection is closed.
+     * @throws IllegalArgumentException If the idle timeout is not longer than the interval.
+     */
+    public void enableHeartbeat(Duration interval, Duration idleTimeout) throws IllegalArgumentException {
+        Objects.requireNonNull(interval);
+        Objects.requireNonNull(idleTimeout);
+
+        if (idleTimeout.compareTo(interval) <= 0) {
+            throw new IllegalArgumentException("The idle timeout must be longer than the interval");
+        }
+
+        this.heartbeatInterval = interval;
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Lets clients resume their session after a connection loss with the default timeout and replay buffer
+     * (see {@link SessionResume#SessionResume()}). The bundled interface reconnects automatically.
+     * Must be invoked before {@link #init(Console)}.
+     *
+     * @see #setSessionResume(SessionResume)
+     */
+    public void enableSessionResume() {
+        setSessionResume(new SessionResume());
+    }
+
+    /**
+     * Lets clients resume their session after a connection loss (see {@link SessionResume}).
+     * A closed connection is only reported via {@link #connectionClosedEvent()} once its session can no longer be
+     * resumed. Must be invoked before {@link #init(Console)}.
+     *
+     * @param sessionResume The options for resuming sessions or {@code null} to close sessions with their
+     *                      connection.
+     */
+    public void setSessionResume(SessionResume sessionResume) {
+        this.sessionResume = sessionResume;
+    }
+
+    /**
+     * Splits outgoing frames that exceed the default maximum frame size into fragments.
+     * The default maximum frame size is {@link #DEFAULT_MAX_FRAME_SIZE}.
+     * Must be invoked before {@link #init(Console)}.
+     *
+     * @see #enableFragmentation(int)
+     */
+    public void enableFragmentation() {
+        enableFragmentation(DEFAULT_MAX_FRAME_SIZE);
+    }
+
+    /**
+     * Splits outgoing frames that exceed the maximum frame size into fragments which the client reassembles.
+     * Without fragmentation a single huge message (or coalesced batch) is sent as a single websocket frame that
+     * the client has to receive as a whole. Frames are fragmented after they have been compressed. The bundled
+     * interface reassembles fragmented frames.
+     * Must be invoked before {@link #init(Console)}.
+     *
+     * @param maxFrameSize The maximum size of a frame (characters for {@link WireFormat#JSON}, bytes for
+     *                     {@link WireFormat#BINARY} and compressed frames).
+     * @throws IllegalArgumentException If the maximum frame size is not positive.
+     */
+    public void enableFragmentation(int maxFrameSize) throws IllegalArgumentException {
+        if (maxFrameSize <= 0) {
+            throw new IllegalArgumentException("The maximum frame size must be positive");
+        }
+
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    /**
+     * Rejects incoming messages that exceed the default maximum size.
+     * The default maximum size is {@link #DEFAULT_MAX_INBOUND_MESSAGE_SIZE}.
+     * Must be invoked before the server is started.
+     *
+     * @see #limitInboundMessages(int)
+     */
+    public void limitInboundMessages() {
+        limitInboundMessages(DEFAULT_MAX_INBOUND_MESSAGE_SIZE);
+    }
+
+    /**
+     * Rejects incoming messages that exceed the maximum size. This sets the maximum content length of the server
+     * (see {@link ConsoleServer#setMaxContentLength(int)}), so oversized frames are rejected by the web server before
+     * they are buffered completely. Note that this is a server-wide setting: on a shared server it applies to all
+     * mounted consoles and to all HTTP request bodies. Messages that still exceed the limit in characters are not
+     * passed on to the console and the client is notified.
+     * Must be invoked before the server is started.
+     *
+     * @param maxSize The maximum size of a message in bytes (UTF-8).
+     * @throws IllegalArgumentException If the maximum size is not positive.
+     * @throws IllegalStateException    If the server is running.
+     */
+    public void limitInboundMessages(int maxSize) throws IllegalArgumentException, IllegalStateException {
+        server.setMaxContentLength(maxSize);
+        this.maxInboundMessageSize = maxSize;
+    }
+
     @Override
     public String toString() {
-        return String.format("%s@%s:%d", getClass().getSimpleName(), getHost(), getPort());
+        return String.format("%s@%s:%d%s", getClass().getSimpleName(), getHost(), getPort(), prefix);
+    }
+
+    /**
+     * Limits the amount of a memory-mapped file (see {@link MappedFileSupplier}) that is served by a single response.
+     * Mapping keeps large files off the heap while they are kept, but the web server copies the served bytes into
+     * the heap buffer of each response, so concurrent downloads of a large file would each hold a copy. Larger
+     * responses are refused; clients can still request byte ranges within the limit. The default maximum size is
+     * {@link #DEFAULT_MAX_MAPPED_RESPONSE_SIZE}.
+     * Must be invoked before {@link #init(Console)}.
+     *
+     * @param maxSize The maximum size of a response in bytes.
+     * @throws IllegalArgumentException If the maximum size is not positive.
+     */
+    public void limitMappedResponses(int maxSize) throws IllegalArgumentException {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("The maximum response size must be positive");
+        }
+
+        this.maxMappedResponseSize = maxSize;
     }
 
     @Override
     public void init(Console console) throws Exception {
         this.console = Objects.requireNonNull(console);
 
-        webSocketHandler = new ConsoleWebSocketHandler(console);
-
-        ConsoleHttpHandler httpHandler = new ConsoleHttpHandler(this, httpSupplier, DefaultResource.values());
-
-        server = WebServers.createWebServer(port)
-                .add(websocketURI, webSocketHandler)
-                .add(httpHandler);
-
-        log.info("Webserver created on {}:{}{}", host, port, websocketURI);
+        if (coalescingWindow != null || heartbeatInterval != null || sessionResume != null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ehc-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        webSocketHandler = new ConsoleWebSocketHandler(console, new OutboundOptions(
+                coalescingWindow == null ? null : scheduler, coalescingWindow, coalescingThreshold,
+                outboundLimit, compression, sessionResume, maxFrameSize));
+
+        if (maxInboundMessageSize > 0) {
+            // The server rejects larger frames; this only guards against a limit that was raised afterwards
+            webSocketHandler.limitInboundMessages(maxInboundMessageSize);
+        }
+
+        if (heartbeatInterval != null || sessionResume != null) {
+            // A single timer wheel for the heartbeats and session expiries of all connections
+            TimerWheel timerWheel = new TimerWheel(TimerWheel.DEFAULT_TICK, TimerWheel.DEFAULT_SIZE, System.nanoTime());
+            long tick = timerWheel.getTickNanos();
+            scheduler.scheduleAtFixedRate(() -> timerWheel.advance(System.nanoTime()), tick, tick, TimeUnit.NANOSECONDS);
+
+            if (heartbeatInterval != null) {
+                webSocketHandler.enableHeartbeat(timerWheel, heartbeatInterval, idleTimeout);
+            }
+
+            if (sessionResume != null) {
+                webSocketHandler.enableSessionResume(timerWheel);
+            }
+        }
+
+        httpSupplier.bind(this);
+
+        ConsoleHttpHandler httpHandler = new ConsoleHttpHandler(this, httpSupplier, resourceStore,
+                resources.toArray(new Resource[0]));
+        httpHandler.limitBufferedResponses(maxMappedResponseSize);
+
+        for (StaticDirectory directory : directories) {
+            httpHandler.addDirectory(directory);
+        }
+
+        for (Consumer<ConsoleHttpHandler> route : routes) {
+            route.accept(httpHandler);
+        }
+
+        server.mount(prefix, websocketPath, webSocketHandler, httpHandler);
     }
 
     @Override
@@ -215,7 +627,8 @@ public class HttpNetModule implements NetModule {
     public void start() throws Exception {
         log.info("{} will be started (blocking)...", this);
 
-        server.start().get();
+        // Shared servers are only started once
+        server.start();
 
         log.info("{} successfully started.", this);
     }
@@ -224,7 +637,17 @@ public class HttpNetModule implements NetModule {
     public void close() throws IOException {
         log.info("{} will be stopped (non-blocking)...", this);
 
-        server.stop();
+        server.unmount(prefix);
+
+        if (webSocketHandler != null) {
+            // A shared server keeps running, so the connections of this console have to be closed here
+            webSocketHandler.close();
+        }
+
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
     }
 
     @Override
@@ -239,12 +662,12 @@ public class HttpNetModule implements NetModule {
 
     @Override
     public String getHost() {
-        return host;
+        return server.getHost();
     }
 
     @Override
     public int getPort() {
-        return port;
+        return server.getPort();
     }
 
     @Override
@@ -0,0 +1,172 @@
+package com.pploder.ehc;
+
+/**
+ * The JSON encoding of messages (see {@link WireFormat#JSON}).
+ * <p>
+ * The output is identical to {@code content.asJSON().toJSONString()} (see {@link MessageContent#asJSON()}) but is
+ * written directly into a reused per-thread buffer instead of building JSON objects first. The keys of a snippet
+ * are written in the iteration order of the {@link java.util.HashMap} behind json-simple's {@code JSONObject}
+ * ({@code color}, {@code underlined}, {@code text}, {@code bold}, {@code strikethrough}, {@code italic}), and
+ * strings are escaped like json-simple does (including {@code /} and the ranges {@code U+007F} to {@code U+009F}
+ * and {@code U+2000} to {@code U+20FF}).
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+final class JsonMessageFormat {
+
+    /**
+     * Buffers that grew beyond this amount of characters are not kept for the next message.
+     */
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private JsonMessageFormat() {
+    }
+
+    /**
+     * Encodes a message.
+     *
+     * @param content The message content.
+     * @return The encoded message.
+     */
+    static String encode(MessageContent content) {
+        StringBuilder buffer = BUFFER.get();
+
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            buffer = new StringBuilder(256);
+            BUFFER.set(buffer);
+        }
+
+        buffer.setLength(0);
+        encode(content, buffer);
+
+        return buffer.toString();
+    }
+
+    /**
+     * Appends the encoding of a message.
+     *
+     * @param content The message content.
+     * @param out     The builder to append to.
+     */
+    static void encode(MessageContent content, StringBuilder out) {
+        out.append('[');
+
+        for (int i = 0; i < content.getSnippetsCount(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+
+            encode(content.getSnippet(i), out);
+        }
+
+        out.append(']');
+    }
+
+    private static void encode(MessageSnippet snippet, StringBuilder out) {
+        out.append('{');
+
+        MessageStyle style = snippet.getStyle();
+        if (style.hasColor()) {
+            out.append("\"color\":[")
+                    .append(style.getRed()).append(',')
+                    .append(style.getGreen()).append(',')
+                    .append(style.getBlue()).append("],");
+        }
+
+        Boolean underlined = style.getUnderlinedOverride();
+        if (underlined != null) {
+            out.append("\"underlined\":").append(underlined.booleanValue()).append(',');
+        }
+
+        out.append("\"text\":\"");
+        CharSequence text = snippet.getCharSequence();
+        for (int i = 0; i < Rope.pieceCount(text); i++) {
+            escape(Rope.piece(text, i), out);
+        }
+        out.append('"');
+
+        appendFlag(out, ",\"bold\":", style.getBoldOverride());
+        appendFlag(out, ",\"strikethrough\":", style.getStrikethroughOverride());
+        appendFlag(out, ",\"italic\":", style.getItalicOverride());
+
+        out.append('}');
+    }
+
+    private static void appendFlag(StringBuilder out, String key, Boolean value) {
+        if (value != null) {
+            out.append(key).append(value.booleanValue());
+        }
+    }
+
+    /**
+     * Escapes a string like json-simple's {@code JSONValue.escape}. Runs of characters that need no escaping are
+     * copied at once.
+     *
+     * @param s   The string.
+     * @param out The builder to append to.
+     */
+    static void escape(CharSequence s, StringBuilder out) {
+        int start = 0;
+        int length = s.length();
+
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            String replacement;
+
+            switch (c) {
+                case '"':
+                    replacement = "\\\"";
+                    break;
+                case '\\':
+                    replacement = "\\\\";
+                    break;
+                case '\b':
+                    replacement = "\\b";
+                    break;
+                case '\f':
+                    replacement = "\\f";
+                    break;
+                case '\n':
+                    replacement = "\\n";
+                    break;
+                case '\r':
+                    replacement = "\\r";
+                    break;
+                case '\t':
+                    replacement = "\\t";
+                    break;
+                case '/':
+                    replacement = "\\/";
+                    break;
+                default:
+                    if (c > 0x1F && (c < 0x7F || c > 0x9F) && (c < 0x2000 || c > 0x20FF)) {
+                        continue;
+                    }
+
+                    replacement = null;
+            }
+
+            out.append(s, start, i);
+            start = i + 1;
+
+            if (replacement != null) {
+                out.append(replacement);
+            } else {
+                out.append("\\u")
+                        .append(HEX_DIGITS[c >>> 12])
+                        .append(HEX_DIGITS[c >>> 8 & 0xF])
+                        .append(HEX_DIGITS[c >>> 4 & 0xF])
+                        .append(HEX_DIGITS[c & 0xF]);
+            }
+        }
+
+        out.append(s, start, length);
+    }
+
+}
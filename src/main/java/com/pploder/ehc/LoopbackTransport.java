@@ -0,0 +1,170 @@
+package com.pploder.ehc;
+
+import com.pploder.events.Event;
+import com.pploder.events.SimpleEvent;
+import lombok.extern.slf4j.XSlf4j;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
+
+/**
+ * A {@link ClusterTransport} that connects nodes within the same JVM.
+ * Nodes join the network of an existing node via {@link #join(String)}. This is mainly useful for tests and for
+ * running several consoles of a single process as one cluster.
+ * <p>
+ * Every node receives its batches on its own executor. By default this is a single daemon thread, so the batches
+ * of a node are received in order and without blocking the sender. The other nodes are notified on their executors
+ * when a node is closed (see {@link #nodeLeftEvent()}).
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+@XSlf4j
+public class LoopbackTransport implements ClusterTransport {
+
+    private final String node;
+    private final Map<String, LoopbackTransport> network;
+    private final Executor executor;
+    private final boolean ownsExecutor;
+    private final Event<String> nodeLeftEvent = new SimpleEvent<>();
+
+    private volatile BiConsumer<String, byte[]> receiver;
+
+    /**
+     * Creates the first node of a new network. The node receives its batches on its own daemon thread.
+     *
+     * @param node The name of the node.
+     */
+    public LoopbackTransport(String node) {
+        this(node, new ConcurrentHashMap<>(), null);
+    }
+
+    /**
+     * Creates the first node of a new network.
+     *
+     * @param node     The name of the node.
+     * @param executor The executor on which the node receives its batches. Must run tasks in order.
+     */
+    public LoopbackTransport(String node, Executor executor) {
+        this(node, new ConcurrentHashMap<>(), Objects.requireNonNull(executor));
+    }
+
+    private LoopbackTransport(String node, Map<String, LoopbackTransport> network, Executor executor) {
+        this.node = Objects.requireNonNull(node);
+        this.network = network;
+        this.ownsExecutor = executor == null;
+        this.executor = executor != null ? executor : Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ehc-loopback-" + node);
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (network.putIfAbsent(node, this) != null) {
+            throw new IllegalArgumentException("The node " + node + " is already part of the network");
+        }
+    }
+
+    /**
+     * Creates a new node in the network of this node. The new node receives its batches on its own daemon thread.
+     *
+     * @param node The name of the new node.
+     * @return The new node.
+     * @throws IllegalArgumentException If the network already contains a node with the name.
+     */
+    public LoopbackTransport join(String node) throws IllegalArgumentException {
+        return new LoopbackTransport(node, network, null);
+    }
+
+    /**
+     * Creates a new node in the network of this node.
+     *
+     * @param node     The name of the new node.
+     * @param executor The executor on which the new node receives its batches. Must run tasks in order.
+     * @return The new node.
+     * @throws IllegalArgumentException If the network already contains a node with the name.
+     */
+    public LoopbackTransport join(String node, Executor executor) throws IllegalArgumentException {
+        return new LoopbackTransport(node, network, Objects.requireNonNull(executor));
+    }
+
+    @Override
+    public String getLocalNode() {
+        return node;
+    }
+
+    @Override
+    public Collection<String> getNodes() {
+        return Collections.unmodifiableSet(network.keySet());
+    }
+
+    @Override
+    public Event<String> nodeLeftEvent() {
+        return nodeLeftEvent;
+    }
+
+    @Override
+    public void open(BiConsumer<String, byte[]> receiver) {
+        this.receiver = Objects.requireNonNull(receiver);
+    }
+
+    @Override
+    public void send(String node, byte[] batch) {
+        LoopbackTransport target = network.get(node);
+
+        if (target == null) {
+            log.warn("Dropping batch to unknown node {}", node);
+            return;
+        }
+
+        try {
+            target.executor.execute(() -> target.receive(this.node, batch));
+        } catch (RejectedExecutionException e) {
+            log.warn("Dropping batch to closed node {}", node);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (network.remove(node, this)) {
+            for (LoopbackTransport other : network.values()) {
+                try {
+                    other.executor.execute(() -> other.nodeLeftEvent.trigger(node));
+                } catch (RejectedExecutionException e) {
+                    log.debug("Not notifying closed node {} that {} left", other.node, node);
+                }
+            }
+        }
+
+        receiver = null;
+
+        if (ownsExecutor) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s(%s)", getClass().getSimpleName(), node);
+    }
+
+    private void receive(String sender, byte[] batch) {
+        BiConsumer<String, byte[]> receiver = this.receiver;
+
+        if (receiver == null) {
+            log.debug("Dropping batch from {} to {} because it is not open", sender, node);
+            return;
+        }
+
+        receiver.accept(sender, batch);
+    }
+
+}
@@ -0,0 +1,116 @@
+package com.pploder.ehc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * A supplier of a file that is memory-mapped instead of being read onto the heap.
+ * Every page shares the mapping, so loading the file does not copy it onto the heap. Serving it does: the web server
+ * copies the served bytes into the buffer of each response, so every response holds a heap copy of the content it
+ * sends until it has been written (see {@link HttpNetModule#limitMappedResponses(int)}). The file is not
+ * compressed.
+ * The entity tag is derived from the size and modification time of the file.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+public class MappedFileSupplier implements Supplier<Page> {
+
+    private final Path path;
+    private final String mime;
+    private final String cacheControl;
+
+    private final MappedByteBuffer buffer;
+    private final Instant lastModified;
+    private final String entityTag;
+
+    /**
+     * Creates a new instance and maps the given file.
+     *
+     * @param path         The file.
+     * @param mime         The MIME-type of the file.
+     * @param cacheControl The {@code Cache-Control} policy of the file (see {@link CacheControl}).
+     * @throws IOException If the file cannot be mapped.
+     */
+    public MappedFileSupplier(Path path, String mime, String cacheControl) throws IOException {
+        this.path = Objects.requireNonNull(path);
+        this.mime = Objects.requireNonNull(mime);
+        this.cacheControl = cacheControl;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large to be mapped: " + path);
+            }
+
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        this.lastModified = Files.getLastModifiedTime(path).toInstant().truncatedTo(ChronoUnit.SECONDS);
+        this.entityTag = '"' + Long.toHexString(buffer.capacity()) + '-' + Long.toHexString(lastModified.getEpochSecond()) + '"';
+    }
+
+    @Override
+    public Page get() {
+        Page page = new Page(getData(), RawHttpSupplier.DEFAULT_RESPONSE_CODE, getMime(), false);
+        page.setCacheControl(getCacheControl());
+        page.setLastModified(getLastModified());
+        page.setEntityTag(getEntityTag());
+
+        return page;
+    }
+
+    /**
+     * @return The mapped file.
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return A read-only view of the mapped file with its own position and limit.
+     */
+    public ByteBuffer getData() {
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * @return The MIME-type of the file.
+     */
+    public String getMime() {
+        return mime;
+    }
+
+    /**
+     * @return The {@code Cache-Control} policy of the file.
+     */
+    public String getCacheControl() {
+        return cacheControl;
+    }
+
+    /**
+     * @return The modification time of the file at the time it was mapped.
+     */
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * @return The quoted entity tag of the file.
+     */
+    public String getEntityTag() {
+        return entityTag;
+    }
+
+}
@@ -0,0 +1,203 @@
+package com.pploder.ehc;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Coalesces the encoded messages of a connection into batched frames.
+ * Appended messages are buffered and joined into a single frame (see {@link FrameCodec#join(List, int)}) once the
+ * time window after the first buffered message elapses, once the buffered messages reach the size threshold or
+ * when the buffer is flushed explicitly. A batch of a single message is sent as the message itself.
+ * <p>
+ * Instances are thread-safe. The frames are passed to the sink in the order in which the messages were appended.
+ * The sink is never invoked while the buffer is locked, so a sink that blocks (see {@link OverflowPolicy#BLOCK})
+ * only holds up the thread that flushes. Threads that must not wait (such as the I/O thread that receives the
+ * acknowledgements the sink waits for) neither wait for such a flush nor pass a frame to a sink that would block;
+ * their flushes are deferred to the next time window instead.
+ *
+ * @param <F> The type of the frames.
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+class MessageCoalescer<F> {
+
+    private final FrameCodec<F> codec;
+    private final Consumer<F> sink;
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+    private final long windowNanos;
+    private final int threshold;
+    private final BooleanSupplier mayWait;
+    private final IntPredicate accepts;
+
+    /**
+     * Held while a frame is passed to the sink so that the frames reach it in order.
+     */
+    private final Lock sending = new ReentrantLock();
+
+    private final List<F> batch = new ArrayList<>();
+    private int size;
+    private boolean scheduled;
+
+    /**
+     * Creates a new instance whose flushes may always wait for the sink.
+     *
+     * @param codec     The codec of the frames.
+     * @param sink      Receives the frames.
+     * @param scheduler The scheduler on which the time windows elapse.
+     * @param executor  The executor that flushes the buffer when a time window has elapsed.
+     * @param window    The maximum time a message is buffered.
+     * @param threshold The buffered size (see {@link FrameCodec#sizeOf(Object)}) after which the buffer is flushed.
+     */
+    public MessageCoalescer(FrameCodec<F> codec, Consumer<F> sink, ScheduledExecutorService scheduler,
+                            Executor executor, Duration window, int threshold) {
+        this(codec, sink, scheduler, executor, window, threshold, () -> true, size -> true);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param codec     The codec of the frames.
+     * @param sink      Receives the frames.
+     * @param scheduler The scheduler on which the time windows elapse.
+     * @param executor  The executor that flushes the buffer when a time window has elapsed.
+     * @param window    The maximum time a message is buffered.
+     * @param threshold The buffered size (see {@link FrameCodec#sizeOf(Object)}) after which the buffer is flushed.
+     * @param mayWait   Whether the current thread may wait for the sink or for another thread that is passing a
+     *                  frame to the sink.
+     * @param accepts   Whether the sink takes a frame of the given size without waiting.
+     */
+    public MessageCoalescer(FrameCodec<F> codec, Consumer<F> sink, ScheduledExecutorService scheduler,
+                            Executor executor, Duration window, int threshold, BooleanSupplier mayWait,
+                            IntPredicate accepts) {
+        this.codec = Objects.requireNonNull(codec);
+        this.sink = Objects.requireNonNull(sink);
+        this.scheduler = Objects.requireNonNull(scheduler);
+        this.executor = Objects.requireNonNull(executor);
+        this.windowNanos = Objects.requireNonNull(window).toNanos();
+        this.threshold = threshold;
+        this.mayWait = Objects.requireNonNull(mayWait);
+        this.accepts = Objects.requireNonNull(accepts);
+    }
+
+    /**
+     * Buffers the frame of a single message.
+     *
+     * @param frame The frame.
+     */
+    public void append(F frame) {
+        boolean full;
+
+        synchronized (this) {
+            batch.add(frame);
+            size += codec.sizeOf(frame);
+
+            // The scheduler is shutting down if the window can not be scheduled; do not hold back the message
+            full = size >= threshold || !scheduleWindow();
+        }
+
+        if (full) {
+            flush();
+        }
+    }
+
+    /**
+     * Sends all buffered messages immediately.
+     * If the current thread must not wait for another thread that is passing a frame to the sink or for the sink
+     * itself, the messages are sent when the time window elapses instead.
+     */
+    public void flush() {
+        boolean wait = mayWait.getAsBoolean();
+
+        if (wait) {
+            sending.lock();
+        } else if (!sending.tryLock()) {
+            synchronized (this) {
+                scheduleWindow();
+            }
+
+            return;
+        }
+
+        try {
+            F frame = take(wait);
+
+            if (frame != null) {
+                sink.accept(frame);
+            }
+        } finally {
+            sending.unlock();
+        }
+    }
+
+    /**
+     * @return The amount of buffered messages.
+     */
+    public synchronized int getBufferedCount() {
+        return batch.size();
+    }
+
+    /**
+     * Removes the buffered messages.
+     *
+     * @param wait Whether the current thread may wait for the sink.
+     * @return The frame of the buffered messages or {@code null} if none are buffered or the sink would block.
+     */
+    private synchronized F take(boolean wait) {
+        if (batch.isEmpty()) {
+            return null;
+        }
+
+        F frame = batch.size() == 1 ? batch.get(0) : codec.join(batch, size);
+
+        if (!wait && !accepts.test(codec.sizeOf(frame))) {
+            scheduleWindow();
+            return null;
+        }
+
+        batch.clear();
+        size = 0;
+
+        return frame;
+    }
+
+    /**
+     * Schedules the flush at the end of the time window unless it is already scheduled.
+     * Must be invoked while holding the lock of this instance.
+     *
+     * @return Whether the flush is scheduled.
+     */
+    private boolean scheduleWindow() {
+        if (!scheduled) {
+            try {
+                scheduler.schedule(() -> executor.execute(this::windowElapsed), windowNanos, TimeUnit.NANOSECONDS);
+                scheduled = true;
+            } catch (RejectedExecutionException e) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void windowElapsed() {
+        synchronized (this) {
+            scheduled = false;
+        }
+
+        flush();
+    }
+
+}
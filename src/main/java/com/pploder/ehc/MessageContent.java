@@ -2,15 +2,24 @@ package com.pploder.ehc;
 
 import org.json.simple.JSONArray;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Spliterator;
 import java.util.function.Consumer;
 
 /**
  * Represents the content of a styled message.
  * A styled message consists of an ordered sequence of snippets.
+ * <p>
+ * Instances are immutable. The wire encodings of a content are computed once and shared by every send of the same
+ * instance (see {@link #getEncoded()}), so contents that are sent repeatedly should be kept and reused. Contents that
+ * are known in advance can be encoded eagerly via {@link #constant(MessageSnippet...)}.
+ * <p>
+ * Large contents that are assembled from slices of existing text should be built via {@link #builder()}, which
+ * references the text instead of copying it.
  *
  * @author Philipp Ploder
  * @version 2.0.0
@@ -20,6 +29,8 @@ public class MessageContent implements Iterable<MessageSnippet> {
 
     private final List<MessageSnippet> snippets;
 
+    private volatile EncodedMessage encoded;
+
     /**
      * Creates a new instance.
      *
@@ -33,11 +44,13 @@ public class MessageContent implements Iterable<MessageSnippet> {
             }
         }
 
-        this.snippets = Arrays.asList(snippets);
+        // Copied so that the content cannot change after it has been encoded
+        this.snippets = Arrays.asList(snippets.clone());
     }
 
     /**
      * Creates a new instance containing a single default style snippet with the given content.
+     * The sequence is copied; use {@link #builder()} to reference it instead.
      *
      * @param charSequence The content of the single snippet.
      * @return A new instance containing a single default style snippet with the given content.
@@ -46,6 +59,56 @@ public class MessageContent implements Iterable<MessageSnippet> {
         return new MessageContent(new MessageSnippet(charSequence.toString()));
     }
 
+    /**
+     * @return A new builder for a content.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Creates a new instance whose wire encodings are computed immediately.
+     * Sending the content later on only shares the existing encodings.
+     *
+     * @param snippets An array that may be empty but may not contain {@code null}.
+     * @return The new instance.
+     * @throws NullPointerException If the given array or any contained item is {@code null}.
+     */
+    public static MessageContent constant(MessageSnippet... snippets) throws NullPointerException {
+        MessageContent content = new MessageContent(snippets);
+        content.getEncoded().encodeAll();
+        return content;
+    }
+
+    /**
+     * Creates a new instance containing a single default style snippet whose wire encodings are computed
+     * immediately (see {@link #constant(MessageSnippet...)}).
+     *
+     * @param charSequence The content of the single snippet.
+     * @return The new instance.
+     */
+    public static MessageContent constant(CharSequence charSequence) {
+        return constant(new MessageSnippet(charSequence.toString()));
+    }
+
+    /**
+     * Returns the content together with its wire encodings. The instance is created once and then shared, so every
+     * encoding of this content is computed at most once (concurrent first uses may compute it more than once but
+     * always observe a complete encoding).
+     *
+     * @return The encoded message.
+     */
+    public EncodedMessage getEncoded() {
+        EncodedMessage encoded = this.encoded;
+
+        if (encoded == null) {
+            encoded = new EncodedMessage(this);
+            this.encoded = encoded;
+        }
+
+        return encoded;
+    }
+
     /**
      * @return The amount of snippets.
      */
@@ -104,4 +167,141 @@ public class MessageContent implements Iterable<MessageSnippet> {
         return snippets.spliterator();
     }
 
+    /**
+     * Assembles a content from styled segments without copying their characters.
+     * <p>
+     * Appended sequences (and ranges of them) are referenced, not copied, so they must not be modified until the
+     * content has been encoded. Adjacent segments with the same style are merged into a single snippet whose text is
+     * a rope of the segments; the characters are only read when the content is encoded.
+     * <p>
+     * Instances are not thread-safe.
+     */
+    public static final class Builder {
+
+        private final List<MessageSnippet> snippets = new ArrayList<>();
+        private final List<CharSequence> run = new ArrayList<>();
+
+        private MessageStyle runStyle = MessageStyle.PLAIN;
+        private MessageStyle style = MessageStyle.PLAIN;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the style of the segments that are appended afterwards.
+         *
+         * @param style The style.
+         * @return This builder.
+         * @throws NullPointerException If the style is {@code null}.
+         */
+        public Builder style(MessageStyle style) throws NullPointerException {
+            this.style = Objects.requireNonNull(style);
+            return this;
+        }
+
+        /**
+         * Appends a segment in the current style.
+         *
+         * @param text The text. Must not be modified afterwards.
+         * @return This builder.
+         * @throws NullPointerException If the text is {@code null}.
+         */
+        public Builder append(CharSequence text) throws NullPointerException {
+            return append(text, style);
+        }
+
+        /**
+         * Appends a range of a sequence in the current style.
+         *
+         * @param text  The text. Must not be modified afterwards.
+         * @param start The start index (inclusive).
+         * @param end   The end index (exclusive).
+         * @return This builder.
+         * @throws NullPointerException      If the text is {@code null}.
+         * @throws IndexOutOfBoundsException If the range is invalid.
+         */
+        public Builder append(CharSequence text, int start, int end)
+                throws NullPointerException, IndexOutOfBoundsException {
+            return append(Rope.slice(text, start, end), style);
+        }
+
+        /**
+         * Appends a segment in the given style. The current style is not changed.
+         *
+         * @param text  The text. Must not be modified afterwards.
+         * @param style The style of this segment.
+         * @return This builder.
+         * @throws NullPointerException If the text or the style is {@code null}.
+         */
+        public Builder append(CharSequence text, MessageStyle style) throws NullPointerException {
+            Objects.requireNonNull(text);
+            Objects.requireNonNull(style);
+
+            if (text.length() == 0) {
+                return this;
+            }
+
+            if (!style.equals(runStyle)) {
+                endRun();
+                runStyle = style;
+            }
+
+            for (int i = 0; i < Rope.pieceCount(text); i++) {
+                CharSequence piece = Rope.piece(text, i);
+
+                if (piece.length() > 0) {
+                    run.add(piece);
+                }
+            }
+
+            return this;
+        }
+
+        /**
+         * Appends a snippet.
+         *
+         * @param snippet The snippet.
+         * @return This builder.
+         * @throws NullPointerException If the snippet is {@code null}.
+         */
+        public Builder append(MessageSnippet snippet) throws NullPointerException {
+            return append(snippet.getCharSequence(), snippet.getStyle());
+        }
+
+        /**
+         * Appends all snippets of a content.
+         *
+         * @param content The content.
+         * @return This builder.
+         * @throws NullPointerException If the content is {@code null}.
+         */
+        public Builder append(MessageContent content) throws NullPointerException {
+            for (MessageSnippet snippet : content) {
+                append(snippet);
+            }
+
+            return this;
+        }
+
+        /**
+         * Creates the content. The builder may be used further afterwards.
+         *
+         * @return The content.
+         */
+        public MessageContent build() {
+            endRun();
+            return new MessageContent(snippets.toArray(new MessageSnippet[0]));
+        }
+
+        private void endRun() {
+            if (run.isEmpty()) {
+                return;
+            }
+
+            snippets.add(new MessageSnippet(run.size() == 1 ? run.get(0) : new Rope(run), runStyle));
+            run.clear();
+        }
+
+    }
+
 }
@@ -1,6 +1,5 @@
 package com.pploder.ehc;
 
-import javafx.scene.paint.Color;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 
@@ -8,7 +7,12 @@ import java.util.Objects;
 
 /**
  * Represents a uniformly styled portion of a message.
- * A snippet must contain a text (non-{@code null}) and may override certain display properties if needed.
+ * A snippet must contain a text (non-{@code null}) and may override certain display properties if needed
+ * (see {@link MessageStyle}).
+ * <p>
+ * The text may be any character sequence. It is not copied, so it must not be modified once the snippet has been
+ * created (see {@link MessageContent.Builder}). Encoders read the sequence directly; {@link #getText()} materializes
+ * it as a string when it is first called.
  *
  * @author Philipp Ploder
  * @version 2.0.0
@@ -23,12 +27,10 @@ public class MessageSnippet {
     private static final String JSON_UNDERLINED = "underlined";
     private static final String JSON_STRIKETHROUGH = "strikethrough";
 
-    private final String text;
-    private final Color colorOverride;
-    private final Boolean boldOverride;
-    private final Boolean italicOverride;
-    private final Boolean underlinedOverride;
-    private final Boolean strikethroughOverride;
+    private final CharSequence text;
+    private final MessageStyle style;
+
+    private volatile String string;
 
     /**
      * Creates a new instance with the given text and no style overrides.
@@ -36,48 +38,28 @@ public class MessageSnippet {
      * @param text The snippet text.
      */
     public MessageSnippet(String text) {
-        this(text, null);
+        this(text, MessageStyle.PLAIN);
     }
 
     /**
-     * Creates a new instance with the given text and a potential color override.
+     * Creates a new instance with the given text and style.
      *
-     * @param text          The snippet text.
-     * @param colorOverride The color override or {@code null}.
+     * @param text  The snippet text.
+     * @param style The style (see {@link MessageStyle#PLAIN} for no overrides).
      */
-    public MessageSnippet(String text, Color colorOverride) {
-        this(text, colorOverride, null, null);
+    public MessageSnippet(String text, MessageStyle style) {
+        this((CharSequence) text, style);
     }
 
     /**
-     * Creates a new instance with the given text and a potential override for color, bold and italic.
+     * Creates a new instance with the given text and style without copying the text.
      *
-     * @param text           The snippet text.
-     * @param colorOverride  The color override or {@code null}.
-     * @param boldOverride   The bold override or {@code null}.
-     * @param italicOverride The italic override or {@code null}.
+     * @param text  The snippet text. Must not be modified afterwards.
+     * @param style The style (see {@link MessageStyle#PLAIN} for no overrides).
      */
-    public MessageSnippet(String text, Color colorOverride, Boolean boldOverride, Boolean italicOverride) {
-        this(text, colorOverride, boldOverride, italicOverride, null, null);
-    }
-
-    /**
-     * Creates a new instance with the given text and a potential override for color, bold, italic, underlined and strikethrough.
-     *
-     * @param text                  The snippet text.
-     * @param colorOverride         The color override or {@code null}.
-     * @param boldOverride          The bold override or {@code null}.
-     * @param italicOverride        The italic override or {@code null}.
-     * @param underlinedOverride    The underlined override or {@code null}.
-     * @param strikethroughOverride The strikethrough override or {@code null}.
-     */
-    public MessageSnippet(String text, Color colorOverride, Boolean boldOverride, Boolean italicOverride, Boolean underlinedOverride, Boolean strikethroughOverride) {
+    public MessageSnippet(CharSequence text, MessageStyle style) {
         this.text = Objects.requireNonNull(text);
-        this.colorOverride = colorOverride;
-        this.boldOverride = boldOverride;
-        this.italicOverride = italicOverride;
-        this.underlinedOverride = underlinedOverride;
-        this.strikethroughOverride = strikethroughOverride;
+        this.style = Objects.requireNonNull(style);
     }
 
     /**
@@ -90,12 +72,11 @@ public class MessageSnippet {
 
         object.put(JSON_TEXT, getText());
 
-        Color colorOverride = getColorOverride();
-        if (colorOverride != null) {
+        if (style.hasColor()) {
             JSONArray rgb = new JSONArray();
-            rgb.add((int) (colorOverride.getRed() * 255));
-            rgb.add((int) (colorOverride.getGreen() * 255));
-            rgb.add((int) (colorOverride.getBlue() * 255));
+            rgb.add(style.getRed());
+            rgb.add(style.getGreen());
+            rgb.add(style.getBlue());
 
             object.put(JSON_COLOR, rgb);
         }
@@ -124,63 +105,82 @@ public class MessageSnippet {
     }
 
     /**
-     * Generates an instance from a JSON object.
+     * Generates an instance from a JSON object (see {@link #asJSON()}).
      *
      * @param object The JSON object.
      * @return The generated instance.
      */
     public static MessageSnippet fromJSON(JSONObject object) {
         String text = (String) object.get(JSON_TEXT);
+        MessageStyle style = MessageStyle.PLAIN;
 
-        Color colorOverride = (Color) object.get(JSON_COLOR);
-        Boolean boldOverride = (Boolean) object.get(JSON_BOLD);
-        Boolean italicOverride = (Boolean) object.get(JSON_ITALIC);
-        Boolean underlinedOverride = (Boolean) object.get(JSON_UNDERLINED);
-        Boolean strikethroughtOverride = (Boolean) object.get(JSON_STRIKETHROUGH);
+        JSONArray rgb = (JSONArray) object.get(JSON_COLOR);
+        if (rgb != null) {
+            style = style.withColor(((Number) rgb.get(0)).intValue(), ((Number) rgb.get(1)).intValue(),
+                    ((Number) rgb.get(2)).intValue());
+        }
 
-        return new MessageSnippet(text, colorOverride, boldOverride, italicOverride, underlinedOverride, strikethroughtOverride);
+        return new MessageSnippet(text, style
+                .withBold((Boolean) object.get(JSON_BOLD))
+                .withItalic((Boolean) object.get(JSON_ITALIC))
+                .withUnderlined((Boolean) object.get(JSON_UNDERLINED))
+                .withStrikethrough((Boolean) object.get(JSON_STRIKETHROUGH)));
     }
 
     /**
      * @return The snippet text.
      */
     public final String getText() {
+        String string = this.string;
+
+        if (string == null) {
+            string = text.toString();
+            this.string = string;
+        }
+
+        return string;
+    }
+
+    /**
+     * @return The snippet text as it was given, without materializing it.
+     */
+    public final CharSequence getCharSequence() {
         return text;
     }
 
     /**
-     * @return The color override or {@code null}.
+     * @return The style of the snippet.
      */
-    public final Color getColorOverride() {
-        return colorOverride;
+    public final MessageStyle getStyle() {
+        return style;
     }
 
     /**
      * @return The bold override or {@code null}.
      */
     public Boolean getBoldOverride() {
-        return boldOverride;
+        return style.getBoldOverride();
     }
 
     /**
      * @return The italic override or {@code null}.
      */
     public Boolean getItalicOverride() {
-        return italicOverride;
+        return style.getItalicOverride();
     }
 
     /**
      * @return The underlined override or {@code null}.
      */
     public Boolean getUnderlinedOverride() {
-        return underlinedOverride;
+        return style.getUnderlinedOverride();
     }
 
     /**
      * @return The strikethrough override or {@code null}.
      */
     public Boolean getStrikethroughOverride() {
-        return strikethroughOverride;
+        return style.getStrikethroughOverride();
     }
 
 }
@@ -0,0 +1,262 @@
+package com.pploder.ehc;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The display overrides of a {@link MessageSnippet}: an optional RGB color and tri-state bold, italic, underlined
+ * and strikethrough flags ({@code null} for no override).
+ * <p>
+ * A style is packed into a single {@code long}: two bits for each of bold, italic, underlined and strikethrough
+ * (in this order starting at the least significant bits; {@code 0} for no override, {@code 1} for {@code false} and
+ * {@code 2} for {@code true}), a color flag (bit 8) and the RGB color (bits 9 to 32). This is the same layout that
+ * {@link BinaryMessageFormat} uses on the wire.
+ * <p>
+ * Instances are immutable and obtained via {@link #PLAIN} and its {@code with} methods, for example
+ * {@code MessageStyle.PLAIN.withColor(0xFF8000).withBold(true)}. Styles are interned, so snippets with the same
+ * overrides share a single instance. Styles with a JavaFX color can be created via {@code JavaFXStyles}
+ * (built only where JavaFX is available).
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+public final class MessageStyle {
+
+    /**
+     * The style without any overrides.
+     */
+    public static final MessageStyle PLAIN = new MessageStyle(0);
+
+    /**
+     * Beyond this amount of interned styles new styles are no longer interned (but still compare equal).
+     */
+    private static final int MAX_INTERNED = 4096;
+
+    private static final long COLORED = 1L << 8;
+    private static final long FLAGS = 0xFF;
+
+    private static final int BOLD_SHIFT = 0;
+    private static final int ITALIC_SHIFT = 2;
+    private static final int UNDERLINED_SHIFT = 4;
+    private static final int STRIKETHROUGH_SHIFT = 6;
+    private static final int RGB_SHIFT = 9;
+
+    private static final Map<Long, MessageStyle> INTERNED = new ConcurrentHashMap<>();
+
+    static {
+        INTERNED.put(0L, PLAIN);
+    }
+
+    private final long bits;
+
+    private MessageStyle(long bits) {
+        this.bits = bits;
+    }
+
+    /**
+     * Returns the style with the given packed representation.
+     *
+     * @param bits The packed style (see {@link #getBits()}).
+     * @return The style.
+     * @throws IllegalArgumentException If the bits are not a valid style.
+     */
+    static MessageStyle of(long bits) throws IllegalArgumentException {
+        if ((bits & ~(FLAGS | COLORED | 0xFFFFFFL << RGB_SHIFT)) != 0
+                || (bits & COLORED) == 0 && bits >>> RGB_SHIFT != 0) {
+            throw new IllegalArgumentException("Invalid style " + Long.toHexString(bits));
+        }
+
+        for (int shift = 0; shift < 8; shift += 2) {
+            if ((bits >>> shift & 0b11) == 0b11) {
+                throw new IllegalArgumentException("Invalid style " + Long.toHexString(bits));
+            }
+        }
+
+        MessageStyle style = INTERNED.get(bits);
+
+        if (style == null) {
+            style = new MessageStyle(bits);
+
+            if (INTERNED.size() < MAX_INTERNED) {
+                MessageStyle interned = INTERNED.putIfAbsent(bits, style);
+                style = interned != null ? interned : style;
+            }
+        }
+
+        return style;
+    }
+
+    /**
+     * @return The packed representation of the style.
+     */
+    long getBits() {
+        return bits;
+    }
+
+    /**
+     * @return Whether the style does not override anything.
+     */
+    public boolean isPlain() {
+        return bits == 0;
+    }
+
+    /**
+     * @return Whether the style overrides the color.
+     */
+    public boolean hasColor() {
+        return (bits & COLORED) != 0;
+    }
+
+    /**
+     * @return The color override as {@code 0xRRGGBB} or {@code -1} if the color is not overridden.
+     */
+    public int getRGB() {
+        return hasColor() ? (int) (bits >>> RGB_SHIFT) : -1;
+    }
+
+    /**
+     * @return The red component of the color override (0 to 255) or {@code -1} if the color is not overridden.
+     */
+    public int getRed() {
+        return hasColor() ? (int) (bits >>> RGB_SHIFT + 16) & 0xFF : -1;
+    }
+
+    /**
+     * @return The green component of the color override (0 to 255) or {@code -1} if the color is not overridden.
+     */
+    public int getGreen() {
+        return hasColor() ? (int) (bits >>> RGB_SHIFT + 8) & 0xFF : -1;
+    }
+
+    /**
+     * @return The blue component of the color override (0 to 255) or {@code -1} if the color is not overridden.
+     */
+    public int getBlue() {
+        return hasColor() ? (int) (bits >>> RGB_SHIFT) & 0xFF : -1;
+    }
+
+    /**
+     * @return The bold override or {@code null}.
+     */
+    public Boolean getBoldOverride() {
+        return flag(BOLD_SHIFT);
+    }
+
+    /**
+     * @return The italic override or {@code null}.
+     */
+    public Boolean getItalicOverride() {
+        return flag(ITALIC_SHIFT);
+    }
+
+    /**
+     * @return The underlined override or {@code null}.
+     */
+    public Boolean getUnderlinedOverride() {
+        return flag(UNDERLINED_SHIFT);
+    }
+
+    /**
+     * @return The strikethrough override or {@code null}.
+     */
+    public Boolean getStrikethroughOverride() {
+        return flag(STRIKETHROUGH_SHIFT);
+    }
+
+    /**
+     * @param rgb The color as {@code 0xRRGGBB}.
+     * @return This style with the given color override.
+     */
+    public MessageStyle withColor(int rgb) {
+        return of(bits & ~(0xFFFFFFL << RGB_SHIFT) | COLORED | (rgb & 0xFFFFFFL) << RGB_SHIFT);
+    }
+
+    /**
+     * @param red   The red component (0 to 255).
+     * @param green The green component (0 to 255).
+     * @param blue  The blue component (0 to 255).
+     * @return This style with the given color override.
+     * @throws IllegalArgumentException If a component is out of range.
+     */
+    public MessageStyle withColor(int red, int green, int blue) throws IllegalArgumentException {
+        if ((red | green | blue) >>> 8 != 0) {
+            throw new IllegalArgumentException("Color components must be between 0 and 255");
+        }
+
+        return withColor(red << 16 | green << 8 | blue);
+    }
+
+    /**
+     * @return This style without a color override.
+     */
+    public MessageStyle withoutColor() {
+        return of(bits & FLAGS);
+    }
+
+    /**
+     * @param bold The bold override or {@code null}.
+     * @return This style with the given bold override.
+     */
+    public MessageStyle withBold(Boolean bold) {
+        return withFlag(BOLD_SHIFT, bold);
+    }
+
+    /**
+     * @param italic The italic override or {@code null}.
+     * @return This style with the given italic override.
+     */
+    public MessageStyle withItalic(Boolean italic) {
+        return withFlag(ITALIC_SHIFT, italic);
+    }
+
+    /**
+     * @param underlined The underlined override or {@code null}.
+     * @return This style with the given underlined override.
+     */
+    public MessageStyle withUnderlined(Boolean underlined) {
+        return withFlag(UNDERLINED_SHIFT, underlined);
+    }
+
+    /**
+     * @param strikethrough The strikethrough override or {@code null}.
+     * @return This style with the given strikethrough override.
+     */
+    public MessageStyle withStrikethrough(Boolean strikethrough) {
+        return withFlag(STRIKETHROUGH_SHIFT, strikethrough);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof MessageStyle && ((MessageStyle) o).bits == bits;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(bits);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MessageStyle{color=%s, bold=%s, italic=%s, underlined=%s, strikethrough=%s}",
+                hasColor() ? String.format("#%06x", getRGB()) : null, getBoldOverride(), getItalicOverride(),
+                getUnderlinedOverride(), getStrikethroughOverride());
+    }
+
+    private Boolean flag(int shift) {
+        switch ((int) (bits >>> shift) & 0b11) {
+            case 1:
+                return Boolean.FALSE;
+            case 2:
+                return Boolean.TRUE;
+            default:
+                return null;
+        }
+    }
+
+    private MessageStyle withFlag(int shift, Boolean value) {
+        long flag = value == null ? 0 : value ? 2 : 1;
+        return of(bits & ~(0b11L << shift) | flag << shift);
+    }
+
+}
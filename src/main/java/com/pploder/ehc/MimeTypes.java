@@ -0,0 +1,81 @@
+package com.pploder.ehc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Guesses the MIME-types of files.
+ * Common web file types are resolved by their extension, everything else is left to the platform.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+final class MimeTypes {
+
+    /**
+     * The MIME-type of files whose type is unknown.
+     */
+    static final String DEFAULT = "application/octet-stream";
+
+    private static final Map<String, String> EXTENSIONS = new HashMap<>();
+
+    static {
+        EXTENSIONS.put("html", "text/html");
+        EXTENSIONS.put("htm", "text/html");
+        EXTENSIONS.put("css", "text/css");
+        EXTENSIONS.put("js", "application/javascript");
+        EXTENSIONS.put("json", "application/json");
+        EXTENSIONS.put("map", "application/json");
+        EXTENSIONS.put("xml", "application/xml");
+        EXTENSIONS.put("txt", "text/plain");
+        EXTENSIONS.put("log", "text/plain");
+        EXTENSIONS.put("csv", "text/csv");
+        EXTENSIONS.put("md", "text/markdown");
+        EXTENSIONS.put("png", "image/png");
+        EXTENSIONS.put("jpg", "image/jpeg");
+        EXTENSIONS.put("jpeg", "image/jpeg");
+        EXTENSIONS.put("gif", "image/gif");
+        EXTENSIONS.put("svg", "image/svg+xml");
+        EXTENSIONS.put("ico", "image/x-icon");
+        EXTENSIONS.put("webp", "image/webp");
+        EXTENSIONS.put("woff", "font/woff");
+        EXTENSIONS.put("woff2", "font/woff2");
+        EXTENSIONS.put("pdf", "application/pdf");
+        EXTENSIONS.put("zip", "application/zip");
+        EXTENSIONS.put("gz", "application/gzip");
+    }
+
+    private MimeTypes() {
+    }
+
+    /**
+     * @param path The file.
+     * @return The MIME-type of the file or {@link #DEFAULT} if it is unknown.
+     */
+    static String of(Path path) {
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+
+        if (dot >= 0) {
+            String mime = EXTENSIONS.get(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+
+            if (mime != null) {
+                return mime;
+            }
+        }
+
+        try {
+            String mime = Files.probeContentType(path);
+
+            return mime == null ? DEFAULT : mime;
+        } catch (IOException e) {
+            return DEFAULT;
+        }
+    }
+
+}
@@ -0,0 +1,118 @@
+package com.pploder.ehc;
+
+import lombok.extern.slf4j.XSlf4j;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs the tasks of each connection one after another on a shared executor.
+ * Every connection with pending tasks has a lane. A lane occupies at most one thread of the executor until it
+ * has run all of its tasks, so a slow command only delays later commands of the same connection.
+ * Tasks that were accepted before the executor is shut down are still run.
+ * <p>
+ * Instances are thread-safe.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+@XSlf4j
+class OrderedCommandExecutor implements CommandExecutor {
+
+    private final Executor executor;
+    private final Map<Connection, Lane> lanes = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param executor The executor that runs the tasks.
+     */
+    OrderedCommandExecutor(Executor executor) {
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    @Override
+    public void execute(Connection connection, Runnable task) throws RejectedExecutionException {
+        Objects.requireNonNull(connection);
+        Objects.requireNonNull(task);
+
+        while (true) {
+            Lane lane = lanes.computeIfAbsent(connection, Lane::new);
+
+            synchronized (lane) {
+                if (lane.retired) {
+                    // The lane has just been removed; use a new one
+                    continue;
+                }
+
+                lane.tasks.add(task);
+
+                if (!lane.scheduled) {
+                    lane.scheduled = true;
+
+                    try {
+                        executor.execute(lane);
+                    } catch (RejectedExecutionException e) {
+                        lane.retired = true;
+                        lanes.remove(connection, lane);
+                        throw e;
+                    }
+                }
+
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return The amount of connections with pending tasks.
+     */
+    int getLaneCount() {
+        return lanes.size();
+    }
+
+    private final class Lane implements Runnable {
+
+        private final Connection connection;
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        private boolean scheduled;
+        private boolean retired;
+
+        private Lane(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Runnable task;
+
+                synchronized (this) {
+                    task = tasks.poll();
+
+                    if (task == null) {
+                        scheduled = false;
+                        retired = true;
+                        lanes.remove(connection, this);
+                        return;
+                    }
+                }
+
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    log.error("Command of {} failed", connection, e);
+                }
+            }
+        }
+
+    }
+
+}
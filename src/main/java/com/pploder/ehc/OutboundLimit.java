@@ -0,0 +1,90 @@
+package com.pploder.ehc;
+
+import java.util.Objects;
+
+/**
+ * Limits the outgoing messages of a connection that the client has not received yet.
+ * A message counts against the budget from the moment it is sent until the client has acknowledged it.
+ * Messages that do not fit into the budget are held back and the {@link OverflowPolicy} applies once the held
+ * back messages would exceed the budget as well.
+ * When messages are coalesced (see {@link HttpNetModule#enableCoalescing()}) every frame counts as one message.
+ * <p>
+ * Instances are immutable.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+public class OutboundLimit {
+
+    /**
+     * The default amount of unacknowledged messages.
+     */
+    public static final int DEFAULT_MAX_MESSAGES = 1024;
+
+    /**
+     * The default unacknowledged encoded size.
+     * The size is measured in characters for {@link WireFormat#JSON} and in bytes for {@link WireFormat#BINARY}.
+     */
+    public static final int DEFAULT_MAX_SIZE = 1024 * 1024;
+
+    private final int maxMessages;
+    private final int maxSize;
+    private final OverflowPolicy policy;
+
+    /**
+     * Creates a new instance with the default budget.
+     * The default budget is {@link #DEFAULT_MAX_MESSAGES} messages and {@link #DEFAULT_MAX_SIZE}.
+     *
+     * @param policy The policy for messages that exceed the budget.
+     */
+    public OutboundLimit(OverflowPolicy policy) {
+        this(DEFAULT_MAX_MESSAGES, DEFAULT_MAX_SIZE, policy);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxMessages The maximum amount of unacknowledged messages.
+     * @param maxSize     The maximum unacknowledged encoded size (characters for {@link WireFormat#JSON},
+     *                    bytes for {@link WireFormat#BINARY}).
+     * @param policy      The policy for messages that exceed the budget.
+     * @throws IllegalArgumentException If a maximum is not positive.
+     */
+    public OutboundLimit(int maxMessages, int maxSize, OverflowPolicy policy) throws IllegalArgumentException {
+        if (maxMessages < 1 || maxSize < 1) {
+            throw new IllegalArgumentException("The budget must be positive");
+        }
+
+        this.maxMessages = maxMessages;
+        this.maxSize = maxSize;
+        this.policy = Objects.requireNonNull(policy);
+    }
+
+    /**
+     * @return The maximum amount of unacknowledged messages.
+     */
+    public int getMaxMessages() {
+        return maxMessages;
+    }
+
+    /**
+     * @return The maximum unacknowledged encoded size.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return The policy for messages that exceed the budget.
+     */
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OutboundLimit{maxMessages=%d, maxSize=%d, policy=%s}", maxMessages, maxSize, policy);
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.pploder.ehc;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * The options for the outgoing messages of websocket connections.
+ * <p>
+ * Instances are immutable.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+class OutboundOptions {
+
+    /**
+     * Every message is sent immediately in its own frame without limits.
+     */
+    static final OutboundOptions DEFAULT = new OutboundOptions(null, null, 0, null, null, null, 0);
+
+    private final ScheduledExecutorService scheduler;
+    private final Duration coalescingWindow;
+    private final int coalescingThreshold;
+    private final OutboundLimit limit;
+    private final FrameCompression compression;
+    private final SessionResume resume;
+    private final int maxFrameSize;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param scheduler           The scheduler for coalescing or {@code null} if messages are not coalesced.
+     * @param coalescingWindow    The maximum time a message is held back for coalescing.
+     * @param coalescingThreshold The size after which coalesced messages are sent immediately.
+     * @param limit               The limit of unacknowledged messages or {@code null}.
+     * @param compression         The compression of frames or {@code null} if frames are not compressed.
+     * @param resume              The options for resuming sessions or {@code null} if sessions can not be resumed.
+     * @param maxFrameSize        The size after which frames are fragmented (see {@link FrameFragmenter}) or
+     *                            {@code 0} if frames are not fragmented.
+     */
+    OutboundOptions(ScheduledExecutorService scheduler, Duration coalescingWindow, int coalescingThreshold,
+                    OutboundLimit limit, FrameCompression compression, SessionResume resume, int maxFrameSize) {
+        this.scheduler = scheduler;
+        this.coalescingWindow = scheduler == null ? null : Objects.requireNonNull(coalescingWindow);
+        this.coalescingThreshold = coalescingThreshold;
+        this.limit = limit;
+        this.compression = compression;
+        this.resume = resume;
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    /**
+     * @return The scheduler for coalescing or {@code null} if messages are not coalesced.
+     */
+    ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * @return The maximum time a message is held back for coalescing.
+     */
+    Duration getCoalescingWindow() {
+        return coalescingWindow;
+    }
+
+    /**
+     * @return The size after which coalesced messages are sent immediately.
+     */
+    int getCoalescingThreshold() {
+        return coalescingThreshold;
+    }
+
+    /**
+     * @return The limit of unacknowledged messages or {@code null}.
+     */
+    OutboundLimit getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return The compression of frames or {@code null} if frames are not compressed.
+     */
+    FrameCompression getCompression() {
+        return compression;
+    }
+
+    /**
+     * @return The options for resuming sessions or {@code null} if sessions can not be resumed.
+     */
+    SessionResume getResume() {
+        return resume;
+    }
+
+    /**
+     * @return The size after which frames are fragmented or {@code 0} if frames are not fragmented.
+     */
+    int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
+}
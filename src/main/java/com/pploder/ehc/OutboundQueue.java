@@ -0,0 +1,258 @@
+package com.pploder.ehc;
+
+import lombok.extern.slf4j.XSlf4j;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Enforces an {@link OutboundLimit} on the frames of a connection.
+ * <p>
+ * The websocket server does not report when a frame has been written, so the client acknowledges frames instead:
+ * after frames have been written a ping is sent that carries the amount of frames and characters written so far.
+ * The client answers it with a pong once it has read everything before the ping, which acknowledges those frames.
+ * Only one ping is outstanding at a time.
+ * <p>
+ * Instances are thread-safe.
+ *
+ * @param <F> The type of the frames.
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+@XSlf4j
+class OutboundQueue<F> {
+
+    private static final byte PROBE_MARKER = 'F';
+    private static final int PROBE_LENGTH = 1 + 2 * Long.BYTES;
+
+    private final FrameCodec<F> codec;
+    private final Consumer<F> sink;
+    private final Consumer<byte[]> pinger;
+    private final Runnable disconnect;
+    private final BooleanSupplier mayBlock;
+    private final int maxMessages;
+    private final int maxSize;
+    private final OverflowPolicy policy;
+
+    private final Deque<F> queue = new ArrayDeque<>();
+    private long queuedSize;
+
+    private long sentMessages;
+    private long sentSize;
+    private long acknowledgedMessages;
+    private long acknowledgedSize;
+    private long droppedMessages;
+
+    private boolean probing;
+    private boolean closed;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param codec      The codec of the frames.
+     * @param sink       Writes a frame to the client.
+     * @param pinger     Sends a ping with the given payload to the client.
+     * @param disconnect Closes the connection.
+     * @param mayBlock   Whether the current thread may wait for the client.
+     * @param limit      The budget and overflow policy.
+     */
+    public OutboundQueue(FrameCodec<F> codec, Consumer<F> sink, Consumer<byte[]> pinger, Runnable disconnect,
+                         BooleanSupplier mayBlock, OutboundLimit limit) {
+        this.codec = Objects.requireNonNull(codec);
+        this.sink = Objects.requireNonNull(sink);
+        this.pinger = Objects.requireNonNull(pinger);
+        this.disconnect = Objects.requireNonNull(disconnect);
+        this.mayBlock = Objects.requireNonNull(mayBlock);
+        this.maxMessages = limit.getMaxMessages();
+        this.maxSize = limit.getMaxSize();
+        this.policy = limit.getPolicy();
+    }
+
+    /**
+     * Sends a frame or holds it back until the client has caught up.
+     * If the budget is exhausted the overflow policy applies.
+     *
+     * If the thread is interrupted while waiting for the client the frame is dropped.
+     *
+     * @param frame The frame.
+     */
+    public synchronized void offer(F frame) {
+        if (closed) {
+            droppedMessages++;
+            return;
+        }
+
+        int size = codec.sizeOf(frame);
+
+        if (queue.isEmpty() && fitsInFlight(size)) {
+            send(frame);
+            return;
+        }
+
+        while (!fitsQueue(size)) {
+            switch (policy) {
+                case BLOCK:
+                    if (mayBlock.getAsBoolean()) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            droppedMessages++;
+                            return;
+                        }
+
+                        if (closed) {
+                            droppedMessages++;
+                            return;
+                        }
+
+                        if (queue.isEmpty() && fitsInFlight(size)) {
+                            send(frame);
+                            return;
+                        }
+
+                        continue;
+                    }
+
+                    // Falls through: the client can only catch up if this thread returns
+                case DROP_NEWEST:
+                    droppedMessages++;
+                    return;
+                case DROP_OLDEST:
+                    if (queue.isEmpty()) {
+                        // Too large to be held back with the frames in flight; wait for them instead
+                        queue.add(frame);
+                        queuedSize += size;
+                        return;
+                    }
+
+                    queuedSize -= codec.sizeOf(queue.poll());
+                    droppedMessages++;
+                    break;
+                case DISCONNECT:
+                    log.info("Client is too slow; closing the connection ({} pending messages)", getPendingMessageCount());
+                    droppedMessages += queue.size() + 1;
+                    close();
+                    disconnect.run();
+                    return;
+            }
+        }
+
+        queue.add(frame);
+        queuedSize += size;
+    }
+
+    /**
+     * Checks whether a frame would be taken without waiting for the client (see {@link OverflowPolicy#BLOCK}).
+     *
+     * @param size The size of the frame.
+     * @return Whether {@link #offer(Object)} returns without waiting.
+     */
+    public synchronized boolean accepts(int size) {
+        return closed || policy != OverflowPolicy.BLOCK || queue.isEmpty() && fitsInFlight(size) || fitsQueue(size);
+    }
+
+    /**
+     * Processes a pong of the client.
+     * Pongs that do not answer a ping of this queue are ignored.
+     *
+     * @param payload The payload of the pong.
+     * @return Whether the pong answered a ping of this queue.
+     */
+    public synchronized boolean acknowledge(byte[] payload) {
+        if (payload == null || payload.length != PROBE_LENGTH || payload[0] != PROBE_MARKER) {
+            return false;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(payload, 1, PROBE_LENGTH - 1);
+        acknowledgedMessages = buffer.getLong();
+        acknowledgedSize = buffer.getLong();
+        probing = false;
+
+        while (!queue.isEmpty() && fitsInFlight(codec.sizeOf(queue.peek()))) {
+            F frame = queue.poll();
+            queuedSize -= codec.sizeOf(frame);
+            write(frame);
+        }
+
+        if (!probing && sentMessages > acknowledgedMessages) {
+            probe();
+        }
+
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Discards all held back frames and releases waiting threads.
+     * Frames offered afterwards are dropped.
+     */
+    public synchronized void close() {
+        closed = true;
+        queue.clear();
+        queuedSize = 0;
+        notifyAll();
+    }
+
+    /**
+     * @return The amount of frames that were written to the client.
+     */
+    public synchronized long getSentMessageCount() {
+        return sentMessages;
+    }
+
+    /**
+     * @return The amount of frames that were written but not acknowledged or held back.
+     */
+    public synchronized long getPendingMessageCount() {
+        return sentMessages - acknowledgedMessages + queue.size();
+    }
+
+    /**
+     * @return The amount of frames that were dropped.
+     */
+    public synchronized long getDroppedMessageCount() {
+        return droppedMessages;
+    }
+
+    private boolean fitsInFlight(int size) {
+        long messages = sentMessages - acknowledgedMessages;
+
+        // A single frame is always allowed so that frames larger than the budget can be sent at all
+        return messages == 0 || (messages < maxMessages && sentSize - acknowledgedSize + size <= maxSize);
+    }
+
+    private boolean fitsQueue(int size) {
+        return sentMessages - acknowledgedMessages + queue.size() < maxMessages
+                && sentSize - acknowledgedSize + queuedSize + size <= maxSize;
+    }
+
+    private void send(F frame) {
+        write(frame);
+
+        if (!probing) {
+            probe();
+        }
+    }
+
+    private void write(F frame) {
+        sink.accept(frame);
+        sentMessages++;
+        sentSize += codec.sizeOf(frame);
+    }
+
+    private void probe() {
+        probing = true;
+        pinger.accept(ByteBuffer.allocate(PROBE_LENGTH)
+                .put(PROBE_MARKER)
+                .putLong(sentMessages)
+                .putLong(sentSize)
+                .array());
+    }
+
+}
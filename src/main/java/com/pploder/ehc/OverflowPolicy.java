@@ -0,0 +1,34 @@
+package com.pploder.ehc;
+
+/**
+ * Decides what happens to an outgoing message when the outbound budget of a connection is exhausted
+ * (see {@link OutboundLimit}).
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+public enum OverflowPolicy {
+
+    /**
+     * The sending thread waits until the client has caught up.
+     * Threads that handle network I/O cannot wait for the client; for them the message is dropped instead.
+     */
+    BLOCK,
+
+    /**
+     * The oldest message that has not been sent yet is dropped in favour of the new one.
+     */
+    DROP_OLDEST,
+
+    /**
+     * The new message is dropped.
+     */
+    DROP_NEWEST,
+
+    /**
+     * The connection is closed.
+     */
+    DISCONNECT
+
+}
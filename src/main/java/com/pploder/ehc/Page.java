@@ -2,10 +2,14 @@ package com.pploder.ehc;
 
 import lombok.Data;
 
+import java.time.Instant;
+
 /**
  * Represents content that is either binary or plain text.
  * Will be delivered with a HTTP response code and the MIME content type.
  * The boolean {@link #site} determines whether the page is the primary interface.
+ * Optionally a {@code Cache-Control} policy (see {@link CacheControl}), a modification time and an entity tag
+ * can be set. Content supplied as {@link EncodedContent} carries its own entity tags.
  */
 @Data
 public class Page {
@@ -15,4 +19,8 @@ public class Page {
     private final String mime;
     private final boolean site;
 
+    private String cacheControl;
+    private Instant lastModified;
+    private String entityTag;
+
 }
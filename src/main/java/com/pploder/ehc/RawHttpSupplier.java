@@ -1,10 +1,13 @@
 package com.pploder.ehc;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.function.Supplier;
 
 /**
  * A supplier of raw binary data.
- * The data is kept as a byte-array.
+ * The data is kept as a byte-array together with its precompressed forms (see {@link EncodedContent}).
+ * The time of creation is reported as the modification time of the data.
  *
  * @author Philipp Ploder
  * @version 2.0.0
@@ -18,9 +21,11 @@ public class RawHttpSupplier implements Supplier<Page> {
      */
     public static final int DEFAULT_RESPONSE_CODE = 200;
 
-    private final byte[] data;
+    private final EncodedContent content;
+    private final Instant lastModified;
     private int responseCode;
     private String mime;
+    private String cacheControl;
 
     /**
      * Creates a new instance with the given data and MIME-type as well as the default response code.
@@ -41,21 +46,46 @@ public class RawHttpSupplier implements Supplier<Page> {
      * @param mime         The MIME-type of the resource.
      */
     public RawHttpSupplier(byte[] data, int responseCode, String mime) {
-        this.data = data;
+        this(data, responseCode, mime, CacheControl.NO_CACHE);
+    }
+
+    /**
+     * Creates a new instance with the given data, response code, MIME-type and {@code Cache-Control} policy.
+     *
+     * @param data         The raw binary data of the resource.
+     * @param responseCode The HTTP response code of the resource.
+     * @param mime         The MIME-type of the resource.
+     * @param cacheControl The {@code Cache-Control} policy of the resource (see {@link CacheControl}).
+     */
+    public RawHttpSupplier(byte[] data, int responseCode, String mime, String cacheControl) {
+        this.content = new EncodedContent(data);
+        this.lastModified = Instant.now().truncatedTo(ChronoUnit.SECONDS);
         this.responseCode = responseCode;
         this.mime = mime;
+        this.cacheControl = cacheControl;
     }
 
     @Override
     public Page get() {
-        return new Page(getData(), getResponseCode(), getMime(), false);
+        Page page = new Page(getContent(), getResponseCode(), getMime(), false);
+        page.setCacheControl(getCacheControl());
+        page.setLastModified(getLastModified());
+
+        return page;
     }
 
     /**
      * @return The binary data of the resource.
      */
     public byte[] getData() {
-        return data;
+        return content.getIdentity();
+    }
+
+    /**
+     * @return The binary data of the resource in all of its encodings.
+     */
+    public EncodedContent getContent() {
+        return content;
     }
 
     /**
@@ -72,4 +102,18 @@ public class RawHttpSupplier implements Supplier<Page> {
         return mime;
     }
 
+    /**
+     * @return The {@code Cache-Control} policy of the resource.
+     */
+    public String getCacheControl() {
+        return cacheControl;
+    }
+
+    /**
+     * @return The modification time of the resource.
+     */
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
 }
@@ -0,0 +1,113 @@
+package com.pploder.ehc;
+
+import java.util.function.Consumer;
+
+/**
+ * A ring buffer of the most recent frames of a session.
+ * Every frame that is appended gets the next sequence number (starting at one). The oldest frames are evicted
+ * once the buffer holds too many frames or their total size exceeds the maximum.
+ * <p>
+ * Instances are thread-safe. Callers that need several operations to happen atomically synchronize on the
+ * instance.
+ *
+ * @param <F> The type of the frames.
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+class ReplayBuffer<F> {
+
+    private final Object[] frames;
+    private final int[] sizes;
+    private final long maxSize;
+
+    private int head;
+    private int count;
+    private long size;
+    private long nextSequence = 1;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxFrames The maximum amount of frames.
+     * @param maxSize   The maximum total size of the frames. A single larger frame is still kept.
+     */
+    ReplayBuffer(int maxFrames, long maxSize) {
+        this.frames = new Object[maxFrames];
+        this.sizes = new int[maxFrames];
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Appends a frame and evicts the oldest frames if necessary.
+     *
+     * @param frame     The frame.
+     * @param frameSize The size of the frame.
+     * @return The sequence number of the frame.
+     */
+    synchronized long append(F frame, int frameSize) {
+        while (count > 0 && (count == frames.length || size + frameSize > maxSize)) {
+            size -= sizes[head];
+            frames[head] = null;
+            head = (head + 1) % frames.length;
+            count--;
+        }
+
+        int tail = (head + count) % frames.length;
+        frames[tail] = frame;
+        sizes[tail] = frameSize;
+        size += frameSize;
+        count++;
+
+        return nextSequence++;
+    }
+
+    /**
+     * Passes the frames that follow the given sequence number and are still buffered to the sink.
+     *
+     * @param received The sequence number of the last frame the client received.
+     * @param sink     The sink.
+     * @return The sequence number of the first frame that was passed (or of the next frame if none was passed).
+     */
+    @SuppressWarnings("unchecked")
+    synchronized long replay(long received, Consumer<F> sink) {
+        long first = firstAfter(received);
+
+        for (long sequence = first; sequence < nextSequence; sequence++) {
+            int index = (int) ((head + (sequence - getFirstSequence())) % frames.length);
+            sink.accept((F) frames[index]);
+        }
+
+        return first;
+    }
+
+    /**
+     * @param received The sequence number of the last frame the client received.
+     * @return The sequence number of the first frame that {@link #replay(long, Consumer)} would pass.
+     */
+    synchronized long firstAfter(long received) {
+        return Math.min(Math.max(received + 1, getFirstSequence()), nextSequence);
+    }
+
+    /**
+     * @return The sequence number of the oldest buffered frame (or of the next frame if the buffer is empty).
+     */
+    synchronized long getFirstSequence() {
+        return nextSequence - count;
+    }
+
+    /**
+     * @return The sequence number that the next frame will get.
+     */
+    synchronized long getNextSequence() {
+        return nextSequence;
+    }
+
+    /**
+     * @return The amount of buffered frames.
+     */
+    synchronized int getCount() {
+        return count;
+    }
+
+}
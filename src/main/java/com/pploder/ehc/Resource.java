@@ -27,4 +27,11 @@ public interface Resource {
      */
     String getMime();
 
+    /**
+     * @return The {@code Cache-Control} policy of the resource. By default {@link CacheControl#NO_CACHE}.
+     */
+    default String getCacheControl() {
+        return CacheControl.NO_CACHE;
+    }
+
 }
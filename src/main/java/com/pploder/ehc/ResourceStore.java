@@ -0,0 +1,325 @@
+package com.pploder.ehc;
+
+import lombok.extern.slf4j.XSlf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Loads {@link Resource}s from the classpath when they are first requested and keeps them for later requests.
+ * <p>
+ * Resources are read as streams, so they can be served from within (shaded) jars. Resources that are located
+ * on the file system and are at least {@link #DEFAULT_MAPPING_THRESHOLD} bytes large are memory-mapped
+ * (see {@link MappedFileSupplier}) instead of being read onto the heap. All other resources are kept
+ * in memory together with their compressed forms (see {@link RawHttpSupplier}).
+ * <p>
+ * Resources that do not exist are remembered as missing, so they are not looked up again. Resources that cannot be
+ * read are not kept and are read again when they are requested next.
+ * <p>
+ * Files outside of the classpath (see {@link #loadFile(Path, String, String)}) are handled the same way and are
+ * loaded again when their size or modification time changes. The kept files are bounded by the file cache size
+ * (the size of their in-memory forms or of their mappings); the least recently used files are discarded first and
+ * files that are larger than the whole cache are not kept at all. Files that no longer exist are discarded.
+ * <p>
+ * Instances are thread-safe.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+@XSlf4j
+public class ResourceStore {
+
+    /**
+     * The default size from which file system resources are memory-mapped.
+     */
+    public static final long DEFAULT_MAPPING_THRESHOLD = 256 * 1024;
+
+    /**
+     * The default total size of the kept files.
+     */
+    public static final long DEFAULT_FILE_CACHE_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Kept in place of resources that do not exist.
+     */
+    private static final Supplier<Page> MISSING = () -> null;
+
+    private final Map<Resource, Supplier<Page>> loaded = new ConcurrentHashMap<>();
+    private final long mappingThreshold;
+    private final long fileCacheSize;
+
+    /**
+     * The kept files in access order. Guarded by itself.
+     */
+    private final LinkedHashMap<Path, LoadedFile> loadedFiles = new LinkedHashMap<>(16, 0.75f, true);
+    private long loadedFilesSize;
+
+    /**
+     * Creates a new instance with the default mapping threshold.
+     * The default mapping threshold is {@link #DEFAULT_MAPPING_THRESHOLD}.
+     */
+    public ResourceStore() {
+        this(DEFAULT_MAPPING_THRESHOLD);
+    }
+
+    /**
+     * Creates a new instance with the given mapping threshold and the default file cache size.
+     * The default file cache size is {@link #DEFAULT_FILE_CACHE_SIZE}.
+     *
+     * @param mappingThreshold The size in bytes from which file system resources are memory-mapped.
+     */
+    public ResourceStore(long mappingThreshold) {
+        this(mappingThreshold, DEFAULT_FILE_CACHE_SIZE);
+    }
+
+    /**
+     * Creates a new instance with the given mapping threshold and file cache size.
+     *
+     * @param mappingThreshold The size in bytes from which file system resources are memory-mapped.
+     * @param fileCacheSize    The total size in bytes of the files that are kept.
+     */
+    public ResourceStore(long mappingThreshold, long fileCacheSize) {
+        this.mappingThreshold = mappingThreshold;
+        this.fileCacheSize = fileCacheSize;
+    }
+
+    /**
+     * Creates a supplier that loads the resource on its first invocation.
+     * The supplier returns {@code null} if the resource does not exist.
+     *
+     * @param resource The resource.
+     * @return A lazily loading supplier of the resource.
+     */
+    public Supplier<Page> lazy(Resource resource) {
+        return () -> {
+            Supplier<Page> supplier = load(resource);
+
+            return supplier == null ? null : supplier.get();
+        };
+    }
+
+    /**
+     * Loads the resource unless it was loaded before.
+     *
+     * @param resource The resource.
+     * @return The supplier of the resource or {@code null} if it does not exist.
+     * @throws UncheckedIOException If the resource cannot be read.
+     */
+    public Supplier<Page> load(Resource resource) throws UncheckedIOException {
+        Supplier<Page> supplier = loaded.computeIfAbsent(resource, this::read);
+
+        return supplier == MISSING ? null : supplier;
+    }
+
+    /**
+     * Loads a file unless it was loaded before and has not changed since.
+     *
+     * @param path         The file.
+     * @param mime         The MIME-type of the file.
+     * @param cacheControl The {@code Cache-Control} policy of the file (see {@link CacheControl}).
+     * @return The supplier of the file.
+     * @throws IOException If the file does not exist or cannot be read.
+     */
+    public Supplier<Page> loadFile(Path path, String mime, String cacheControl) throws IOException {
+        long size;
+        long modified;
+
+        try {
+            size = Files.size(path);
+            modified = Files.getLastModifiedTime(path).toMillis();
+        } catch (NoSuchFileException e) {
+            evictFile(path);
+            throw e;
+        }
+
+        LoadedFile file;
+
+        synchronized (loadedFiles) {
+            file = loadedFiles.get(path);
+        }
+
+        if (file != null && file.size == size && file.modified == modified) {
+            return file.supplier;
+        }
+
+        log.debug("Loading file {}", path);
+
+        Supplier<Page> supplier;
+        long weight;
+
+        if (size >= mappingThreshold) {
+            supplier = new MappedFileSupplier(path, mime, cacheControl);
+            weight = size;
+        } else {
+            RawHttpSupplier raw = new RawHttpSupplier(Files.readAllBytes(path), RawHttpSupplier.DEFAULT_RESPONSE_CODE,
+                    mime, cacheControl);
+            supplier = raw;
+            weight = weightOf(raw.getContent());
+        }
+
+        synchronized (loadedFiles) {
+            LoadedFile previous = loadedFiles.remove(path);
+
+            if (previous != null) {
+                loadedFilesSize -= previous.weight;
+            }
+
+            if (weight <= fileCacheSize) {
+                loadedFiles.put(path, new LoadedFile(size, modified, weight, supplier));
+                loadedFilesSize += weight;
+
+                Iterator<LoadedFile> eldest = loadedFiles.values().iterator();
+
+                while (loadedFilesSize > fileCacheSize) {
+                    loadedFilesSize -= eldest.next().weight;
+                    eldest.remove();
+                }
+            }
+        }
+
+        return supplier;
+    }
+
+    /**
+     * Discards a kept file, for example because it has been deleted.
+     *
+     * @param path The file.
+     */
+    public void evictFile(Path path) {
+        synchronized (loadedFiles) {
+            LoadedFile file = loadedFiles.remove(path);
+
+            if (file != null) {
+                loadedFilesSize -= file.weight;
+            }
+        }
+    }
+
+    /**
+     * @return The total size in bytes of the kept files.
+     */
+    public long getFileCacheUsage() {
+        synchronized (loadedFiles) {
+            return loadedFilesSize;
+        }
+    }
+
+    /**
+     * Discards all loaded resources and files. They will be loaded again when requested.
+     */
+    public void clear() {
+        loaded.clear();
+
+        synchronized (loadedFiles) {
+            loadedFiles.clear();
+            loadedFilesSize = 0;
+        }
+    }
+
+    private Supplier<Page> read(Resource resource) {
+        log.debug("Loading resource {}", resource.getPath());
+
+        URL url = Resource.class.getResource(resource.getPath());
+
+        if (url == null) {
+            log.warn("Resource {} not found", resource.getPath());
+            return MISSING;
+        }
+
+        try {
+            if ("file".equals(url.getProtocol())) {
+                Path path = Paths.get(url.toURI());
+
+                if (Files.size(path) >= mappingThreshold) {
+                    return new MappedFileSupplier(path, resource.getMime(), resource.getCacheControl());
+                }
+            }
+
+            try (InputStream in = url.openStream()) {
+                return new RawHttpSupplier(readFully(in), RawHttpSupplier.DEFAULT_RESPONSE_CODE,
+                        resource.getMime(), resource.getCacheControl());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads a classpath resource relative to {@link Resource}.
+     *
+     * @param classResource The classpath location.
+     * @return The content of the resource.
+     * @throws IOException If the resource does not exist or cannot be read.
+     */
+    static byte[] readClassResource(String classResource) throws IOException {
+        try (InputStream in = Resource.class.getResourceAsStream(classResource)) {
+            if (in == null) {
+                throw new IOException("Resource not found: " + classResource);
+            }
+
+            return readFully(in);
+        }
+    }
+
+    /**
+     * @return The size of all forms of the content.
+     */
+    private static long weightOf(EncodedContent content) {
+        long weight = 0;
+
+        for (ContentEncoding encoding : ContentEncoding.values()) {
+            byte[] data = content.get(encoding);
+
+            if (data != null) {
+                weight += data.length;
+            }
+        }
+
+        return weight;
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+
+        return out.toByteArray();
+    }
+
+    private static final class LoadedFile {
+
+        private final long size;
+        private final long modified;
+        private final long weight;
+        private final Supplier<Page> supplier;
+
+        private LoadedFile(long size, long modified, long weight, Supplier<Page> supplier) {
+            this.size = size;
+            this.modified = modified;
+            this.weight = weight;
+            this.supplier = supplier;
+        }
+
+    }
+
+}
@@ -0,0 +1,162 @@
+package com.pploder.ehc;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A character sequence that is the concatenation of other sequences (pieces).
+ * The characters of the pieces are not copied; encoders walk the pieces directly (see {@link #getPieceCount()}) and
+ * the whole text is only materialized by {@link #toString()}.
+ * <p>
+ * Instances are immutable as long as their pieces are not modified.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+final class Rope implements CharSequence {
+
+    private final CharSequence[] pieces;
+
+    /**
+     * The offset of every piece followed by the total length.
+     */
+    private final int[] offsets;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param pieces The pieces. The list is copied, the pieces are not.
+     */
+    Rope(List<CharSequence> pieces) {
+        this(pieces.toArray(new CharSequence[0]));
+    }
+
+    private Rope(CharSequence[] pieces) {
+        this.pieces = pieces;
+        this.offsets = new int[pieces.length + 1];
+
+        for (int i = 0; i < pieces.length; i++) {
+            offsets[i + 1] = offsets[i] + pieces[i].length();
+        }
+    }
+
+    /**
+     * Returns a view of a range of a sequence without copying its characters.
+     *
+     * @param text  The sequence.
+     * @param start The start index (inclusive).
+     * @param end   The end index (exclusive).
+     * @return The view.
+     * @throws IndexOutOfBoundsException If the range is invalid.
+     */
+    static CharSequence slice(CharSequence text, int start, int end) throws IndexOutOfBoundsException {
+        if (start < 0 || end < start || end > text.length()) {
+            throw new IndexOutOfBoundsException("Invalid range " + start + " to " + end + " of " + text.length());
+        }
+
+        if (start == 0 && end == text.length()) {
+            return text;
+        }
+
+        if (text instanceof CharBuffer || text instanceof Rope) {
+            return text.subSequence(start, end);
+        }
+
+        return CharBuffer.wrap(text, start, end);
+    }
+
+    /**
+     * @param text A sequence.
+     * @return The amount of pieces of the sequence ({@code 1} if it is not a rope).
+     */
+    static int pieceCount(CharSequence text) {
+        return text instanceof Rope ? ((Rope) text).pieces.length : 1;
+    }
+
+    /**
+     * @param text  A sequence.
+     * @param index The index of the piece.
+     * @return The piece of the sequence (the sequence itself if it is not a rope).
+     */
+    static CharSequence piece(CharSequence text, int index) {
+        return text instanceof Rope ? ((Rope) text).pieces[index] : text;
+    }
+
+    /**
+     * @return The amount of pieces.
+     */
+    int getPieceCount() {
+        return pieces.length;
+    }
+
+    @Override
+    public int length() {
+        return offsets[pieces.length];
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length()) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + length());
+        }
+
+        int piece = pieceAt(index);
+        return pieces[piece].charAt(index - offsets[piece]);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end < start || end > length()) {
+            throw new IndexOutOfBoundsException("Invalid range " + start + " to " + end + " of " + length());
+        }
+
+        if (start == end) {
+            return "";
+        }
+
+        int first = pieceAt(start);
+        int last = pieceAt(end - 1);
+
+        if (first == last) {
+            return slice(pieces[first], start - offsets[first], end - offsets[first]);
+        }
+
+        CharSequence[] sliced = Arrays.copyOfRange(pieces, first, last + 1);
+        sliced[0] = slice(pieces[first], start - offsets[first], pieces[first].length());
+        sliced[sliced.length - 1] = slice(pieces[last], 0, end - offsets[last]);
+
+        return new Rope(sliced);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(length());
+
+        for (CharSequence piece : pieces) {
+            builder.append(piece);
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * @return The index of the piece that contains the character at the given index.
+     */
+    private int pieceAt(int index) {
+        int piece = Arrays.binarySearch(offsets, index);
+
+        if (piece < 0) {
+            return -piece - 2;
+        }
+
+        // Skip empty pieces that start at the same offset
+        while (offsets[piece + 1] == index) {
+            piece++;
+        }
+
+        return piece;
+    }
+
+}
@@ -0,0 +1,21 @@
+package com.pploder.ehc;
+
+/**
+ * Handles HTTP requests for a route registered via {@link HttpNetModule#addRoute(String, String, RouteHandler)}.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+@FunctionalInterface
+public interface RouteHandler {
+
+    /**
+     * Creates the page for a matched request.
+     *
+     * @param match The matched request.
+     * @return The page or {@code null} if there is nothing to serve, which results in a {@code 404} response.
+     */
+    Page handle(RouteMatch match);
+
+}
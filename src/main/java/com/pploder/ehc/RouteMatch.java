@@ -0,0 +1,89 @@
+package com.pploder.ehc;
+
+/**
+ * The result of matching a request against a route.
+ * The path, remainder and parameters are extracted from the request URI when they are first requested.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+public class RouteMatch {
+
+    private final String method;
+    private final String uri;
+    private final int pathEnd;
+    private final int remainderStart;
+    private final String[] parameterNames;
+    private final int[] parameterBounds;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param method          The request method.
+     * @param uri             The request URI including the query.
+     * @param pathEnd         The index at which the path ends.
+     * @param remainderStart  The index at which the part of the path that was matched by a prefix route starts.
+     * @param parameterNames  The names of the parameters.
+     * @param parameterBounds The start and end index of each parameter value.
+     */
+    RouteMatch(String method, String uri, int pathEnd, int remainderStart, String[] parameterNames,
+               int[] parameterBounds) {
+        this.method = method;
+        this.uri = uri;
+        this.pathEnd = pathEnd;
+        this.remainderStart = remainderStart;
+        this.parameterNames = parameterNames;
+        this.parameterBounds = parameterBounds;
+    }
+
+    /**
+     * @return The request method.
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return The request URI including the query.
+     */
+    public String getUri() {
+        return uri;
+    }
+
+    /**
+     * @return The path of the request URI (without the query).
+     */
+    public String getPath() {
+        return uri.substring(0, pathEnd);
+    }
+
+    /**
+     * @return The query of the request URI (without the {@code ?}) or {@code null} if there is none.
+     */
+    public String getQuery() {
+        return pathEnd < uri.length() && uri.charAt(pathEnd) == '?' ? uri.substring(pathEnd + 1) : null;
+    }
+
+    /**
+     * @return The part of the path that was matched by the {@code **} of a prefix route or an empty string.
+     */
+    public String getRemainder() {
+        return remainderStart < pathEnd ? uri.substring(remainderStart, pathEnd) : "";
+    }
+
+    /**
+     * @param name The name of a parameter segment (declared as {@code {name}}).
+     * @return The (still URL encoded) value of the parameter or {@code null} if the route declares no such parameter.
+     */
+    public String getParameter(String name) {
+        for (int i = 0; i < parameterNames.length; i++) {
+            if (parameterNames[i] != null && parameterNames[i].equals(name)) {
+                return uri.substring(parameterBounds[2 * i], parameterBounds[2 * i + 1]);
+            }
+        }
+
+        return null;
+    }
+
+}
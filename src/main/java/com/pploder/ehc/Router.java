@@ -0,0 +1,329 @@
+package com.pploder.ehc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Resolves request URIs to {@link RouteHandler}s.
+ * <p>
+ * Routes are stored in a trie over the path segments. A pattern consists of segments separated by {@code /}:
+ * <ul>
+ * <li>A literal segment matches exactly (e.g. {@code /favicon.ico}).</li>
+ * <li>{@code *} matches any single segment, {@code {name}} does the same and exposes the segment as a
+ * parameter (see {@link RouteMatch#getParameter(String)}).</li>
+ * <li>A trailing {@code **} matches any remaining path (see {@link RouteMatch#getRemainder()}).</li>
+ * </ul>
+ * Literal segments take precedence over parameter segments, which take precedence over prefix routes.
+ * <p>
+ * A lookup walks the path once and ignores the query. Segments are compared in place, so only the match
+ * itself is allocated.
+ * Routes must not be added while lookups are performed concurrently.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+class Router {
+
+    /**
+     * Matches every request method.
+     */
+    static final String ANY_METHOD = "*";
+
+    private static final String PREFIX_SEGMENT = "**";
+    private static final String WILDCARD_SEGMENT = "*";
+    private static final int[] NO_BOUNDS = new int[0];
+
+    private final Node root = new Node();
+    private int maxParameters;
+
+    /**
+     * Adds a route. A route with the same method and pattern is replaced.
+     *
+     * @param method  The request method or {@link #ANY_METHOD}.
+     * @param pattern The pattern. Must start with {@code /}.
+     * @param handler The handler.
+     * @throws IllegalArgumentException If the pattern is invalid.
+     */
+    void add(String method, String pattern, RouteHandler handler) throws IllegalArgumentException {
+        Objects.requireNonNull(method);
+        Objects.requireNonNull(handler);
+
+        if (!pattern.startsWith("/")) {
+            throw new IllegalArgumentException("Pattern must start with '/': " + pattern);
+        }
+
+        String[] segments = pattern.substring(1).split("/", -1);
+        List<String> parameterNames = new ArrayList<>();
+        Node node = root;
+        boolean prefix = false;
+
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+
+            if (segment.equals(PREFIX_SEGMENT)) {
+                if (i != segments.length - 1) {
+                    throw new IllegalArgumentException("'**' must be the last segment: " + pattern);
+                }
+
+                prefix = true;
+            } else if (segment.equals(WILDCARD_SEGMENT)) {
+                node = node.parameterChild();
+                parameterNames.add(null);
+            } else if (segment.startsWith("{") && segment.endsWith("}") && segment.length() > 2) {
+                node = node.parameterChild();
+                parameterNames.add(segment.substring(1, segment.length() - 1));
+            } else {
+                node = node.literalChild(segment);
+            }
+        }
+
+        maxParameters = Math.max(maxParameters, parameterNames.size());
+
+        Route route = new Route(method, handler, parameterNames.toArray(new String[0]));
+
+        if (prefix) {
+            node.prefixRoutes = Route.put(node.prefixRoutes, route);
+        } else {
+            node.routes = Route.put(node.routes, route);
+        }
+    }
+
+    /**
+     * Resolves a request.
+     *
+     * @param method The request method.
+     * @param uri    The request URI.
+     * @return The matched handler or {@code null} if no route matches.
+     */
+    Result match(String method, String uri) {
+        int end = pathEnd(uri);
+
+        if (end == 0 || uri.charAt(0) != '/') {
+            return null;
+        }
+
+        int[] bounds = maxParameters == 0 ? null : new int[2 * maxParameters];
+
+        return find(root, method, uri, 1, end, bounds, 0);
+    }
+
+    /**
+     * Resolves a request and invokes the handler of the matching route.
+     *
+     * @param method The request method.
+     * @param uri    The request URI.
+     * @return The page or {@code null} if no route matches or the handler returned {@code null}.
+     */
+    Page route(String method, String uri) {
+        Result result = match(method, uri);
+
+        return result == null ? null : result.handler.handle(result.match);
+    }
+
+    private Result find(Node node, String method, String uri, int start, int end, int[] bounds, int depth) {
+        if (start > end) {
+            Route route = Route.select(node.routes, method);
+
+            if (route == null) {
+                route = Route.select(node.prefixRoutes, method);
+            }
+
+            return route == null ? null : result(route, method, uri, end, end, bounds);
+        }
+
+        int segmentEnd = uri.indexOf('/', start);
+
+        if (segmentEnd < 0 || segmentEnd > end) {
+            segmentEnd = end;
+        }
+
+        Node literal = node.findLiteralChild(uri, start, segmentEnd);
+
+        if (literal != null) {
+            Result result = find(literal, method, uri, segmentEnd + 1, end, bounds, depth);
+
+            if (result != null) {
+                return result;
+            }
+        }
+
+        if (node.parameter != null) {
+            bounds[2 * depth] = start;
+            bounds[2 * depth + 1] = segmentEnd;
+
+            Result result = find(node.parameter, method, uri, segmentEnd + 1, end, bounds, depth + 1);
+
+            if (result != null) {
+                return result;
+            }
+        }
+
+        Route route = Route.select(node.prefixRoutes, method);
+
+        return route == null ? null : result(route, method, uri, end, start, bounds);
+    }
+
+    private static Result result(Route route, String method, String uri, int end, int remainderStart,
+                                           int[] bounds) {
+        int[] parameterBounds = route.parameterNames.length == 0
+                ? NO_BOUNDS
+                : Arrays.copyOf(bounds, 2 * route.parameterNames.length);
+
+        return new Result(route.handler,
+                new RouteMatch(method, uri, end, remainderStart, route.parameterNames, parameterBounds));
+    }
+
+    private static int pathEnd(String uri) {
+        for (int i = 0; i < uri.length(); i++) {
+            char c = uri.charAt(i);
+
+            if (c == '?' || c == '#') {
+                return i;
+            }
+        }
+
+        return uri.length();
+    }
+
+    /**
+     * The handler of a matched route together with the match.
+     */
+    static final class Result {
+
+        private final RouteHandler handler;
+        private final RouteMatch match;
+
+        private Result(RouteHandler handler, RouteMatch match) {
+            this.handler = handler;
+            this.match = match;
+        }
+
+        /**
+         * @return The handler of the matched route.
+         */
+        RouteHandler getHandler() {
+            return handler;
+        }
+
+        /**
+         * @return The match.
+         */
+        RouteMatch getMatch() {
+            return match;
+        }
+
+    }
+
+    private static final class Node {
+
+        private String[] literals = new String[0];
+        private int[] literalHashes = new int[0];
+        private Node[] literalNodes = new Node[0];
+        private Node parameter;
+        private Route[] routes = new Route[0];
+        private Route[] prefixRoutes = new Route[0];
+
+        private Node literalChild(String segment) {
+            for (int i = 0; i < literals.length; i++) {
+                if (literals[i].equals(segment)) {
+                    return literalNodes[i];
+                }
+            }
+
+            literals = Arrays.copyOf(literals, literals.length + 1);
+            literalHashes = Arrays.copyOf(literalHashes, literalHashes.length + 1);
+            literalNodes = Arrays.copyOf(literalNodes, literalNodes.length + 1);
+            literals[literals.length - 1] = segment;
+            literalHashes[literalHashes.length - 1] = segment.hashCode();
+            literalNodes[literalNodes.length - 1] = new Node();
+
+            return literalNodes[literalNodes.length - 1];
+        }
+
+        private Node parameterChild() {
+            if (parameter == null) {
+                parameter = new Node();
+            }
+
+            return parameter;
+        }
+
+        private Node findLiteralChild(String uri, int start, int end) {
+            if (literals.length == 0) {
+                return null;
+            }
+
+            // Same hash as String#hashCode, computed in place to avoid creating a substring
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + uri.charAt(i);
+            }
+
+            int length = end - start;
+
+            for (int i = 0; i < literals.length; i++) {
+                if (literalHashes[i] == hash && literals[i].length() == length
+                        && uri.regionMatches(start, literals[i], 0, length)) {
+                    return literalNodes[i];
+                }
+            }
+
+            return null;
+        }
+
+    }
+
+    private static final class Route {
+
+        private final String method;
+        private final RouteHandler handler;
+        private final String[] parameterNames;
+
+        private Route(String method, RouteHandler handler, String[] parameterNames) {
+            this.method = method;
+            this.handler = handler;
+            this.parameterNames = parameterNames;
+        }
+
+        private static Route[] put(Route[] routes, Route route) {
+            for (int i = 0; i < routes.length; i++) {
+                if (routes[i].method.equalsIgnoreCase(route.method)) {
+                    routes[i] = route;
+                    return routes;
+                }
+            }
+
+            Route[] extended = Arrays.copyOf(routes, routes.length + 1);
+            extended[routes.length] = route;
+
+            return extended;
+        }
+
+        private static Route select(Route[] routes, String method) {
+            Route any = null;
+            Route get = null;
+
+            for (Route route : routes) {
+                if (route.method.equalsIgnoreCase(method)) {
+                    return route;
+                } else if (route.method.equals(ANY_METHOD)) {
+                    any = route;
+                } else if (route.method.equalsIgnoreCase("GET")) {
+                    get = route;
+                }
+            }
+
+            if (any != null) {
+                return any;
+            }
+
+            // HEAD requests are answered like GET requests
+            return "HEAD".equalsIgnoreCase(method) ? get : null;
+        }
+
+    }
+
+}
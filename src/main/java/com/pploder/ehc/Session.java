@@ -0,0 +1,278 @@
+package com.pploder.ehc;
+
+import org.webbitserver.WebSocketConnection;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * The outgoing side of a connection that may outlive its websocket connection (see {@link SessionResume}).
+ * While a websocket connection is attached, messages are sent through its {@link FramePipeline}. The frames
+ * that are written are recorded in the replay buffer. While no websocket connection is attached, the messages are
+ * encoded and recorded only. A client that resumes the session receives the recorded frames it missed.
+ * <p>
+ * When a client opens or resumes a session it is first sent a control frame, a JSON object with the session token
+ * and the sequence number of the next frame: {@code {"session":"<token>","sequence":<number>}}. The client counts
+ * the data frames it receives from there on. The control frame is written through the pipeline of the connection
+ * but is never compressed (see {@link FramePipeline#sendControl(String)}).
+ * <p>
+ * A session without resume has neither token nor replay buffer and simply forwards to its pipeline.
+ * Instances are thread-safe.
+ *
+ * @param <F> The type of the frames.
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+class Session<F> {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int TOKEN_LENGTH = 16;
+
+    private final FrameCodec<F> codec;
+    private final OutboundOptions options;
+    private final String token;
+    private final ReplayBuffer<F> replay;
+
+    private volatile WebSocketConnection connection;
+    private volatile FramePipeline<F> pipeline;
+    private boolean ended;
+
+    /**
+     * Creates a new session and attaches the websocket connection.
+     * Must be invoked on the thread that handles the events of the connection.
+     *
+     * @param codec      The codec of the wire format.
+     * @param connection The websocket connection.
+     * @param options    The options.
+     * @param compressed Whether the client requested compression.
+     */
+    Session(FrameCodec<F> codec, WebSocketConnection connection, OutboundOptions options, boolean compressed) {
+        this.codec = Objects.requireNonNull(codec);
+        this.options = Objects.requireNonNull(options);
+        this.connection = Objects.requireNonNull(connection);
+
+        SessionResume resume = options.getResume();
+
+        if (resume == null) {
+            token = null;
+            replay = null;
+            pipeline = new FramePipeline<>(codec, connection, options, compressed, null);
+        } else {
+            byte[] random = new byte[TOKEN_LENGTH];
+            RANDOM.nextBytes(random);
+
+            token = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+            replay = new ReplayBuffer<>(resume.getReplayFrames(), resume.getReplaySize());
+            pipeline = new FramePipeline<>(codec, connection, options, compressed, this::record);
+
+            pipeline.sendControl(control(replay.getNextSequence()));
+        }
+    }
+
+    /**
+     * Sends a message or records it while no websocket connection is attached.
+     *
+     * @param message The message.
+     */
+    void send(EncodedMessage message) {
+        FramePipeline<F> pipeline = this.pipeline;
+
+        if (pipeline == null) {
+            if (replay != null) {
+                record(codec.encode(message));
+            }
+        } else {
+            pipeline.send(message);
+        }
+    }
+
+    /**
+     * Records a frame that is ready to be written and writes it to the attached websocket connection.
+     * Frames are written through the pipeline that is currently attached, so frames that an old pipeline releases
+     * after the session has been resumed still reach the client in order.
+     */
+    private void record(F frame) {
+        synchronized (replay) {
+            if (ended) {
+                return;
+            }
+
+            // The sequence numbers must match the order in which the client receives the frames
+            replay.append(frame, codec.sizeOf(frame));
+
+            FramePipeline<F> pipeline = this.pipeline;
+
+            if (pipeline != null) {
+                pipeline.resend(frame);
+            }
+        }
+    }
+
+    /**
+     * Attaches the websocket connection of a resuming client and sends it the frames it missed.
+     * A websocket connection that is still attached is replaced.
+     * Must be invoked on the thread that handles the events of the new connection.
+     *
+     * @param connection The new websocket connection.
+     * @param compressed Whether the client requested compression.
+     * @param received   The sequence number of the last frame the client received.
+     * @return The replaced websocket connection or {@code null} if the session was detached.
+     * @throws IllegalStateException If the session has ended.
+     */
+    WebSocketConnection resume(WebSocketConnection connection, boolean compressed, long received)
+            throws IllegalStateException {
+        FramePipeline<F> previous = this.pipeline;
+
+        if (previous != null) {
+            // Frames that are still coalesced get recorded and replayed
+            previous.flush();
+        }
+
+        FramePipeline<F> next = new FramePipeline<>(codec, connection, options, compressed, this::record);
+        WebSocketConnection previousConnection;
+
+        synchronized (replay) {
+            if (ended) {
+                throw new IllegalStateException("The session has ended");
+            }
+
+            next.sendControl(control(replay.firstAfter(received)));
+            replay.replay(received, next::resend);
+
+            previous = this.pipeline;
+            previousConnection = previous == null ? null : this.connection;
+
+            this.connection = connection;
+            this.pipeline = next;
+        }
+
+        if (previous != null) {
+            previous.closed();
+        }
+
+        return previousConnection;
+    }
+
+    /**
+     * Detaches a websocket connection that was closed. Messages are recorded until the session is resumed.
+     *
+     * @param connection The websocket connection that was closed.
+     * @return Whether the connection was attached.
+     */
+    boolean detach(WebSocketConnection connection) {
+        FramePipeline<F> pipeline = this.pipeline;
+
+        if (this.connection != connection || pipeline == null) {
+            return false;
+        }
+
+        // Frames that are still coalesced get recorded
+        pipeline.flush();
+
+        synchronized (replay) {
+            if (this.pipeline != pipeline) {
+                return false;
+            }
+
+            this.pipeline = null;
+        }
+
+        pipeline.closed();
+        return true;
+    }
+
+    /**
+     * Ends a session that is detached. It can not be resumed afterwards.
+     *
+     * @return Whether the session was detached and has been ended by this call.
+     */
+    boolean expire() {
+        synchronized (replay) {
+            if (ended || pipeline != null) {
+                return false;
+            }
+
+            ended = true;
+            return true;
+        }
+    }
+
+    /**
+     * Ends the session so that it can not be resumed. The attached websocket connection stays attached.
+     */
+    void end() {
+        if (replay != null) {
+            synchronized (replay) {
+                ended = true;
+            }
+        }
+    }
+
+    /**
+     * Releases the resources of the session. A resumable session can not be resumed afterwards.
+     */
+    void closed() {
+        end();
+
+        FramePipeline<F> pipeline = this.pipeline;
+
+        if (pipeline != null) {
+            pipeline.closed();
+        }
+    }
+
+    /**
+     * @return The token of the session or {@code null} if it can not be resumed.
+     */
+    String getToken() {
+        return token;
+    }
+
+    /**
+     * @return Whether the session can be resumed.
+     */
+    boolean isResumable() {
+        return token != null;
+    }
+
+    /**
+     * @return Whether the session has ended.
+     */
+    boolean isEnded() {
+        if (replay == null) {
+            return false;
+        }
+
+        synchronized (replay) {
+            return ended;
+        }
+    }
+
+    /**
+     * @return The currently or last attached websocket connection.
+     */
+    WebSocketConnection getConnection() {
+        return connection;
+    }
+
+    /**
+     * @return The pipeline of the attached websocket connection or {@code null} while detached.
+     */
+    FramePipeline<F> getPipeline() {
+        return pipeline;
+    }
+
+    /**
+     * @return The buffer of the recent frames or {@code null} if the session can not be resumed.
+     */
+    ReplayBuffer<F> getReplayBuffer() {
+        return replay;
+    }
+
+    private String control(long sequence) {
+        return "{\"session\":\"" + token + "\",\"sequence\":" + sequence + "}";
+    }
+
+}
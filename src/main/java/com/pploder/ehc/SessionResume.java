@@ -0,0 +1,108 @@
+package com.pploder.ehc;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Lets clients resume their session after the websocket connection was interrupted.
+ * The server keeps the most recent frames of every session in a replay buffer. A client that reconnects within
+ * the resume timeout presents its session token and the sequence number of the last frame it received and is sent
+ * only the frames it missed. The {@link Connection} of the session stays the same, so commands that are still
+ * running keep writing to the client.
+ * <p>
+ * Sessions that are not resumed within the timeout are closed and reported like closed connections.
+ * Frames that were evicted from the replay buffer before the client resumed are lost; the client is told how
+ * many.
+ * <p>
+ * Instances are immutable.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+public class SessionResume {
+
+    /**
+     * The name of the query parameter in which the client presents its session token.
+     */
+    public static final String SESSION_PARAMETER = "session";
+
+    /**
+     * The name of the query parameter in which the client presents the sequence number of the last frame it
+     * received.
+     */
+    public static final String RECEIVED_PARAMETER = "received";
+
+    /**
+     * The default time for which a disconnected session can be resumed.
+     */
+    public static final Duration DEFAULT_RESUME_TIMEOUT = Duration.ofSeconds(60);
+
+    /**
+     * The default amount of frames that are kept per session.
+     */
+    public static final int DEFAULT_REPLAY_FRAMES = 1024;
+
+    /**
+     * The default encoded size of the frames that are kept per session.
+     * The size is measured in characters for {@link WireFormat#JSON} and in bytes for {@link WireFormat#BINARY}.
+     */
+    public static final int DEFAULT_REPLAY_SIZE = 1024 * 1024;
+
+    private final Duration resumeTimeout;
+    private final int replayFrames;
+    private final int replaySize;
+
+    /**
+     * Creates a new instance with the default timeout and replay buffer.
+     * The defaults are {@link #DEFAULT_RESUME_TIMEOUT}, {@link #DEFAULT_REPLAY_FRAMES} and
+     * {@link #DEFAULT_REPLAY_SIZE}.
+     */
+    public SessionResume() {
+        this(DEFAULT_RESUME_TIMEOUT, DEFAULT_REPLAY_FRAMES, DEFAULT_REPLAY_SIZE);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param resumeTimeout The time for which a disconnected session can be resumed.
+     * @param replayFrames  The maximum amount of frames that are kept per session.
+     * @param replaySize    The maximum encoded size of the frames that are kept per session.
+     * @throws IllegalArgumentException If the timeout or a maximum is not positive.
+     */
+    public SessionResume(Duration resumeTimeout, int replayFrames, int replaySize) throws IllegalArgumentException {
+        if (resumeTimeout.isNegative() || resumeTimeout.isZero()) {
+            throw new IllegalArgumentException("The resume timeout must be positive");
+        }
+
+        if (replayFrames < 1 || replaySize < 1) {
+            throw new IllegalArgumentException("The replay buffer must be positive");
+        }
+
+        this.resumeTimeout = Objects.requireNonNull(resumeTimeout);
+        this.replayFrames = replayFrames;
+        this.replaySize = replaySize;
+    }
+
+    /**
+     * @return The time for which a disconnected session can be resumed.
+     */
+    public Duration getResumeTimeout() {
+        return resumeTimeout;
+    }
+
+    /**
+     * @return The maximum amount of frames that are kept per session.
+     */
+    public int getReplayFrames() {
+        return replayFrames;
+    }
+
+    /**
+     * @return The maximum encoded size of the frames that are kept per session.
+     */
+    public int getReplaySize() {
+        return replaySize;
+    }
+
+}
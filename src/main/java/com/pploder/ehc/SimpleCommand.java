@@ -16,18 +16,32 @@ public class SimpleCommand implements Command {
     private final Message source;
     private final String command;
     private final String[] args;
+    private final CancellationToken cancellationToken;
 
     /**
-     * Creates a new instance using the given arguments.
+     * Creates a new instance using the given arguments and a new cancellation token.
      *
      * @param source The original message.
      * @param name   The name of the command.
      * @param args   The arguments of the command.
      */
     public SimpleCommand(Message source, String name, String[] args) {
+        this(source, name, args, new CancellationToken());
+    }
+
+    /**
+     * Creates a new instance using the given arguments.
+     *
+     * @param source            The original message.
+     * @param name              The name of the command.
+     * @param args              The arguments of the command.
+     * @param cancellationToken The cancellation token of the command.
+     */
+    public SimpleCommand(Message source, String name, String[] args, CancellationToken cancellationToken) {
         this.source = Objects.requireNonNull(source);
         this.command = Objects.requireNonNull(name);
         this.args = Objects.requireNonNull(args);
+        this.cancellationToken = Objects.requireNonNull(cancellationToken);
     }
 
     @Override
@@ -55,4 +69,9 @@ public class SimpleCommand implements Command {
         return Arrays.asList(args);
     }
 
+    @Override
+    public CancellationToken getCancellationToken() {
+        return cancellationToken;
+    }
+
 }
@@ -3,11 +3,28 @@ package com.pploder.ehc;
 import edu.rice.cs.util.ArgumentTokenizer;
 import lombok.extern.slf4j.XSlf4j;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * The default implementation of {@link CommandRegistry}.
+ * Messages are parsed on the calling thread while the command listeners are run by the {@link CommandExecutor}
+ * (by default {@link CommandExecutor#DIRECT}). Commands of the same connection are always executed in the order
+ * in which they were received.
+ * <p>
+ * Responses of asynchronous handlers (see {@link #putAsync(String, Function)}) are sent in the order in which
+ * their commands were received, even if a later command completes first. Failures of both kinds of listeners are
+ * passed to the failure listener.
+ * <p>
+ * Commands can be limited by a timeout (per command or globally) and are cancelled when the client sends
+ * {@link #INTERRUPT} or the connection is closed (see {@link #cancel(Connection)}). Cancellation is signalled
+ * through the {@link CancellationToken} of the command. Commands that run on a worker thread are interrupted and
+ * the stages of asynchronous handlers are cancelled. Timeouts are scheduled on the given timeout scheduler or on a
+ * thread of the registry that only exists while timeouts are pending, so a registry never has to be shut down.
  *
  * @author Philipp Ploder
  * @version 2.0.0
@@ -21,9 +38,46 @@ public class SimpleCommandRegistry implements CommandRegistry {
      */
     public static final Consumer<Command> DEFAULT_UNKNOWN_COMMAND_LISTENER = cmd -> cmd.getSource().getConnection().send("Unknown command: " + cmd.getName());
 
+    /**
+     * The default failure listener.
+     * It tells the client that the command failed or was cancelled. Failures are logged as well.
+     */
+    public static final BiConsumer<Command, Throwable> DEFAULT_FAILURE_LISTENER = (cmd, failure) -> {
+        if (failure instanceof CancellationException) {
+            cmd.respond(failure.getMessage() + ": " + cmd.getName());
+        } else {
+            log.warn("Command '{}' failed", cmd.getName(), failure);
+            cmd.respond("Command failed: " + cmd.getName());
+        }
+    };
+
+    /**
+     * The message that clients send to interrupt their running commands (Ctrl+C).
+     * Messages are trimmed, so a control character like ETX can not be used.
+     */
+    public static final String INTERRUPT = "^C";
+
+    private static final String TIMED_OUT = "Command timed out";
+    private static final String INTERRUPTED = "Command interrupted";
+    private static final String CLOSED = "Connection closed";
+
+    private static final CompletableFuture<Void> COMPLETED = CompletableFuture.completedFuture(null);
+
+    /**
+     * The time after which the idle thread of the own timeout scheduler ends.
+     */
+    private static final long TIMEOUT_THREAD_KEEP_ALIVE_SECONDS = 10;
+
     private final Map<String, Consumer<Command>> commandListeners = new HashMap<>();
+    private final Map<String, Duration> commandTimeouts = new HashMap<>();
+    private final Map<Connection, CompletableFuture<Void>> pendingResponses = new ConcurrentHashMap<>();
+    private final Map<Connection, Set<RunningCommand>> runningCommands = new ConcurrentHashMap<>();
 
     private Consumer<Command> unknownCommandListener;
+    private volatile CommandExecutor commandExecutor = CommandExecutor.DIRECT;
+    private volatile BiConsumer<Command, Throwable> failureListener = DEFAULT_FAILURE_LISTENER;
+    private volatile Duration defaultTimeout;
+    private ScheduledExecutorService timeoutScheduler;
 
     /**
      * Creates a new instance using the default unknown command listener.
@@ -42,11 +96,31 @@ public class SimpleCommandRegistry implements CommandRegistry {
         setUnknownCommandListener(unknownCommandListener);
     }
 
+    /**
+     * Creates a new instance using the given unknown command listener and timeout scheduler.
+     *
+     * @param unknownCommandListener The listener for unknown commands.
+     * @param timeoutScheduler       The scheduler of the command timeouts. The registry does not shut it down.
+     */
+    public SimpleCommandRegistry(Consumer<Command> unknownCommandListener, ScheduledExecutorService timeoutScheduler) {
+        this(unknownCommandListener);
+        this.timeoutScheduler = Objects.requireNonNull(timeoutScheduler);
+    }
+
     @Override
     public void supplyMessage(Message message) {
+        if (INTERRUPT.equals(message.getMessage())) {
+            cancel(message.getConnection(), INTERRUPTED);
+            return;
+        }
+
         String[] split = ArgumentTokenizer.tokenize(message.getMessage()).toArray(new String[0]);
         String[] args;
 
+        if (split.length == 0) {
+            return;
+        }
+
         if (split.length > 1) {
             args = Arrays.copyOfRange(split, 1, split.length);
         } else {
@@ -54,19 +128,73 @@ public class SimpleCommandRegistry implements CommandRegistry {
         }
 
         String command = split[0];
-        Command cmd = new SimpleCommand(message, command, args);
+        Optional<Consumer<Command>> commandListener = getCommandListenerOrFallback(command);
+
+        if (!commandListener.isPresent()) {
+            return;
+        }
+
+        Connection connection = message.getConnection();
+        RunningCommand running = start(connection, new SimpleCommand(message, command, args, new CancellationToken()),
+                commandTimeouts.getOrDefault(command, defaultTimeout));
+
+        commandExecutor.execute(connection, () -> run(commandListener.get(), running));
+    }
+
+    @Override
+    public void putAsync(String command, Function<Command, ? extends CompletionStage<? extends MessageContent>> handler) {
+        put(command, new AsyncCommandListener(handler));
+    }
 
-        getCommandListenerOrFallback(command).ifPresent(commandListener -> commandListener.accept(cmd));
+    /**
+     * Sets an asynchronous handler for a command that is cancelled if it does not complete within the timeout
+     * (see {@link #putAsync(String, Function)}).
+     *
+     * @param command The command for which the handler should be set.
+     * @param handler The handler.
+     * @param timeout The timeout of the command.
+     */
+    public void putAsync(String command, Function<Command, ? extends CompletionStage<? extends MessageContent>> handler,
+                         Duration timeout) {
+        put(command, new AsyncCommandListener(handler), timeout);
     }
 
     @Override
     public void put(String command, Consumer<Command> commandListener) {
         commandListeners.put(Objects.requireNonNull(command), Objects.requireNonNull(commandListener));
+        commandTimeouts.remove(command);
+    }
+
+    /**
+     * Sets the command listener for a command that is cancelled if it does not complete within the timeout.
+     * The timeout overrides the default timeout. This will overwrite any previous command listener.
+     *
+     * @param command         The command for which the listener should be set.
+     * @param commandListener The command listener.
+     * @param timeout         The timeout of the command.
+     */
+    public void put(String command, Consumer<Command> commandListener, Duration timeout) {
+        Objects.requireNonNull(timeout);
+
+        put(command, commandListener);
+        commandTimeouts.put(command, timeout);
     }
 
     @Override
     public void remove(String command) {
         commandListeners.remove(Objects.requireNonNull(command));
+        commandTimeouts.remove(command);
+    }
+
+    /**
+     * Cancels all running and queued commands of a connection.
+     * The failure listener is not notified because the connection is assumed to be gone.
+     *
+     * @param connection The connection.
+     */
+    @Override
+    public void cancel(Connection connection) {
+        cancel(connection, CLOSED);
     }
 
     @Override
@@ -100,4 +228,305 @@ public class SimpleCommandRegistry implements CommandRegistry {
         this.unknownCommandListener = unknownCommandListener;
     }
 
+    /**
+     * @return The listener that is notified when a command fails.
+     */
+    public BiConsumer<Command, Throwable> getFailureListener() {
+        return failureListener;
+    }
+
+    /**
+     * Sets the listener that is notified when a command listener throws or the stage of an asynchronous
+     * handler completes exceptionally.
+     * The default is {@link #DEFAULT_FAILURE_LISTENER}.
+     *
+     * @param failureListener The failure listener.
+     */
+    public void setFailureListener(BiConsumer<Command, Throwable> failureListener) {
+        this.failureListener = Objects.requireNonNull(failureListener);
+    }
+
+    /**
+     * @return The timeout of commands that have no timeout of their own or {@code null} if there is none.
+     */
+    public Duration getDefaultTimeout() {
+        return defaultTimeout;
+    }
+
+    /**
+     * Sets the timeout of commands that have no timeout of their own.
+     * Only affects commands that are received afterwards.
+     *
+     * @param defaultTimeout The timeout or {@code null} for none.
+     */
+    public void setDefaultTimeout(Duration defaultTimeout) {
+        this.defaultTimeout = defaultTimeout;
+    }
+
+    /**
+     * @return The executor that runs the command listeners.
+     */
+    public CommandExecutor getCommandExecutor() {
+        return commandExecutor;
+    }
+
+    /**
+     * Sets the executor that runs the command listeners.
+     * Use {@link CommandExecutor#ordered(java.util.concurrent.Executor)} to keep slow commands off the network
+     * thread.
+     *
+     * @param commandExecutor The executor.
+     */
+    public void setCommandExecutor(CommandExecutor commandExecutor) {
+        this.commandExecutor = Objects.requireNonNull(commandExecutor);
+    }
+
+    private RunningCommand start(Connection connection, Command cmd, Duration timeout) {
+        RunningCommand running = new RunningCommand(connection, cmd);
+
+        runningCommands.computeIfAbsent(connection, key -> ConcurrentHashMap.newKeySet()).add(running);
+
+        if (timeout != null) {
+            running.timer = getTimeoutScheduler().schedule(() -> cancel(running, TIMED_OUT),
+                    timeout.toNanos(), TimeUnit.NANOSECONDS);
+        }
+
+        return running;
+    }
+
+    private void run(Consumer<Command> commandListener, RunningCommand running) {
+        Command cmd = running.command;
+
+        if (cmd.getCancellationToken().isCancelled()) {
+            // Cancelled while it was queued
+            reportCancellation(cmd);
+            finish(running);
+            return;
+        }
+
+        if (commandListener instanceof AsyncCommandListener) {
+            try {
+                ((AsyncCommandListener) commandListener).start(cmd).whenComplete((ignored, failure) -> finish(running));
+            } catch (RuntimeException e) {
+                fail(cmd, e);
+                finish(running);
+            }
+
+            return;
+        }
+
+        // The network thread must never be interrupted
+        boolean interruptible = commandExecutor != CommandExecutor.DIRECT;
+
+        if (interruptible) {
+            running.hold(Thread.currentThread());
+            cmd.getCancellationToken().onCancel(running::interrupt);
+        }
+
+        try {
+            commandListener.accept(cmd);
+        } catch (RuntimeException e) {
+            if (!cmd.getCancellationToken().isCancelled()) {
+                fail(cmd, e);
+            }
+        } finally {
+            if (interruptible) {
+                running.release();
+            }
+
+            reportCancellation(cmd);
+            finish(running);
+        }
+    }
+
+    private void finish(RunningCommand running) {
+        if (running.timer != null) {
+            running.timer.cancel(false);
+        }
+
+        runningCommands.computeIfPresent(running.connection, (key, commands) -> {
+            commands.remove(running);
+            return commands.isEmpty() ? null : commands;
+        });
+    }
+
+    private void cancel(Connection connection, String reason) {
+        Set<RunningCommand> commands = runningCommands.get(connection);
+
+        if (commands != null) {
+            for (RunningCommand running : commands) {
+                cancel(running, reason);
+            }
+        }
+    }
+
+    private void cancel(RunningCommand running, String reason) {
+        CancellationToken token = running.command.getCancellationToken();
+
+        if (token.cancel(reason)) {
+            log.debug("Cancelled command '{}' of {}: {}", running.command.getName(), running.connection, reason);
+        }
+    }
+
+    /**
+     * Reports the cancellation of a command to the failure listener once the command has stopped.
+     * Reporting it from the path of the command keeps it in order with the other responses.
+     */
+    private void reportCancellation(Command cmd) {
+        CancellationException reason = cmd.getCancellationToken().getReason();
+
+        if (reason != null && !CLOSED.equals(reason.getMessage())) {
+            fail(cmd, reason);
+        }
+    }
+
+    private synchronized ScheduledExecutorService getTimeoutScheduler() {
+        if (timeoutScheduler == null) {
+            ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "ehc-command-timeout");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+            // Most commands complete long before their timeout
+            scheduler.setRemoveOnCancelPolicy(true);
+
+            // Without pending timeouts the thread ends, so an unused registry holds no thread
+            scheduler.setKeepAliveTime(TIMEOUT_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+            scheduler.allowCoreThreadTimeOut(true);
+            timeoutScheduler = scheduler;
+        }
+
+        return timeoutScheduler;
+    }
+
+    /**
+     * Sends the response of an asynchronous handler after the responses to all earlier commands of the same
+     * connection. The response is replaced by the cancellation if the command is cancelled before it completes.
+     *
+     * @return A stage that completes once the response has been handled.
+     */
+    private CompletionStage<Void> respond(Command cmd, CompletionStage<? extends MessageContent> response) {
+        Objects.requireNonNull(response, "The handler returned no stage");
+
+        CancellationToken token = cmd.getCancellationToken();
+        CompletableFuture<MessageContent> outcome = new CompletableFuture<>();
+
+        response.whenComplete((content, failure) -> {
+            if (failure == null) {
+                outcome.complete(content);
+            } else {
+                outcome.completeExceptionally(failure);
+            }
+        });
+
+        token.onCancel(() -> {
+            outcome.completeExceptionally(token.getReason());
+
+            try {
+                response.toCompletableFuture().cancel(true);
+            } catch (UnsupportedOperationException e) {
+                // The stage can not be cancelled; its result will be dropped
+            }
+        });
+
+        Connection connection = cmd.getSource().getConnection();
+
+        CompletableFuture<Void> sent = new CompletableFuture<>();
+        CompletableFuture<Void> previous = pendingResponses.put(connection, sent);
+
+        (previous == null ? COMPLETED : previous)
+                .thenCompose(ignored -> outcome.handle((content, failure) -> {
+                    if (token.isCancelled()) {
+                        reportCancellation(cmd);
+                    } else {
+                        deliver(cmd, content, failure);
+                    }
+
+                    return null;
+                }))
+                .whenComplete((ignored, failure) -> {
+                    pendingResponses.remove(connection, sent);
+                    sent.complete(null);
+                });
+
+        return outcome.handle((content, failure) -> null);
+    }
+
+    private void deliver(Command cmd, MessageContent content, Throwable failure) {
+        try {
+            if (failure != null) {
+                fail(cmd, failure instanceof CompletionException && failure.getCause() != null
+                        ? failure.getCause()
+                        : failure);
+            } else if (content != null) {
+                cmd.respond(content);
+            }
+        } catch (RuntimeException e) {
+            log.error("Could not respond to command '{}'", cmd.getName(), e);
+        }
+    }
+
+    private void fail(Command cmd, Throwable failure) {
+        try {
+            failureListener.accept(cmd, failure);
+        } catch (RuntimeException e) {
+            log.error("Failure listener failed for command '{}'", cmd.getName(), e);
+        }
+    }
+
+    private final class AsyncCommandListener implements Consumer<Command> {
+
+        private final Function<Command, ? extends CompletionStage<? extends MessageContent>> handler;
+
+        private AsyncCommandListener(Function<Command, ? extends CompletionStage<? extends MessageContent>> handler) {
+            this.handler = Objects.requireNonNull(handler);
+        }
+
+        @Override
+        public void accept(Command cmd) {
+            start(cmd);
+        }
+
+        private CompletionStage<Void> start(Command cmd) {
+            return respond(cmd, handler.apply(cmd));
+        }
+
+    }
+
+    private static final class RunningCommand {
+
+        private final Connection connection;
+        private final Command command;
+
+        private volatile ScheduledFuture<?> timer;
+        private Thread worker;
+
+        private RunningCommand(Connection connection, Command command) {
+            this.connection = connection;
+            this.command = command;
+        }
+
+        private synchronized void hold(Thread worker) {
+            this.worker = worker;
+        }
+
+        private synchronized void interrupt() {
+            if (worker != null) {
+                worker.interrupt();
+            }
+        }
+
+        /**
+         * Stops the interruption of the worker thread once the command has returned.
+         */
+        private synchronized void release() {
+            worker = null;
+
+            // Do not leak an interrupt to the next task of the worker
+            Thread.interrupted();
+        }
+
+    }
+
 }
@@ -1,13 +1,12 @@
 package com.pploder.ehc;
 
 import java.io.IOException;
-import java.net.URISyntaxException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.sql.Date;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
-import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.Locale;
 import java.util.Objects;
 import java.util.function.Supplier;
@@ -15,7 +14,13 @@ import java.util.function.Supplier;
 /**
  * A supplier of an HTML interface page.
  * Internally a template of the page is stored. Any occurance of {@code {{SERVED}}} is replaced with a formatted
- * version of the current date and time whenever a page is requested.
+ * version of the current date and time whenever a page is requested. The formatted timestamp is cached per clock
+ * tick by a {@link CachedTimestamp} so concurrent requests share it. The rendered page and its compressed forms are
+ * reused until the timestamp changes.
+ * <p>
+ * The template is compiled once when the instance is created. The placeholders {@code {{ADDRESS}}} and
+ * {@code {{WEBSOCKET}}} are baked into the compiled template when the supplier is bound to a {@link NetModule}
+ * via {@link #bind(NetModule)}.
  *
  * @author Philipp Ploder
  * @version 2.0.0
@@ -25,35 +30,72 @@ public class SiteHttpSupplier implements Supplier<Page> {
 
     /**
      * The default date format.
+     *
+     * @deprecated {@link DateFormat} is not thread-safe. Use {@link #DEFAULT_DATE_TIME_FORMATTER} instead.
      */
+    @Deprecated
     public static final DateFormat DEFAULT_DATE_FORMAT =
             new SimpleDateFormat("EEEE, dd MMMM yyyy kk:mm ('UTC'Z)", Locale.US);
 
+    /**
+     * The default date time formatter.
+     * It uses the same pattern as {@link #DEFAULT_DATE_FORMAT} in the system default time zone.
+     */
+    public static final DateTimeFormatter DEFAULT_DATE_TIME_FORMATTER =
+            DateTimeFormatter.ofPattern("EEEE, dd MMMM yyyy kk:mm ('UTC'Z)", Locale.US).withZone(ZoneId.systemDefault());
+
     /**
      * The default reponse code.
      * The response code {@code 200} signals that the request was completed successfully.
      */
     public static final int DEFAULT_RESPONSE_CODE = 200;
 
+    /**
+     * The {@code Cache-Control} policy of the site.
+     * The site is only cached briefly since it shows the time at which it was served.
+     */
+    public static final String CACHE_CONTROL = "private, max-age=60";
+
     /**
      * The default site template classpath.
      * It is relative to {@link Resource}.
      */
     public static final String DEFAULT_TEMPLATE = "interface.html";
 
+    /**
+     * The placeholder for the HTTP URL of the console.
+     */
+    public static final String PLACEHOLDER_ADDRESS = "ADDRESS";
+
+    /**
+     * The placeholder for the websocket URL of the console.
+     */
+    public static final String PLACEHOLDER_WEBSOCKET = "WEBSOCKET";
+
+    /**
+     * The placeholder for the time at which the page was served.
+     */
+    public static final String PLACEHOLDER_SERVED = "SERVED";
+
     private final String template;
+    private final SiteTemplate compiledTemplate;
+
+    private volatile SiteTemplate boundTemplate;
+    private volatile Rendering rendering;
 
-    private DateFormat dateFormat;
-    private int responseCode;
+    private final DateFormat dateFormat;
+    private final CachedTimestamp timestamp;
+    private final int responseCode;
 
     /**
-     * Creates a new instance with the given template as well as the default date format and response code.
-     * The default date format is {@link #DEFAULT_DATE_FORMAT} and the default response code {@link #DEFAULT_RESPONSE_CODE}.
+     * Creates a new instance with the given template as well as the default date time formatter and response code.
+     * The default date time formatter is {@link #DEFAULT_DATE_TIME_FORMATTER} and the default response code
+     * {@link #DEFAULT_RESPONSE_CODE}.
      *
      * @param template The site HTML template.
      */
     public SiteHttpSupplier(String template) {
-        this(template, DEFAULT_DATE_FORMAT);
+        this(template, null, new CachedTimestamp(DEFAULT_DATE_TIME_FORMATTER), DEFAULT_RESPONSE_CODE);
     }
 
     /**
@@ -61,8 +103,10 @@ public class SiteHttpSupplier implements Supplier<Page> {
      * The default response code is {@link #DEFAULT_RESPONSE_CODE}.
      *
      * @param template   The site HTML template.
-     * @param dateFormat The date format to use fot the timestamp.
+     * @param dateFormat The date format to use fot the timestamp or {@code null}.
+     * @deprecated {@link DateFormat} is not thread-safe. Use {@link #withFormatter(String, DateTimeFormatter)} instead.
      */
+    @Deprecated
     public SiteHttpSupplier(String template, DateFormat dateFormat) {
         this(template, dateFormat, DEFAULT_RESPONSE_CODE);
     }
@@ -71,24 +115,93 @@ public class SiteHttpSupplier implements Supplier<Page> {
      * Creates a new instance with the given template, date format and response code.
      *
      * @param template     The site HTML template.
-     * @param dateFormat   The date format to use for the timestamp.
+     * @param dateFormat   The date format to use for the timestamp or {@code null}.
      * @param responseCode The HTTP response code.
+     * @deprecated {@link DateFormat} is not thread-safe.
+     * Use {@link #withFormatter(String, DateTimeFormatter, int)} instead.
      */
+    @Deprecated
     public SiteHttpSupplier(String template, DateFormat dateFormat, int responseCode) {
+        this(template, dateFormat, dateFormat == null ? null : new CachedTimestamp(dateFormat), responseCode);
+    }
+
+    private SiteHttpSupplier(String template, DateFormat dateFormat, CachedTimestamp timestamp, int responseCode) {
         this.template = Objects.requireNonNull(template);
+        this.compiledTemplate = SiteTemplate.compile(template);
+        this.boundTemplate = compiledTemplate;
         this.dateFormat = dateFormat;
+        this.timestamp = timestamp;
         this.responseCode = responseCode;
     }
 
+    /**
+     * Creates a new instance with the given template and date time formatter as well as the default response code.
+     * The default response code is {@link #DEFAULT_RESPONSE_CODE}.
+     *
+     * @param template          The site HTML template.
+     * @param dateTimeFormatter The formatter to use for the timestamp or {@code null}.
+     * @return The new instance.
+     */
+    public static SiteHttpSupplier withFormatter(String template, DateTimeFormatter dateTimeFormatter) {
+        return withFormatter(template, dateTimeFormatter, DEFAULT_RESPONSE_CODE);
+    }
+
+    /**
+     * Creates a new instance with the given template, date time formatter and response code.
+     *
+     * @param template          The site HTML template.
+     * @param dateTimeFormatter The formatter to use for the timestamp or {@code null}.
+     * @param responseCode      The HTTP response code.
+     * @return The new instance.
+     */
+    public static SiteHttpSupplier withFormatter(String template, DateTimeFormatter dateTimeFormatter,
+                                                 int responseCode) {
+        return withTimestamp(template, dateTimeFormatter == null ? null : new CachedTimestamp(dateTimeFormatter),
+                responseCode);
+    }
+
+    /**
+     * Creates a new instance with the given template, timestamp and response code.
+     *
+     * @param template     The site HTML template.
+     * @param timestamp    The supplier of the timestamp or {@code null}.
+     * @param responseCode The HTTP response code.
+     * @return The new instance.
+     */
+    public static SiteHttpSupplier withTimestamp(String template, CachedTimestamp timestamp, int responseCode) {
+        return new SiteHttpSupplier(template, null, timestamp, responseCode);
+    }
+
+    /**
+     * Bakes the addresses of the given module into the compiled template.
+     * Any previous binding is replaced.
+     *
+     * @param netModule The module that serves the site.
+     */
+    public void bind(NetModule netModule) {
+        boundTemplate = compiledTemplate
+                .bind(PLACEHOLDER_ADDRESS, netModule.getHttpURL())
+                .bind(PLACEHOLDER_WEBSOCKET, netModule.getWebsocketURL());
+    }
+
     @Override
     public Page get() {
-        String page = getTemplate();
+        SiteTemplate template = boundTemplate;
+        byte[] served = timestamp == null ? null : timestamp.get();
 
-        if (dateFormat != null) {
-            page = page.replace("{{SERVED}}", getDateFormat().format(Date.from(Instant.now())));
+        Rendering rendering = this.rendering;
+
+        if (rendering == null || rendering.template != template || rendering.served != served) {
+            byte[] page = template.render(placeholder -> PLACEHOLDER_SERVED.equals(placeholder) ? served : null);
+
+            rendering = new Rendering(template, served, new EncodedContent(page));
+            this.rendering = rendering;
         }
 
-        return new Page(page, getResponseCode(), "text/html", true);
+        Page page = new Page(rendering.content, getResponseCode(), "text/html", true);
+        page.setCacheControl(CACHE_CONTROL);
+
+        return page;
     }
 
     /**
@@ -99,12 +212,21 @@ public class SiteHttpSupplier implements Supplier<Page> {
     }
 
     /**
-     * @return The date format of the timestamp.
+     * @return The date format of the timestamp or {@code null} if none or a date time formatter was given.
+     * @deprecated Use {@link #getTimestamp()} instead.
      */
+    @Deprecated
     public DateFormat getDateFormat() {
         return dateFormat;
     }
 
+    /**
+     * @return The supplier of the timestamp or {@code null}.
+     */
+    public CachedTimestamp getTimestamp() {
+        return timestamp;
+    }
+
     /**
      * @return The HTTP response code of the site.
      */
@@ -115,7 +237,7 @@ public class SiteHttpSupplier implements Supplier<Page> {
     /**
      * Reads the default site and creates an instance.
      * The default site's classpath relative to {@link Resource} is {@link #DEFAULT_TEMPLATE}
-     * and the default date format is {@link #DEFAULT_DATE_FORMAT}.
+     * and the default date time formatter is {@link #DEFAULT_DATE_TIME_FORMATTER}.
      *
      * @return An instance with the default interface template.
      */
@@ -126,13 +248,26 @@ public class SiteHttpSupplier implements Supplier<Page> {
     /**
      * Reads the classpath resource and creates an instance.
      * The classpath is relative to {@link Resource}.
-     * The default date format at {@link #DEFAULT_DATE_FORMAT} will be used.
+     * The default date time formatter at {@link #DEFAULT_DATE_TIME_FORMATTER} will be used.
      *
      * @param classResource The HTML template classpath location.
-     * @return An instance using the class resource as the template and the default date format.
+     * @return An instance using the class resource as the template and the default date time formatter.
      */
     public static SiteHttpSupplier fromResource(String classResource) {
-        return fromResource(classResource, DEFAULT_DATE_FORMAT);
+        return fromResourceWithFormatter(classResource, DEFAULT_DATE_TIME_FORMATTER);
+    }
+
+    /**
+     * Reads the classpath resource and creates an instance with it.
+     * The classpath is relative to {@link Resource}.
+     *
+     * @param classResource     The HTML template classpath location.
+     * @param dateTimeFormatter The date time formatter of the site.
+     * @return An instance using the class resource as the template and the given date time formatter.
+     */
+    public static SiteHttpSupplier fromResourceWithFormatter(String classResource,
+                                                             DateTimeFormatter dateTimeFormatter) {
+        return withFormatter(readResource(classResource), dateTimeFormatter);
     }
 
     /**
@@ -142,15 +277,38 @@ public class SiteHttpSupplier implements Supplier<Page> {
      * @param classResource The HTML template classpath location.
      * @param dateFormat    The date format of the site.
      * @return An instance using the class resource as the template and the given date format.
+     * @deprecated {@link DateFormat} is not thread-safe. Use {@link #fromResourceWithFormatter(String, DateTimeFormatter)}
+     * instead.
      */
+    @Deprecated
     public static SiteHttpSupplier fromResource(String classResource, DateFormat dateFormat) {
+        return new SiteHttpSupplier(readResource(classResource), dateFormat);
+    }
+
+    private static String readResource(String classResource) {
         try {
-            return new SiteHttpSupplier(new String(Files.readAllBytes(
-                    Paths.get(SiteHttpSupplier.class.getResource(classResource).toURI())
-            )), dateFormat);
-        } catch (IOException | URISyntaxException e) {
-            throw new RuntimeException(e);
+            return new String(ResourceStore.readClassResource(classResource), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
+    /**
+     * A rendered page together with the inputs it was rendered from.
+     * The timestamp is compared by identity since {@link CachedTimestamp} reuses the array within a tick.
+     */
+    private static final class Rendering {
+
+        private final SiteTemplate template;
+        private final byte[] served;
+        private final EncodedContent content;
+
+        private Rendering(SiteTemplate template, byte[] served, EncodedContent content) {
+            this.template = template;
+            this.served = served;
+            this.content = content;
+        }
+
+    }
+
 }
@@ -0,0 +1,208 @@
+package com.pploder.ehc;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * A precompiled site template.
+ * The template is split once into UTF-8 encoded static segments and placeholder slots (written as {@code {{NAME}}}).
+ * Rendering a page only copies the pre-encoded segments and slot values into the output without scanning the
+ * template again. Placeholders whose value never changes can be baked into the static segments via
+ * {@link #bind(String, String)}.
+ * <p>
+ * Instances are immutable and may be shared between threads.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+class SiteTemplate {
+
+    private static final String PLACEHOLDER_START = "{{";
+    private static final String PLACEHOLDER_END = "}}";
+
+    private final byte[][] segments;
+    private final String[] slots;
+    private final byte[][] slotLiterals;
+    private final int staticLength;
+
+    private SiteTemplate(List<byte[]> segments, List<String> slots) {
+        this.segments = segments.toArray(new byte[0][]);
+        this.slots = slots.toArray(new String[0]);
+        this.slotLiterals = new byte[this.slots.length][];
+
+        for (int i = 0; i < this.slots.length; i++) {
+            slotLiterals[i] = encode(PLACEHOLDER_START + this.slots[i] + PLACEHOLDER_END);
+        }
+
+        int length = 0;
+        for (byte[] segment : this.segments) {
+            length += segment.length;
+        }
+
+        this.staticLength = length;
+    }
+
+    /**
+     * Compiles the given template.
+     *
+     * @param template The template.
+     * @return The compiled template.
+     */
+    public static SiteTemplate compile(String template) {
+        Objects.requireNonNull(template);
+
+        List<byte[]> segments = new ArrayList<>();
+        List<String> slots = new ArrayList<>();
+
+        int position = 0;
+        int start;
+
+        while ((start = template.indexOf(PLACEHOLDER_START, position)) >= 0) {
+            int end = template.indexOf(PLACEHOLDER_END, start + PLACEHOLDER_START.length());
+
+            if (end < 0) {
+                break;
+            }
+
+            String name = template.substring(start + PLACEHOLDER_START.length(), end);
+
+            if (!isPlaceholderName(name)) {
+                // Not a placeholder, keep the braces as static content
+                segments.add(encode(template.substring(position, start + PLACEHOLDER_START.length())));
+                slots.add(null);
+                position = start + PLACEHOLDER_START.length();
+                continue;
+            }
+
+            segments.add(encode(template.substring(position, start)));
+            slots.add(name);
+            position = end + PLACEHOLDER_END.length();
+        }
+
+        segments.add(encode(template.substring(position)));
+
+        return merge(segments, slots, null, null);
+    }
+
+    /**
+     * Creates a copy of this template in which every occurrence of the given placeholder is replaced by
+     * the given value. The value becomes part of the static segments.
+     *
+     * @param placeholder The name of the placeholder (without braces).
+     * @param value       The value of the placeholder.
+     * @return The new template.
+     */
+    public SiteTemplate bind(String placeholder, String value) {
+        Objects.requireNonNull(placeholder);
+
+        List<byte[]> segments = new ArrayList<>(this.segments.length);
+        List<String> slots = new ArrayList<>(this.slots.length);
+
+        for (int i = 0; i < this.slots.length; i++) {
+            segments.add(this.segments[i]);
+            slots.add(this.slots[i]);
+        }
+
+        segments.add(this.segments[this.segments.length - 1]);
+
+        return merge(segments, slots, placeholder, encode(Objects.requireNonNull(value)));
+    }
+
+    /**
+     * Renders the template into a single byte array.
+     * The slot values are requested once per slot. If {@code null} is returned for a slot the placeholder
+     * is rendered literally.
+     *
+     * @param slotValues Maps the placeholder names to their encoded values.
+     * @return The UTF-8 encoded page. The array is owned by the caller.
+     */
+    public byte[] render(Function<String, byte[]> slotValues) {
+        if (slots.length == 0) {
+            return segments[0].clone();
+        }
+
+        byte[][] values = new byte[slots.length][];
+        int length = staticLength;
+
+        for (int i = 0; i < slots.length; i++) {
+            byte[] value = slotValues.apply(slots[i]);
+            values[i] = value == null ? slotLiterals[i] : value;
+            length += values[i].length;
+        }
+
+        byte[] page = new byte[length];
+        int offset = 0;
+
+        for (int i = 0; i < slots.length; i++) {
+            System.arraycopy(segments[i], 0, page, offset, segments[i].length);
+            offset += segments[i].length;
+
+            System.arraycopy(values[i], 0, page, offset, values[i].length);
+            offset += values[i].length;
+        }
+
+        byte[] last = segments[slots.length];
+        System.arraycopy(last, 0, page, offset, last.length);
+
+        return page;
+    }
+
+    /**
+     * Joins the static segments around every slot that is either {@code null} (no placeholder) or bound
+     * to the given value.
+     */
+    private static SiteTemplate merge(List<byte[]> segments, List<String> slots, String placeholder, byte[] value) {
+        List<byte[]> mergedSegments = new ArrayList<>();
+        List<String> mergedSlots = new ArrayList<>();
+
+        ByteArrayOutputStream current = new ByteArrayOutputStream();
+        current.write(segments.get(0), 0, segments.get(0).length);
+
+        for (int i = 0; i < slots.size(); i++) {
+            String slot = slots.get(i);
+
+            if (slot == null) {
+                // Static content only
+            } else if (slot.equals(placeholder)) {
+                current.write(value, 0, value.length);
+            } else {
+                mergedSegments.add(current.toByteArray());
+                mergedSlots.add(slot);
+                current.reset();
+            }
+
+            byte[] next = segments.get(i + 1);
+            current.write(next, 0, next.length);
+        }
+
+        mergedSegments.add(current.toByteArray());
+
+        return new SiteTemplate(mergedSegments, mergedSlots);
+    }
+
+    private static boolean isPlaceholderName(String name) {
+        if (name.isEmpty()) {
+            return false;
+        }
+
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+
+            if (!(c >= 'A' && c <= 'Z') && c != '_') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static byte[] encode(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
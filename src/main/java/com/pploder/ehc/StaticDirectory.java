@@ -0,0 +1,133 @@
+package com.pploder.ehc;
+
+import lombok.extern.slf4j.XSlf4j;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * A directory of the file system that is served under a URI prefix.
+ * Requests for a directory are answered with its {@code index.html} if present; directory listings are not
+ * supported. Paths that would resolve outside of the directory (including via symbolic links) are rejected.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+@XSlf4j
+class StaticDirectory {
+
+    private static final String INDEX = "index.html";
+
+    private final String prefix;
+    private final Path root;
+    private final String cacheControl;
+    private final ResourceStore resourceStore;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param prefix        The URI prefix. Leading and trailing {@code /} are optional.
+     * @param root          The directory.
+     * @param cacheControl  The {@code Cache-Control} policy of the files (see {@link CacheControl}).
+     * @param resourceStore The store that loads the files.
+     * @throws IOException If the directory does not exist.
+     */
+    public StaticDirectory(String prefix, Path root, String cacheControl, ResourceStore resourceStore)
+            throws IOException {
+        this.prefix = normalizePrefix(prefix);
+        this.root = root.toRealPath();
+        this.cacheControl = cacheControl;
+        this.resourceStore = Objects.requireNonNull(resourceStore);
+
+        if (!Files.isDirectory(this.root)) {
+            throw new IOException("Not a directory: " + root);
+        }
+    }
+
+    /**
+     * @return The URI prefix with a leading and a trailing {@code /}.
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * @return The directory.
+     */
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Resolves the page for a path within the directory.
+     *
+     * @param relativePath The path relative to the prefix (still URL encoded and without a query).
+     * @return The page or {@code null} if there is no such file.
+     */
+    public Page get(String relativePath) {
+        Path path = resolve(relativePath);
+
+        if (path == null) {
+            return null;
+        }
+
+        try {
+            return resourceStore.loadFile(path, MimeTypes.of(path), cacheControl).get();
+        } catch (IOException e) {
+            log.debug("Could not load {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    private Path resolve(String relativePath) {
+        String decoded;
+
+        try {
+            decoded = URLDecoder.decode(relativePath.replace("+", "%2B"), "UTF-8");
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return null;
+        }
+
+        if (decoded.indexOf('\0') >= 0 || decoded.indexOf('\\') >= 0) {
+            return null;
+        }
+
+        for (String segment : decoded.split("/")) {
+            if (segment.equals("..")) {
+                return null;
+            }
+        }
+
+        try {
+            Path path = root.resolve(decoded.startsWith("/") ? decoded.substring(1) : decoded).normalize();
+
+            if (Files.isDirectory(path)) {
+                path = path.resolve(INDEX);
+            }
+
+            if (!Files.isRegularFile(path)) {
+                // The file may have been deleted since it was served
+                resourceStore.evictFile(path);
+                return null;
+            }
+
+            path = path.toRealPath();
+
+            return path.startsWith(root) ? path : null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static String normalizePrefix(String prefix) {
+        String normalized = prefix.startsWith("/") ? prefix : "/" + prefix;
+
+        return normalized.endsWith("/") ? normalized : normalized + "/";
+    }
+
+}
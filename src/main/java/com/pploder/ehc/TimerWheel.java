@@ -0,0 +1,204 @@
+package com.pploder.ehc;
+
+import lombok.extern.slf4j.XSlf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A hashed timer wheel for large amounts of coarse timeouts.
+ * Time is divided into ticks and every timeout is put into the bucket of the tick in which it expires
+ * (modulo the size of the wheel). Advancing the wheel by a tick only visits the timeouts in a single bucket,
+ * so scheduling, cancelling and ticking take constant time regardless of the amount of timeouts.
+ * Timeouts expire up to one tick late.
+ * <p>
+ * The wheel does not have a thread of its own; it has to be advanced regularly (see {@link #advance(long)}).
+ * Instances are thread-safe.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+@XSlf4j
+class TimerWheel {
+
+    /**
+     * The default duration of a tick.
+     */
+    static final Duration DEFAULT_TICK = Duration.ofMillis(100);
+
+    /**
+     * The default amount of buckets.
+     */
+    static final int DEFAULT_SIZE = 512;
+
+    private final long tickNanos;
+    private final Timeout[] buckets;
+    private final int mask;
+    private final long startNanos;
+
+    private long currentTick;
+    private int size;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param tick       The duration of a tick.
+     * @param size       The amount of buckets. Must be a power of two.
+     * @param startNanos The current time (see {@link System#nanoTime()}).
+     * @throws IllegalArgumentException If the tick is not positive or the size is not a power of two.
+     */
+    TimerWheel(Duration tick, int size, long startNanos) throws IllegalArgumentException {
+        this.tickNanos = Objects.requireNonNull(tick).toNanos();
+
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("The tick must be positive");
+        }
+
+        if (size <= 0 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("The size must be a power of two");
+        }
+
+        this.buckets = new Timeout[size];
+        this.mask = size - 1;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * @return The duration of a tick in nanoseconds.
+     */
+    long getTickNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * Schedules a task.
+     * The task runs on the thread that advances the wheel and must not block.
+     *
+     * @param task       The task.
+     * @param delayNanos The delay after which the task runs.
+     * @return The timeout of the task.
+     */
+    synchronized Timeout schedule(Runnable task, long delayNanos) {
+        long ticks = Math.max(1, (delayNanos + tickNanos - 1) / tickNanos);
+
+        Timeout timeout = new Timeout(this, Objects.requireNonNull(task), currentTick + ticks);
+        link(timeout);
+
+        return timeout;
+    }
+
+    /**
+     * Runs all tasks that have expired until the given time.
+     *
+     * @param nowNanos The current time (see {@link System#nanoTime()}).
+     */
+    void advance(long nowNanos) {
+        List<Runnable> expired = new ArrayList<>();
+
+        synchronized (this) {
+            long targetTick = (nowNanos - startNanos) / tickNanos;
+
+            while (currentTick < targetTick) {
+                currentTick++;
+
+                Timeout timeout = buckets[(int) (currentTick & mask)];
+
+                while (timeout != null) {
+                    Timeout next = timeout.next;
+
+                    // Timeouts of later rotations stay in the bucket
+                    if (timeout.deadline <= currentTick) {
+                        unlink(timeout);
+                        expired.add(timeout.task);
+                    }
+
+                    timeout = next;
+                }
+            }
+        }
+
+        for (Runnable task : expired) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.warn("Timer task failed", e);
+            }
+        }
+    }
+
+    /**
+     * @return The amount of pending timeouts.
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    private synchronized void cancel(Timeout timeout) {
+        if (timeout.linked) {
+            unlink(timeout);
+        }
+    }
+
+    private void link(Timeout timeout) {
+        int index = (int) (timeout.deadline & mask);
+
+        timeout.next = buckets[index];
+
+        if (timeout.next != null) {
+            timeout.next.previous = timeout;
+        }
+
+        buckets[index] = timeout;
+        timeout.linked = true;
+        size++;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.previous == null) {
+            buckets[(int) (timeout.deadline & mask)] = timeout.next;
+        } else {
+            timeout.previous.next = timeout.next;
+        }
+
+        if (timeout.next != null) {
+            timeout.next.previous = timeout.previous;
+        }
+
+        timeout.previous = null;
+        timeout.next = null;
+        timeout.linked = false;
+        size--;
+    }
+
+    /**
+     * A scheduled task.
+     */
+    static final class Timeout {
+
+        private final TimerWheel wheel;
+        private final Runnable task;
+        private final long deadline;
+
+        private Timeout previous;
+        private Timeout next;
+        private boolean linked;
+
+        private Timeout(TimerWheel wheel, Runnable task, long deadline) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the task if it has not run yet.
+         */
+        void cancel() {
+            wheel.cancel(this);
+        }
+
+    }
+
+}
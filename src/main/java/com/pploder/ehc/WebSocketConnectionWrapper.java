@@ -7,7 +7,8 @@ import java.util.Objects;
 
 /**
  * Wraps a {@link WebSocketConnection} to provide abstracted usage.
- * This abstracts the inner workings of websockets.
+ * This abstracts the inner workings of websockets. If sessions can be resumed (see {@link SessionResume}) the
+ * wrapper outlives its websocket connection and is attached to the connection of the resuming client.
  *
  * @author Philipp Ploder
  * @version 2.0.0
@@ -17,21 +18,43 @@ import java.util.Objects;
 class WebSocketConnectionWrapper implements Connection {
 
     private final Console console;
-    private final WebSocketConnection webSocketConnection;
 
-    private final String remoteAddress;
+    private volatile String remoteAddress;
+
+    private final WireFormat wireFormat;
+    private final Session<?> session;
+
+    private volatile long lastActivity = System.nanoTime();
 
     /**
      * Creates a new instance with the given console and websocket connection.
+     * Every message is sent in its own frame.
      *
      * @param console             The console that this message originated from.
      * @param webSocketConnection The websocket connection to wrap around.
      */
     public WebSocketConnectionWrapper(Console console, WebSocketConnection webSocketConnection) {
+        this(console, webSocketConnection, OutboundOptions.DEFAULT);
+    }
+
+    /**
+     * Creates a new instance with the given console and websocket connection that may coalesce and limit
+     * outgoing messages. The wire format and whether frames are compressed is taken from the handshake request
+     * (see {@link WireFormat} and {@link FrameCompression}).
+     * Must be invoked on the thread that handles the events of the connection.
+     *
+     * @param console             The console that this message originated from.
+     * @param webSocketConnection The websocket connection to wrap around.
+     * @param options             The options for outgoing messages.
+     */
+    public WebSocketConnectionWrapper(Console console, WebSocketConnection webSocketConnection,
+                                      OutboundOptions options) {
         this.console = Objects.requireNonNull(console);
-        this.webSocketConnection = Objects.requireNonNull(webSocketConnection);
 
         remoteAddress = webSocketConnection.httpRequest().remoteAddress().toString();
+        wireFormat = WireFormat.negotiate(webSocketConnection.httpRequest().uri());
+        session = new Session<>(FrameCodec.of(wireFormat), webSocketConnection, options,
+                FrameCompression.isRequested(webSocketConnection.httpRequest().uri()));
     }
 
     @Override
@@ -44,19 +67,143 @@ class WebSocketConnectionWrapper implements Connection {
         return remoteAddress;
     }
 
+    /**
+     * @return The format of the outgoing messages.
+     */
+    public WireFormat getWireFormat() {
+        return wireFormat;
+    }
+
     @Override
     public void send(MessageContent messageContent) {
-        String jsonString = messageContent.asJSON().toJSONString();
+        send(messageContent.getEncoded());
+    }
+
+    @Override
+    public void send(EncodedMessage encodedMessage) {
+        if (log.isDebugEnabled()) {
+            log.debug("Sending message to '{}': {}", getRemoteAddress(), encodedMessage.getJSON());
+        }
+
+        session.send(encodedMessage);
+    }
+
+    @Override
+    public void flush() {
+        FramePipeline<?> pipeline = session.getPipeline();
+
+        if (pipeline != null) {
+            pipeline.flush();
+        }
+    }
+
+    @Override
+    public long getSentMessageCount() {
+        FramePipeline<?> pipeline = session.getPipeline();
+        return pipeline == null ? 0 : pipeline.getSentMessageCount();
+    }
+
+    @Override
+    public long getPendingMessageCount() {
+        FramePipeline<?> pipeline = session.getPipeline();
+        return pipeline == null ? 0 : pipeline.getPendingMessageCount();
+    }
+
+    @Override
+    public long getDroppedMessageCount() {
+        FramePipeline<?> pipeline = session.getPipeline();
+        return pipeline == null ? 0 : pipeline.getDroppedMessageCount();
+    }
+
+    @Override
+    public long getUncompressedByteCount() {
+        FramePipeline<?> pipeline = session.getPipeline();
+        return pipeline == null ? 0 : pipeline.getUncompressedByteCount();
+    }
+
+    @Override
+    public long getCompressedByteCount() {
+        FramePipeline<?> pipeline = session.getPipeline();
+        return pipeline == null ? 0 : pipeline.getCompressedByteCount();
+    }
+
+    /**
+     * Processes a pong of the client.
+     *
+     * @param payload The payload of the pong.
+     */
+    void pong(byte[] payload) {
+        touch();
+
+        FramePipeline<?> pipeline = session.getPipeline();
+
+        if (pipeline != null) {
+            pipeline.pong(payload);
+        }
+    }
 
-        log.debug("Sending message to '{}': {}", getRemoteAddress(), jsonString);
+    /**
+     * @return The session of the connection.
+     */
+    Session<?> getSession() {
+        return session;
+    }
+
+    /**
+     * Attaches the websocket connection of a client that resumes the session of this connection.
+     * Must be invoked on the thread that handles the events of the new connection.
+     *
+     * @param webSocketConnection The new websocket connection.
+     * @param received            The sequence number of the last frame the client received.
+     * @return The replaced websocket connection or {@code null} if the session was detached.
+     * @throws IllegalStateException If the session has ended.
+     */
+    WebSocketConnection resume(WebSocketConnection webSocketConnection, long received) throws IllegalStateException {
+        WebSocketConnection previous = session.resume(webSocketConnection,
+                FrameCompression.isRequested(webSocketConnection.httpRequest().uri()), received);
+
+        remoteAddress = webSocketConnection.httpRequest().remoteAddress().toString();
+        touch();
 
-        webSocketConnection.send(jsonString);
+        return previous;
+    }
+
+    /**
+     * Records that the client is alive.
+     */
+    void touch() {
+        lastActivity = System.nanoTime();
+    }
+
+    /**
+     * @return The time of the last sign of life of the client (see {@link System#nanoTime()}).
+     */
+    long getLastActivity() {
+        return lastActivity;
+    }
+
+    /**
+     * @return The currently or last attached websocket connection.
+     */
+    WebSocketConnection getWebSocketConnection() {
+        return session.getConnection();
+    }
+
+    /**
+     * Releases the resources of the connection after it has been closed.
+     */
+    void closed() {
+        session.closed();
     }
 
     @Override
     public void close() throws Exception {
         log.debug("Closing connection to {}...", getRemoteAddress());
-        webSocketConnection.close();
+        flush();
+
+        // A connection that is closed on purpose can not be resumed
+        session.end();
+        session.getConnection().close();
     }
 
     @Override
@@ -0,0 +1,89 @@
+package com.pploder.ehc;
+
+/**
+ * The encodings of outgoing messages on the websocket.
+ * A client selects the format when it opens the websocket by adding the {@link #QUERY_PARAMETER} with the token
+ * of the format to the websocket URL (for example {@code ws://localhost:8080/ws?format=binary}).
+ * Without a valid selection {@link #JSON} is used.
+ *
+ * @author Philipp Ploder
+ * @version 2.0.0
+ * @since 2.0.0
+ */
+public enum WireFormat {
+
+    /**
+     * Every message is a text frame containing a JSON array of snippets (see {@link MessageContent#asJSON()}).
+     * Coalesced messages are sent as a JSON array of such arrays.
+     */
+    JSON("json"),
+
+    /**
+     * Messages are encoded compactly in binary frames (see {@link BinaryMessageFormat}).
+     * Coalesced messages are concatenated.
+     */
+    BINARY("binary");
+
+    /**
+     * The name of the query parameter that selects the format.
+     */
+    public static final String QUERY_PARAMETER = "format";
+
+    private final String token;
+
+    WireFormat(String token) {
+        this.token = token;
+    }
+
+    /**
+     * @return The value of the query parameter that selects this format.
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Determines the format that was selected in the handshake request.
+     *
+     * @param uri The URI of the handshake request.
+     * @return The selected format or {@link #JSON} if none was selected.
+     */
+    static WireFormat negotiate(String uri) {
+        String token = queryParameter(uri, QUERY_PARAMETER);
+
+        for (WireFormat format : values()) {
+            if (format.token.equals(token)) {
+                return format;
+            }
+        }
+
+        return JSON;
+    }
+
+    /**
+     * Reads a query parameter of a handshake request.
+     * Values are not decoded.
+     *
+     * @param uri  The URI of the handshake request.
+     * @param name The name of the parameter.
+     * @return The value of the first occurrence of the parameter or {@code null} if it is absent.
+     */
+    static String queryParameter(String uri, String name) {
+        int query = uri == null ? -1 : uri.indexOf('?');
+
+        if (query < 0) {
+            return null;
+        }
+
+        for (String parameter : uri.substring(query + 1).split("&")) {
+            int separator = parameter.indexOf('=');
+
+            if (separator == name.length() && parameter.startsWith(name)) {
+                return parameter.substring(separator + 1);
+            }
+        }
+
+        return null;
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.pploder.ehc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class BinaryMessageFormatTest {
+
+    @Test
+    public void testPlain() {
+        byte[] encoded = BinaryMessageFormat.encode(MessageContent.of("Hi"));
+
+        Assert.assertArrayEquals(new byte[]{1, 0, 2, 'H', 'i'}, encoded);
+    }
+
+    @Test
+    public void testEmpty() {
+        Assert.assertArrayEquals(new byte[]{0}, BinaryMessageFormat.encode(new MessageContent()));
+    }
+
+    @Test
+    public void testStyles() {
+        MessageContent content = new MessageContent(
+                new MessageSnippet("a", MessageStyle.PLAIN.withColor(255, 128, 0).withBold(true)),
+                new MessageSnippet("b", MessageStyle.PLAIN.withBold(false).withUnderlined(true)),
+                new MessageSnippet("c", MessageStyle.PLAIN.withColor(255, 128, 0).withBold(true)),
+                new MessageSnippet("d"),
+                new MessageSnippet("e", MessageStyle.PLAIN.withBold(false).withUnderlined(true)));
+
+        byte[] expected = {
+                5,
+                2, 0b10, (byte) 255, (byte) 128, 0, 1, 'a',
+                1, 0b10_00_01, 1, 'b',
+                3, 1, 'c',
+                0, 1, 'd',
+                4, 1, 'e'
+        };
+
+        Assert.assertArrayEquals(expected, BinaryMessageFormat.encode(content));
+    }
+
+    @Test
+    public void testLongText() {
+        char[] chars = new char[300];
+        Arrays.fill(chars, '\u00e4');
+        String text = new String(chars);
+
+        byte[] encoded = BinaryMessageFormat.encode(MessageContent.of(text));
+
+        // 600 bytes of UTF-8 encoded as varint
+        Assert.assertEquals(1, encoded[0]);
+        Assert.assertEquals(0, encoded[1]);
+        Assert.assertEquals((byte) (600 & 0x7F | 0x80), encoded[2]);
+        Assert.assertEquals(600 >>> 7, encoded[3]);
+        Assert.assertEquals(text, new String(encoded, 4, encoded.length - 4, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testEncodedMessage() {
+        EncodedMessage encodedMessage = new EncodedMessage(MessageContent.of("Hi"));
+
+        Assert.assertSame(encodedMessage.getBinary(), encodedMessage.getBinary());
+    }
+
+    @Test
+    public void testDecode() {
+        MessageContent content = new MessageContent(
+                new MessageSnippet("a", MessageStyle.PLAIN.withColor(255, 128, 0).withBold(true)),
+                new MessageSnippet("b", MessageStyle.PLAIN.withBold(false).withUnderlined(true)),
+                new MessageSnippet("c", MessageStyle.PLAIN.withColor(255, 128, 0).withBold(true)),
+                new MessageSnippet("\u00e4"));
+
+        byte[] encoded = BinaryMessageFormat.encode(content);
+        MessageContent decoded = BinaryMessageFormat.decode(encoded);
+
+        Assert.assertEquals(content.asJSON().toJSONString(), decoded.asJSON().toJSONString());
+        Assert.assertArrayEquals(encoded, BinaryMessageFormat.encode(decoded));
+
+        EncodedMessage relayed = new EncodedMessage(encoded);
+        Assert.assertSame(encoded, relayed.getBinary());
+        Assert.assertEquals(content.asJSON().toJSONString(), relayed.getJSON());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeTruncated() {
+        BinaryMessageFormat.decode(new byte[]{1, 0, 2, 'H'});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeExcessiveCount() {
+        // Announces 2^31 - 1 snippets
+        BinaryMessageFormat.decode(new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 0, 0});
+    }
+
+    @Test
+    public void testPrepend() {
+        MessageContent content = new MessageContent(
+                new MessageSnippet("a", MessageStyle.PLAIN.withColor(255, 128, 0).withBold(true)),
+                new MessageSnippet("b", MessageStyle.PLAIN.withColor(255, 128, 0).withBold(true)));
+
+        byte[] prepended = BinaryMessageFormat.prepend("[n] ", BinaryMessageFormat.encode(content));
+        MessageContent expected = new MessageContent(new MessageSnippet("[n] "),
+                content.getSnippet(0), content.getSnippet(1));
+
+        Assert.assertArrayEquals(BinaryMessageFormat.encode(expected), prepended);
+    }
+
+    @Test
+    public void testNegotiate() {
+        Assert.assertEquals(WireFormat.JSON, WireFormat.negotiate("/ws"));
+        Assert.assertEquals(WireFormat.JSON, WireFormat.negotiate(null));
+        Assert.assertEquals(WireFormat.BINARY, WireFormat.negotiate("/ws?format=binary"));
+        Assert.assertEquals(WireFormat.BINARY, WireFormat.negotiate("/ws?a=b&format=binary"));
+        Assert.assertEquals(WireFormat.JSON, WireFormat.negotiate("/ws?format=json"));
+        Assert.assertEquals(WireFormat.JSON, WireFormat.negotiate("/ws?format=unknown"));
+        Assert.assertEquals(WireFormat.JSON, WireFormat.negotiate("/ws?xformat=binary"));
+    }
+
+}
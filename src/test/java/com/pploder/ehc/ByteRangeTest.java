@@ -0,0 +1,56 @@
+package com.pploder.ehc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ByteRangeTest {
+
+    @Test
+    public void testRange() {
+        ByteRange range = ByteRange.parse("bytes=10-19", 100);
+
+        Assert.assertEquals(10, range.getFirst());
+        Assert.assertEquals(19, range.getLast());
+        Assert.assertEquals(10, range.getLength());
+        Assert.assertEquals("bytes 10-19/100", range.toContentRange(100));
+    }
+
+    @Test
+    public void testOpenRange() {
+        ByteRange range = ByteRange.parse("bytes=90-", 100);
+
+        Assert.assertEquals(90, range.getFirst());
+        Assert.assertEquals(99, range.getLast());
+    }
+
+    @Test
+    public void testSuffixRange() {
+        ByteRange range = ByteRange.parse("bytes=-30", 100);
+
+        Assert.assertEquals(70, range.getFirst());
+        Assert.assertEquals(99, range.getLast());
+
+        Assert.assertEquals(0, ByteRange.parse("bytes=-300", 100).getFirst());
+    }
+
+    @Test
+    public void testLastBeyondLength() {
+        Assert.assertEquals(99, ByteRange.parse("bytes=50-500", 100).getLast());
+    }
+
+    @Test
+    public void testUnsatisfiable() {
+        Assert.assertSame(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=100-", 100));
+        Assert.assertEquals("bytes */100", ByteRange.UNSATISFIABLE.toContentRange(100));
+    }
+
+    @Test
+    public void testIgnored() {
+        Assert.assertNull(ByteRange.parse(null, 100));
+        Assert.assertNull(ByteRange.parse("items=0-1", 100));
+        Assert.assertNull(ByteRange.parse("bytes=0-1, 5-6", 100));
+        Assert.assertNull(ByteRange.parse("bytes=5-1", 100));
+        Assert.assertNull(ByteRange.parse("bytes=a-b", 100));
+    }
+
+}
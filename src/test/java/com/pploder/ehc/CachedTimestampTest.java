@@ -0,0 +1,84 @@
+package com.pploder.ehc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CachedTimestampTest {
+
+    @Test
+    public void testFormatsOncePerTick() {
+        AtomicInteger formatCount = new AtomicInteger();
+        MutableClock clock = new MutableClock(Instant.parse("2017-03-01T12:00:10Z"));
+
+        CachedTimestamp timestamp = new CachedTimestamp(instant -> {
+            formatCount.incrementAndGet();
+            return instant.toString();
+        }, Duration.ofMinutes(1), clock);
+
+        byte[] first = timestamp.get();
+        clock.instant = Instant.parse("2017-03-01T12:00:59Z");
+        byte[] second = timestamp.get();
+
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, formatCount.get());
+        Assert.assertEquals("2017-03-01T12:00:00Z", new String(first, StandardCharsets.UTF_8));
+
+        clock.instant = Instant.parse("2017-03-01T12:01:00Z");
+
+        Assert.assertEquals("2017-03-01T12:01:00Z", new String(timestamp.get(), StandardCharsets.UTF_8));
+        Assert.assertEquals(2, formatCount.get());
+    }
+
+    @Test
+    public void testDateTimeFormatter() {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("EEEE, dd MMMM yyyy kk:mm ('UTC'Z)")
+                .withLocale(Locale.US)
+                .withZone(ZoneOffset.UTC);
+
+        CachedTimestamp timestamp = new CachedTimestamp(formatter::format, CachedTimestamp.DEFAULT_RESOLUTION,
+                new MutableClock(Instant.parse("2017-03-01T09:05:30Z")));
+
+        Assert.assertEquals("Wednesday, 01 March 2017 09:05 (UTC+0000)", timestamp.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testResolutionTooShort() {
+        new CachedTimestamp(Instant::toString, Duration.ZERO, Clock.systemUTC());
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.pploder.ehc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CancellationTokenTest {
+
+    @Test
+    public void testCancel() {
+        AtomicInteger callbacks = new AtomicInteger();
+        CancellationToken token = new CancellationToken();
+
+        token.onCancel(callbacks::incrementAndGet);
+        token.throwIfCancelled();
+
+        Assert.assertFalse(token.isCancelled());
+        Assert.assertNull(token.getReason());
+        Assert.assertEquals(0, callbacks.get());
+
+        Assert.assertTrue(token.cancel("Reason"));
+        Assert.assertFalse(token.cancel("Other reason"));
+
+        Assert.assertTrue(token.isCancelled());
+        Assert.assertEquals("Reason", token.getReason().getMessage());
+        Assert.assertEquals(1, callbacks.get());
+
+        // Callbacks of a cancelled token run immediately
+        token.onCancel(callbacks::incrementAndGet);
+        Assert.assertEquals(2, callbacks.get());
+    }
+
+    @Test(expected = CancellationException.class)
+    public void testThrowIfCancelled() {
+        CancellationToken token = new CancellationToken();
+        token.cancel("Reason");
+
+        token.throwIfCancelled();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testNone() {
+        CancellationToken.NONE.cancel("Reason");
+    }
+
+}
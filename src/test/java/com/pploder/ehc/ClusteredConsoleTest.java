@@ -0,0 +1,221 @@
+package com.pploder.ehc;
+
+import com.pploder.events.Event;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+public class ClusteredConsoleTest {
+
+    @Test
+    public void testRouting() throws Exception {
+        LoopbackTransport transportA = new LoopbackTransport("a", Runnable::run);
+        LoopbackTransport transportB = transportA.join("b", Runnable::run);
+
+        MockupNetModule moduleA = new MockupNetModule();
+        ClusteredConsole a = new ClusteredConsole(new SimpleConsole<>(moduleA), transportA);
+        ClusteredConsole b = new ClusteredConsole(new SimpleConsole<>(new MockupNetModule()), transportB);
+
+        a.messageReceivedEvent().addListener(message -> message.respond("pong " + message.getMessage()));
+        b.messageReceivedEvent().addListener(message -> message.respond("pong " + message.getMessage()));
+
+        List<Connection> removed = new ArrayList<>();
+        b.connectionRemovedEvent().addListener(removed::add);
+
+        a.start();
+        b.start();
+
+        List<String> received = new ArrayList<>();
+        Connection client = new MockupConnection(a, "client", content -> received.add(textOf(content)));
+
+        moduleA.messageReceivedEvent().trigger(new SimpleMessage(client, "ping"));
+        moduleA.messageReceivedEvent().trigger(new SimpleMessage(client, "@b ping"));
+        moduleA.messageReceivedEvent().trigger(new SimpleMessage(client, "@* status"));
+        moduleA.messageReceivedEvent().trigger(new SimpleMessage(client, "@x ping"));
+
+        Assert.assertEquals(5, received.size());
+        Assert.assertEquals("pong ping", received.get(0));
+        Assert.assertEquals("[b] pong ping", received.get(1));
+        Assert.assertEquals("pong status", received.get(2));
+        Assert.assertEquals("[b] pong status", received.get(3));
+        Assert.assertEquals("Unknown node: x", received.get(4));
+
+        moduleA.connectionClosedEvent().trigger(client);
+
+        Assert.assertEquals(1, removed.size());
+        Assert.assertSame(b, removed.get(0).getConsole());
+
+        a.close();
+        b.close();
+    }
+
+    @Test
+    public void testBroadcast() throws Exception {
+        LoopbackTransport transportA = new LoopbackTransport("a", Runnable::run);
+        LoopbackTransport transportB = transportA.join("b", Runnable::run);
+
+        MockupNetModule moduleA = new MockupNetModule();
+        MockupNetModule moduleB = new MockupNetModule();
+        ClusteredConsole a = new ClusteredConsole(new SimpleConsole<>(moduleA), transportA);
+        ClusteredConsole b = new ClusteredConsole(new SimpleConsole<>(moduleB), transportB);
+
+        List<String> receivedA = new ArrayList<>();
+        List<String> receivedB = new ArrayList<>();
+        moduleA.setConnections(Collections.singletonList(
+                new MockupConnection(a, "a", content -> receivedA.add(textOf(content)))));
+        moduleB.setConnections(Collections.singletonList(
+                new MockupConnection(b, "b", content -> receivedB.add(textOf(content)))));
+
+        a.start();
+        b.start();
+
+        b.broadcast("Hello");
+
+        Assert.assertEquals(Collections.singletonList("Hello"), receivedA);
+        Assert.assertEquals(Collections.singletonList("Hello"), receivedB);
+
+        a.close();
+        b.close();
+    }
+
+    @Test
+    public void testBatching() throws Exception {
+        LoopbackTransport loopbackA = new LoopbackTransport("a", Runnable::run);
+        LoopbackTransport transportB = loopbackA.join("b", Runnable::run);
+        AtomicInteger batches = new AtomicInteger();
+
+        ClusterTransport transportA = new ClusterTransport() {
+
+            @Override
+            public String getLocalNode() {
+                return loopbackA.getLocalNode();
+            }
+
+            @Override
+            public Collection<String> getNodes() {
+                return loopbackA.getNodes();
+            }
+
+            @Override
+            public Event<String> nodeLeftEvent() {
+                return loopbackA.nodeLeftEvent();
+            }
+
+            @Override
+            public void open(BiConsumer<String, byte[]> receiver) {
+                loopbackA.open(receiver);
+            }
+
+            @Override
+            public void send(String node, byte[] batch) {
+                batches.incrementAndGet();
+                loopbackA.send(node, batch);
+            }
+
+            @Override
+            public void close() {
+                loopbackA.close();
+            }
+
+        };
+
+        MockupNetModule moduleA = new MockupNetModule();
+        MockupNetModule moduleB = new MockupNetModule();
+        ClusteredConsole a = new ClusteredConsole(new SimpleConsole<>(moduleA), transportA);
+        ClusteredConsole b = new ClusteredConsole(new SimpleConsole<>(moduleB), transportB);
+
+        List<String> receivedB = new ArrayList<>();
+        moduleA.setConnections(Collections.emptyList());
+        moduleB.setConnections(Collections.singletonList(
+                new MockupConnection(b, "b", content -> receivedB.add(textOf(content)))));
+
+        a.enableBatching(Duration.ofMinutes(1), 1024 * 1024);
+        a.start();
+        b.start();
+
+        a.broadcast("1");
+        a.broadcast("2");
+        a.broadcast("3");
+
+        Assert.assertEquals(0, batches.get());
+        Assert.assertTrue(receivedB.isEmpty());
+
+        a.close();
+
+        Assert.assertEquals(1, batches.get());
+        Assert.assertEquals(Arrays.asList("1", "2", "3"), receivedB);
+
+        b.close();
+    }
+
+    @Test
+    public void testNodeLeft() throws Exception {
+        LoopbackTransport transportA = new LoopbackTransport("a", Runnable::run);
+        LoopbackTransport transportB = transportA.join("b", Runnable::run);
+        LoopbackTransport transportC = transportA.join("c", Runnable::run);
+
+        MockupNetModule moduleA = new MockupNetModule();
+        ClusteredConsole a = new ClusteredConsole(new SimpleConsole<>(moduleA), transportA);
+        ClusteredConsole b = new ClusteredConsole(new SimpleConsole<>(new MockupNetModule()), transportB);
+        ClusteredConsole c = new ClusteredConsole(new SimpleConsole<>(new MockupNetModule()), transportC);
+
+        List<String> interruptedB = new ArrayList<>();
+        b.messageReceivedEvent().addListener(message -> interruptedB.add(message.getMessage()));
+
+        List<Connection> removedC = new ArrayList<>();
+        c.connectionRemovedEvent().addListener(removedC::add);
+
+        a.start();
+        b.start();
+        c.start();
+
+        Connection client = new MockupConnection(a, "client", content -> {
+        });
+
+        moduleA.messageReceivedEvent().trigger(new SimpleMessage(client, "@b ping"));
+        moduleA.messageReceivedEvent().trigger(new SimpleMessage(client, "@c ping"));
+
+        // The interrupt only reaches nodes that are still part of the cluster
+        b.close();
+        moduleA.messageReceivedEvent().trigger(new SimpleMessage(client, SimpleCommandRegistry.INTERRUPT));
+        Assert.assertEquals(Collections.singletonList("ping"), interruptedB);
+
+        // The connection of the client is removed from the nodes that remain
+        a.close();
+        Assert.assertEquals(1, removedC.size());
+        Assert.assertEquals("a#1", removedC.get(0).getRemoteAddress());
+
+        c.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTruncatedRecord() {
+        byte[] record = ByteBuffer.allocate(13)
+                .put((byte) ClusterRecord.BROADCAST)
+                .putLong(0)
+                .putInt(Integer.MAX_VALUE)
+                .array();
+
+        ClusterRecord.decode(record);
+    }
+
+    private static String textOf(MessageContent content) {
+        StringBuilder builder = new StringBuilder();
+
+        for (MessageSnippet snippet : content) {
+            builder.append(snippet.getText());
+        }
+
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.pploder.ehc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class CommandExecutorTest {
+
+    @Test
+    public void testDirect() {
+        List<Integer> executed = new ArrayList<>();
+
+        CommandExecutor.DIRECT.execute(null, () -> executed.add(1));
+
+        Assert.assertEquals(Collections.singletonList(1), executed);
+    }
+
+    @Test
+    public void testOrderPerConnection() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        OrderedCommandExecutor executor = new OrderedCommandExecutor(pool);
+
+        Connection a = new MockupConnection(null, "A");
+        Connection b = new MockupConnection(null, "B");
+        List<Integer> executedA = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> executedB = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> expected = new ArrayList<>();
+
+        for (int i = 0; i < 1000; i++) {
+            int n = i;
+            executor.execute(a, () -> executedA.add(n));
+            executor.execute(b, () -> executedB.add(n));
+            expected.add(n);
+        }
+
+        pool.shutdown();
+        Assert.assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        Assert.assertEquals(expected, executedA);
+        Assert.assertEquals(expected, executedB);
+        Assert.assertEquals(0, executor.getLaneCount());
+    }
+
+    @Test
+    public void testConnectionsRunConcurrently() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        CommandExecutor executor = CommandExecutor.ordered(pool);
+
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocking = () -> {
+            started.countDown();
+
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        executor.execute(new MockupConnection(null, "A"), blocking);
+        executor.execute(new MockupConnection(null, "B"), blocking);
+
+        // A slow command of one connection must not hold back the other one
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        release.countDown();
+        pool.shutdown();
+        Assert.assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFailureDoesNotStopLane() throws Exception {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        CommandExecutor executor = CommandExecutor.ordered(pool);
+        Connection connection = new MockupConnection(null, "A");
+        List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+
+        executor.execute(connection, () -> {
+            throw new IllegalStateException();
+        });
+        executor.execute(connection, () -> executed.add(2));
+
+        pool.shutdown();
+        Assert.assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+
+        Assert.assertEquals(Collections.singletonList(2), executed);
+    }
+
+}
@@ -0,0 +1,200 @@
+package com.pploder.ehc;
+
+import org.junit.Test;
+import org.webbitserver.HttpRequest;
+import org.webbitserver.HttpResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ConsoleHttpHandlerTest {
+
+    @Test
+    public void testLoadFailure() {
+        ConsoleHttpHandler handler = handler();
+        handler.addRoute("GET", "/broken", match -> {
+            throw new UncheckedIOException(new IOException("Broken"));
+        });
+
+        Map<String, Object> response = request(handler, "/broken", new HashMap<>());
+
+        assertEquals(500, response.get("status"));
+        assertEquals(Boolean.TRUE, response.get("end"));
+
+        assertEquals(200, request(handler, "/", new HashMap<>()).get("status"));
+    }
+
+    @Test
+    public void testEntityTags() {
+        ConsoleHttpHandler handler = handler();
+        RawHttpSupplier supplier = new RawHttpSupplier("Content".getBytes(StandardCharsets.UTF_8), "text/plain");
+        handler.addRoute("GET", "/data", match -> supplier.get());
+
+        Map<String, Object> first = request(handler, "/data", new HashMap<>());
+        String entityTag = (String) first.get("ETag");
+
+        assertEquals(200, first.get("status"));
+        assertNotNull(entityTag);
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put("If-None-Match", entityTag);
+        Map<String, Object> matching = request(handler, "/data", headers);
+
+        assertEquals(304, matching.get("status"));
+        assertEquals(entityTag, matching.get("ETag"));
+        assertNull(matching.get("content"));
+
+        headers.put("If-None-Match", "\"other\", " + entityTag);
+        assertEquals(304, request(handler, "/data", headers).get("status"));
+
+        headers.put("If-None-Match", "\"other\"");
+        Map<String, Object> mismatching = request(handler, "/data", headers);
+
+        assertEquals(200, mismatching.get("status"));
+        assertEquals(entityTag, mismatching.get("ETag"));
+        assertArrayEquals("Content".getBytes(StandardCharsets.UTF_8), (byte[]) mismatching.get("content"));
+    }
+
+    @Test
+    public void testLastModified() {
+        ConsoleHttpHandler handler = handler();
+        Instant modified = Instant.parse("2020-01-01T00:00:00Z");
+        handler.addRoute("GET", "/data", match -> {
+            Page page = new Page("Content", 200, "text/plain", false);
+            page.setLastModified(modified);
+            page.setEntityTag("\"tag\"");
+            return page;
+        });
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put("If-Modified-Since", "Wed, 1 Jan 2020 00:00:00 GMT");
+        Map<String, Object> response = request(handler, "/data", headers);
+
+        assertEquals(304, response.get("status"));
+        assertEquals("Wed, 1 Jan 2020 00:00:00 GMT", response.get("Last-Modified"));
+
+        // If-None-Match takes precedence
+        headers.put("If-None-Match", "\"other\"");
+        assertEquals(200, request(handler, "/data", headers).get("status"));
+
+        headers.remove("If-None-Match");
+        headers.put("If-Modified-Since", "Tue, 31 Dec 2019 00:00:00 GMT");
+        assertEquals(200, request(handler, "/data", headers).get("status"));
+    }
+
+    @Test
+    public void testCacheControl() {
+        ConsoleHttpHandler handler = new ConsoleHttpHandler(new MockupNetModule(), SiteHttpSupplier.defaultSite(),
+                new ResourceStore(), DefaultResource.FAVICON, DefaultResource.MANIFEST);
+
+        for (String policy : new String[]{CacheControl.NO_CACHE, CacheControl.NO_STORE,
+                CacheControl.maxAge(Duration.ofHours(1)), CacheControl.immutable(Duration.ofDays(7))}) {
+            RawHttpSupplier supplier = new RawHttpSupplier(new byte[1], 200, "text/plain", policy);
+            handler.addRoute("GET", "/" + policy, match -> supplier.get());
+
+            assertEquals(policy, request(handler, "/" + policy, new HashMap<>()).get("Cache-Control"));
+        }
+
+        assertEquals("no-cache", CacheControl.NO_CACHE);
+        assertEquals("no-store", CacheControl.NO_STORE);
+        assertEquals("public, max-age=3600", CacheControl.maxAge(Duration.ofHours(1)));
+        assertEquals("public, max-age=604800, immutable", CacheControl.immutable(Duration.ofDays(7)));
+
+        assertEquals(SiteHttpSupplier.CACHE_CONTROL, request(handler, "/", new HashMap<>()).get("Cache-Control"));
+        assertEquals("public, max-age=31536000, immutable",
+                request(handler, "/favicon.ico", new HashMap<>()).get("Cache-Control"));
+        assertEquals("public, max-age=86400", request(handler, "/manifest.json", new HashMap<>()).get("Cache-Control"));
+
+        handler.addRoute("GET", "/plain", match -> new Page("Content", 200, "text/plain", false));
+        assertFalse(request(handler, "/plain", new HashMap<>()).containsKey("Cache-Control"));
+    }
+
+    @Test
+    public void testBufferedResponseLimit() throws IOException {
+        Path file = Files.createTempFile("mapped", ".bin");
+
+        try {
+            Files.write(file, new byte[100]);
+            MappedFileSupplier supplier = new MappedFileSupplier(file, "application/octet-stream",
+                    CacheControl.NO_CACHE);
+
+            ConsoleHttpHandler handler = handler();
+            handler.addRoute("GET", "/file", match -> supplier.get());
+
+            assertEquals(200, request(handler, "/file", new HashMap<>()).get("status"));
+
+            handler.limitBufferedResponses(50);
+
+            Map<String, Object> refused = request(handler, "/file", new HashMap<>());
+            assertEquals(500, refused.get("status"));
+            assertEquals(CacheControl.NO_STORE, refused.get("Cache-Control"));
+
+            Map<String, String> headers = new HashMap<>();
+            headers.put("Range", "bytes=0-49");
+            Map<String, Object> range = request(handler, "/file", headers);
+
+            assertEquals(206, range.get("status"));
+            assertEquals(50, ((ByteBuffer) range.get("content")).remaining());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static ConsoleHttpHandler handler() {
+        return new ConsoleHttpHandler(new MockupNetModule(), () -> new Page("Interface", 200, "text/plain", false),
+                new ResourceStore());
+    }
+
+    private static Map<String, Object> request(ConsoleHttpHandler handler, String uri, Map<String, String> headers) {
+        Map<String, Object> result = new HashMap<>();
+
+        HttpRequest request = MockupProxy.of(HttpRequest.class, (method, args) -> {
+            switch (method) {
+                case "uri":
+                    return uri;
+                case "method":
+                    return "GET";
+                case "header":
+                    return headers.get((String) args[0]);
+                default:
+                    return null;
+            }
+        });
+
+        HttpResponse[] response = new HttpResponse[1];
+        response[0] = MockupProxy.of(HttpResponse.class, (method, args) -> {
+            switch (method) {
+                case "status":
+                    result.put("status", args[0]);
+                    break;
+                case "header":
+                    result.put((String) args[0], args[1]);
+                    break;
+                case "content":
+                    result.put("content", args[0]);
+                    break;
+                case "end":
+                    result.put("end", true);
+                    break;
+                default:
+                    break;
+            }
+            return response[0];
+        });
+
+        handler.handle(uri, request, response[0]);
+
+        return result;
+    }
+
+}
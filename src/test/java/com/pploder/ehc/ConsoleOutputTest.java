@@ -0,0 +1,98 @@
+package com.pploder.ehc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ConsoleOutputTest {
+
+    private final List<MessageContent> messages = new ArrayList<>();
+    private final Connection connection = new MockupConnection(null, "RemoteAddress", messages::add);
+
+    @Test
+    public void testChunksEndAtLineBreaks() throws IOException {
+        try (ConsoleOutput output = new ConsoleOutput(connection, 10)) {
+            output.write("line 1\nline 2\nline 3\n");
+
+            Assert.assertEquals(Arrays.asList("line 1", "line 2"), texts());
+        }
+
+        Assert.assertEquals(Arrays.asList("line 1", "line 2", "line 3"), texts());
+    }
+
+    @Test
+    public void testLongLine() throws IOException {
+        try (ConsoleOutput output = new ConsoleOutput(connection, 4)) {
+            output.write("abcdefghij");
+        }
+
+        Assert.assertEquals(Arrays.asList("abcd", "efgh", "ij"), texts());
+    }
+
+    @Test
+    public void testStyles() throws IOException {
+        try (ConsoleOutput output = new ConsoleOutput(connection, ConsoleOutput.DEFAULT_CHUNK_SIZE)) {
+            output.write("plain ");
+            output.style(MessageStyle.PLAIN.withColor(0xFF0000).withBold(true)).write("red");
+            output.resetStyle().append(" plain");
+        }
+
+        Assert.assertEquals(1, messages.size());
+
+        MessageContent content = messages.get(0);
+
+        Assert.assertEquals(3, content.getSnippetsCount());
+        Assert.assertEquals("plain ", content.getSnippet(0).getText());
+        Assert.assertSame(MessageStyle.PLAIN, content.getSnippet(0).getStyle());
+        Assert.assertEquals("red", content.getSnippet(1).getText());
+        Assert.assertEquals(0xFF0000, content.getSnippet(1).getStyle().getRGB());
+        Assert.assertEquals(Boolean.TRUE, content.getSnippet(1).getBoldOverride());
+        Assert.assertEquals(" plain", content.getSnippet(2).getText());
+        Assert.assertNull(content.getSnippet(2).getBoldOverride());
+    }
+
+    @Test
+    public void testFlushAndClose() throws IOException {
+        ConsoleOutput output = connection.openOutput();
+
+        output.close();
+        Assert.assertTrue(messages.isEmpty());
+
+        output.close();
+
+        try {
+            output.write("text");
+            Assert.fail();
+        } catch (IOException e) {
+            // Expected
+        }
+
+        output = new ConsoleOutput(connection, 100);
+        output.write("a\nb");
+        output.flush();
+
+        Assert.assertEquals(Arrays.asList("a\nb"), texts());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidChunkSize() {
+        new ConsoleOutput(connection, 0);
+    }
+
+    private List<String> texts() {
+        List<String> texts = new ArrayList<>();
+
+        for (MessageContent content : messages) {
+            StringBuilder text = new StringBuilder();
+            content.forEach(snippet -> text.append(snippet.getText()));
+            texts.add(text.toString());
+        }
+
+        return texts;
+    }
+
+}
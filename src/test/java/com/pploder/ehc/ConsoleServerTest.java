@@ -0,0 +1,249 @@
+package com.pploder.ehc;
+
+import org.junit.Test;
+import org.webbitserver.BaseWebSocketHandler;
+import org.webbitserver.HttpControl;
+import org.webbitserver.HttpRequest;
+import org.webbitserver.HttpResponse;
+import org.webbitserver.WebSocketConnection;
+import org.webbitserver.WebSocketHandler;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ConsoleServerTest {
+
+    @Test
+    public void testPrefix() {
+        assertEquals("/", ConsoleServer.toPrefix(""));
+        assertEquals("/", ConsoleServer.toPrefix("/"));
+        assertEquals("/cache/", ConsoleServer.toPrefix("cache"));
+        assertEquals("/cache/", ConsoleServer.toPrefix("/cache/"));
+    }
+
+    @Test
+    public void testModuleURLs() throws Exception {
+        ConsoleServer server = new ConsoleServer("example.org", 8000);
+
+        HttpNetModule root = new HttpNetModule(server, "/");
+        HttpNetModule cache = new HttpNetModule(SiteHttpSupplier.defaultSite(), server, "cache", "socket");
+
+        assertEquals("http://example.org:8000/", root.getHttpURL());
+        assertEquals("ws://example.org:8000/ws", root.getWebsocketURL());
+        assertEquals("http://example.org:8000/cache/", cache.getHttpURL());
+        assertEquals("ws://example.org:8000/cache/socket", cache.getWebsocketURL());
+        assertEquals(8000, cache.getPort());
+
+        HttpNetModule standalone = new HttpNetModule("example.org", 8000);
+
+        assertEquals("http://example.org:8000/", standalone.getHttpURL());
+        assertEquals("ws://example.org:8000/ws", standalone.getWebsocketURL());
+        assertNotSame(server, standalone.getServer());
+    }
+
+    @Test
+    public void testMaxContentLength() throws Exception {
+        ConsoleServer server = new ConsoleServer();
+        assertEquals(ConsoleServer.DEFAULT_MAX_CONTENT_LENGTH, server.getMaxContentLength());
+
+        HttpNetModule module = new HttpNetModule(server, "/");
+        module.limitInboundMessages(1024);
+        assertEquals(1024, server.getMaxContentLength());
+
+        try {
+            server.setMaxContentLength(0);
+            fail("Invalid maximum content length accepted");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+
+        assertEquals(1024, server.getMaxContentLength());
+    }
+
+    @Test
+    public void testDispatch() throws Exception {
+        ConsoleServer server = new ConsoleServer();
+        WebSocketHandler rootSocket = new BaseWebSocketHandler();
+        WebSocketHandler cacheSocket = new BaseWebSocketHandler();
+
+        server.mount("/", "/ws", rootSocket, handler("root"));
+        server.mount("/cache/", "/cache/ws", cacheSocket, handler("cache"));
+
+        assertEquals(2, server.getMountCount());
+        assertFalse(server.isRunning());
+
+        assertEquals("root /", dispatch(server, "/").get("content"));
+        assertEquals("root /a", dispatch(server, "/a?b=c").get("content"));
+        assertEquals("cache /", dispatch(server, "/cache/").get("content"));
+        assertEquals("cache /a", dispatch(server, "/cache/a").get("content"));
+        assertEquals("root /cached/a", dispatch(server, "/cached/a").get("content"));
+
+        Map<String, Object> redirect = dispatch(server, "/cache?x=1");
+        assertEquals(301, redirect.get("status"));
+        assertEquals("/cache/?x=1", redirect.get("Location"));
+
+        assertSame(rootSocket, dispatch(server, "/ws").get("upgrade"));
+        assertSame(cacheSocket, dispatch(server, "/cache/ws?session=x").get("upgrade"));
+
+        try {
+            server.mount("/cache/", "/cache/ws", cacheSocket, handler("again"));
+            fail("Duplicate mount accepted");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+
+        server.unmount("/");
+        assertEquals(1, server.getMountCount());
+        assertEquals(Boolean.TRUE, dispatch(server, "/a").get("next"));
+        assertEquals("cache /a", dispatch(server, "/cache/a").get("content"));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testHeartbeatNullInterval() {
+        new HttpNetModule(new ConsoleServer(), "/").enableHeartbeat(null, Duration.ofSeconds(1));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testHeartbeatNullIdleTimeout() {
+        new HttpNetModule(new ConsoleServer(), "/").enableHeartbeat(Duration.ofSeconds(1), null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHeartbeatShortIdleTimeout() {
+        new HttpNetModule(new ConsoleServer(), "/").enableHeartbeat(Duration.ofSeconds(2), Duration.ofSeconds(2));
+    }
+
+    @Test
+    public void testCloseMount() throws Throwable {
+        ConsoleServer server = new ConsoleServer();
+
+        HttpNetModule root = new HttpNetModule(server, "/");
+        root.enableSessionResume();
+        new SimpleConsole<>(root);
+
+        HttpNetModule cache = new HttpNetModule(server, "cache");
+        new SimpleConsole<>(cache);
+
+        List<Connection> closedRoot = new ArrayList<>();
+        List<Connection> closedCache = new ArrayList<>();
+        root.connectionClosedEvent().addListener(closedRoot::add);
+        cache.connectionClosedEvent().addListener(closedCache::add);
+
+        WebSocketHandler rootSocket = (WebSocketHandler) dispatch(server, "/ws").get("upgrade");
+        WebSocketHandler cacheSocket = (WebSocketHandler) dispatch(server, "/cache/ws").get("upgrade");
+
+        Map<String, Object> detached = new HashMap<>();
+        Map<String, Object> attached = new HashMap<>();
+        Map<String, Object> other = new HashMap<>();
+
+        rootSocket.onOpen(webSocketConnection("/ws", detached));
+        rootSocket.onClose((WebSocketConnection) detached.get("connection"));
+        rootSocket.onOpen(webSocketConnection("/ws", attached));
+        cacheSocket.onOpen(webSocketConnection("/cache/ws", other));
+
+        // The detached session can still be resumed
+        assertEquals(2, root.getConnectionCount());
+        assertTrue(closedRoot.isEmpty());
+
+        root.close();
+
+        assertEquals(1, server.getMountCount());
+        assertEquals(0, root.getConnectionCount());
+        assertEquals(2, closedRoot.size());
+        assertEquals(Boolean.TRUE, attached.get("closed"));
+
+        assertEquals(1, cache.getConnectionCount());
+        assertTrue(closedCache.isEmpty());
+        assertNull(other.get("closed"));
+
+        cache.close();
+        assertEquals(1, closedCache.size());
+        assertEquals(Boolean.TRUE, other.get("closed"));
+    }
+
+    private static WebSocketConnection webSocketConnection(String uri, Map<String, Object> result) {
+        HttpRequest request = MockupProxy.of(HttpRequest.class, (method, args) -> {
+            switch (method) {
+                case "uri":
+                    return uri;
+                case "remoteAddress":
+                    return InetSocketAddress.createUnresolved("client", 1234);
+                default:
+                    return null;
+            }
+        });
+
+        WebSocketConnection connection = MockupProxy.of(WebSocketConnection.class, (method, args) -> {
+            switch (method) {
+                case "httpRequest":
+                    return request;
+                case "execute":
+                    ((Runnable) args[0]).run();
+                    break;
+                case "close":
+                    result.put("closed", true);
+                    break;
+                default:
+                    break;
+            }
+            return null;
+        });
+
+        result.put("connection", connection);
+        return connection;
+    }
+
+    private static ConsoleHttpHandler handler(String name) {
+        ConsoleHttpHandler handler = new ConsoleHttpHandler(new MockupNetModule(),
+                () -> new Page(name + " /", 200, "text/plain", false), new ResourceStore());
+        handler.addRoute("GET", "/**", match -> new Page(name + " /" + match.getRemainder(), 200, "text/plain", false));
+        return handler;
+    }
+
+    private static Map<String, Object> dispatch(ConsoleServer server, String uri) throws Exception {
+        Map<String, Object> result = new HashMap<>();
+
+        HttpRequest request = MockupProxy.of(HttpRequest.class, (method, args) -> {
+            switch (method) {
+                case "uri":
+                    return uri;
+                case "method":
+                    return "GET";
+                default:
+                    return null;
+            }
+        });
+
+        HttpResponse[] response = new HttpResponse[1];
+        response[0] = MockupProxy.of(HttpResponse.class, (method, args) -> {
+            if (method.equals("status")) {
+                result.put("status", args[0]);
+            } else if (method.equals("header")) {
+                result.put((String) args[0], args[1]);
+            } else if (method.equals("content")) {
+                result.put("content", args[0]);
+            }
+            return response[0];
+        });
+
+        HttpControl control = MockupProxy.of(HttpControl.class, (method, args) -> {
+            if (method.equals("nextHandler")) {
+                result.put("next", true);
+            } else if (method.equals("upgradeToWebSocketConnection")) {
+                result.put("upgrade", args[0]);
+            }
+            return null;
+        });
+
+        server.dispatch(request, response[0], control);
+
+        return result;
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.pploder.ehc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+public class EncodedContentTest {
+
+    private static final byte[] COMPRESSIBLE = new String(new char[4096]).replace('\0', 'a')
+            .getBytes(StandardCharsets.US_ASCII);
+
+    @Test
+    public void testCompressedForms() throws Exception {
+        EncodedContent content = new EncodedContent(COMPRESSIBLE);
+
+        Assert.assertTrue(content.isNegotiable());
+        Assert.assertArrayEquals(COMPRESSIBLE, content.getIdentity());
+        Assert.assertArrayEquals(COMPRESSIBLE, read(new GZIPInputStream(
+                new ByteArrayInputStream(content.get(ContentEncoding.GZIP)))));
+        Assert.assertArrayEquals(COMPRESSIBLE, read(new InflaterInputStream(
+                new ByteArrayInputStream(content.get(ContentEncoding.DEFLATE)))));
+    }
+
+    @Test
+    public void testIncompressibleContent() {
+        EncodedContent content = new EncodedContent(new byte[]{1, 2, 3});
+
+        Assert.assertFalse(content.isNegotiable());
+        Assert.assertNull(content.get(ContentEncoding.GZIP));
+        Assert.assertEquals(ContentEncoding.IDENTITY, content.negotiate("gzip, deflate"));
+    }
+
+    @Test
+    public void testNegotiate() {
+        EncodedContent content = new EncodedContent(COMPRESSIBLE);
+
+        Assert.assertEquals(ContentEncoding.IDENTITY, content.negotiate(null));
+        Assert.assertEquals(ContentEncoding.IDENTITY, content.negotiate(""));
+        Assert.assertEquals(ContentEncoding.GZIP, content.negotiate("gzip, deflate, br"));
+        Assert.assertEquals(ContentEncoding.GZIP, content.negotiate("deflate, gzip"));
+        Assert.assertEquals(ContentEncoding.DEFLATE, content.negotiate("gzip;q=0.5, deflate"));
+        Assert.assertEquals(ContentEncoding.GZIP, content.negotiate("x-gzip"));
+        Assert.assertEquals(ContentEncoding.GZIP, content.negotiate("*"));
+        Assert.assertEquals(ContentEncoding.IDENTITY, content.negotiate("gzip;q=0, deflate;q=0"));
+        Assert.assertEquals(ContentEncoding.DEFLATE, content.negotiate("identity;q=0, gzip;q=0, *"));
+        Assert.assertNull(content.negotiate("identity;q=0, *;q=0"));
+    }
+
+    @Test
+    public void testEntityTags() {
+        EncodedContent content = new EncodedContent(COMPRESSIBLE);
+        String identityTag = content.getEntityTag(ContentEncoding.IDENTITY);
+        String gzipTag = content.getEntityTag(ContentEncoding.GZIP);
+
+        Assert.assertTrue(identityTag.startsWith("\"") && identityTag.endsWith("\""));
+        Assert.assertFalse(identityTag.equals(gzipTag));
+        Assert.assertEquals(identityTag, new EncodedContent(COMPRESSIBLE).getEntityTag(ContentEncoding.IDENTITY));
+
+        Assert.assertTrue(content.matches(identityTag));
+        Assert.assertTrue(content.matches("\"other\", W/" + gzipTag));
+        Assert.assertTrue(content.matches("*"));
+        Assert.assertFalse(content.matches("\"other\""));
+        Assert.assertFalse(content.matches(new EncodedContent(new byte[]{1}).getEntityTag(ContentEncoding.IDENTITY)));
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+
+        while ((read = in.read(buffer)) > 0) {
+            out.write(buffer, 0, read);
+        }
+
+        return out.toByteArray();
+    }
+
+}
@@ -0,0 +1,142 @@
+package com.pploder.ehc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Inflater;
+
+public class FrameCompressorTest {
+
+    private static final String LINE = "[{\"text\":\"2016-01-01 12:00:00 INFO Processing request 42 of 100\"}]";
+
+    private final List<byte[]> frames = new ArrayList<>();
+
+    private static byte[] inflate(Inflater inflater, byte[] frame) throws Exception {
+        Assert.assertEquals(FrameCompressor.HEADER_DEFLATED, frame[0]);
+
+        int length = 0;
+        int shift = 0;
+        int position = 1;
+        byte b;
+
+        do {
+            b = frame[position++];
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        ByteArrayOutputStream input = new ByteArrayOutputStream();
+        input.write(frame, position, frame.length - position);
+        input.write(new byte[]{0, 0, (byte) 0xFF, (byte) 0xFF});
+
+        inflater.setInput(input.toByteArray());
+
+        byte[] payload = new byte[length];
+        int inflated = 0;
+
+        while (inflated < length) {
+            inflated += inflater.inflate(payload, inflated, length - inflated);
+        }
+
+        return payload;
+    }
+
+    @Test
+    public void testContextTakeover() throws Exception {
+        FrameCompressor<String> compressor = new FrameCompressor<>(FrameCodec.JSON, frames::add,
+                new FrameCompression(9, true, 0));
+        Inflater inflater = new Inflater(true);
+
+        compressor.write(LINE);
+        compressor.write(LINE);
+
+        Assert.assertEquals(LINE, new String(inflate(inflater, frames.get(0)), StandardCharsets.UTF_8));
+        Assert.assertEquals(LINE, new String(inflate(inflater, frames.get(1)), StandardCharsets.UTF_8));
+
+        // The second frame only refers to the first
+        Assert.assertTrue(frames.get(1).length < frames.get(0).length / 2);
+
+        Assert.assertEquals(2 * LINE.length(), compressor.getUncompressedByteCount());
+        Assert.assertEquals(frames.get(0).length + frames.get(1).length, compressor.getCompressedByteCount());
+    }
+
+    @Test
+    public void testNoContextTakeover() throws Exception {
+        FrameCompressor<String> compressor = new FrameCompressor<>(FrameCodec.JSON, frames::add,
+                new FrameCompression(9, false, 0));
+        Inflater inflater = new Inflater(true);
+
+        compressor.write(LINE);
+        compressor.write(LINE);
+
+        Assert.assertArrayEquals(frames.get(0), frames.get(1));
+        Assert.assertEquals(LINE, new String(inflate(inflater, frames.get(0)), StandardCharsets.UTF_8));
+        Assert.assertEquals(LINE, new String(inflate(inflater, frames.get(1)), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testLargeFrame() throws Exception {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            builder.append(i).append(',');
+        }
+
+        byte[] payload = builder.toString().getBytes(StandardCharsets.UTF_8);
+        FrameCompressor<byte[]> compressor = new FrameCompressor<>(FrameCodec.BINARY, frames::add,
+                new FrameCompression());
+
+        compressor.write(payload);
+
+        Assert.assertArrayEquals(payload, inflate(new Inflater(true), frames.get(0)));
+    }
+
+    @Test
+    public void testThreshold() {
+        FrameCompressor<String> compressor = new FrameCompressor<>(FrameCodec.JSON, frames::add,
+                new FrameCompression(FrameCompression.DEFAULT_LEVEL, true, 1024));
+
+        compressor.write("[]");
+
+        Assert.assertArrayEquals(new byte[]{FrameCompressor.HEADER_RAW, '[', ']'}, frames.get(0));
+        Assert.assertEquals(2, compressor.getUncompressedByteCount());
+        Assert.assertEquals(3, compressor.getCompressedByteCount());
+    }
+
+    @Test
+    public void testDisabled() {
+        FrameCompressor<byte[]> compressor = new FrameCompressor<>(FrameCodec.BINARY, frames::add, null);
+
+        compressor.write(LINE.getBytes(StandardCharsets.UTF_8));
+
+        Assert.assertEquals(FrameCompressor.HEADER_RAW, frames.get(0)[0]);
+        Assert.assertEquals(LINE.length() + 1, frames.get(0).length);
+    }
+
+    @Test
+    public void testClosed() {
+        FrameCompressor<String> compressor = new FrameCompressor<>(FrameCodec.JSON, frames::add,
+                new FrameCompression());
+
+        compressor.close();
+        compressor.write(LINE);
+
+        Assert.assertTrue(frames.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLevel() {
+        new FrameCompression(10, true, 0);
+    }
+
+    @Test
+    public void testRequested() {
+        Assert.assertTrue(FrameCompression.isRequested("/ws?format=binary&compression=deflate"));
+        Assert.assertFalse(FrameCompression.isRequested("/ws?format=binary"));
+        Assert.assertFalse(FrameCompression.isRequested("/ws"));
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.pploder.ehc;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.webbitserver.WebSocketConnection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class FrameFragmenterTest {
+
+    private final List<Object> frames = new ArrayList<>();
+
+    private final WebSocketConnection connection = MockupProxy.webSocketConnection(frames::add);
+
+    @Test
+    public void testSmallFrames() {
+        FrameFragmenter fragmenter = new FrameFragmenter(connection, 4);
+        byte[] binary = {1, 2, 3, 4};
+
+        fragmenter.send("abcd");
+        fragmenter.send(binary);
+
+        Assert.assertEquals(Arrays.asList("abcd", binary), frames);
+    }
+
+    @Test
+    public void testText() {
+        new FrameFragmenter(connection, 4).send("abcdefghij");
+
+        Assert.assertEquals(Arrays.asList("{\"fragments\":3}", "abcd", "efgh", "ij"), frames);
+    }
+
+    @Test
+    public void testSurrogatePairs() {
+        new FrameFragmenter(connection, 3).send("ab\ud83d\ude00cdef");
+        new FrameFragmenter(connection, 1).send("\ud83d\ude00a");
+
+        Assert.assertEquals(Arrays.asList(
+                "{\"fragments\":3}", "ab", "\ud83d\ude00c", "def",
+                "{\"fragments\":2}", "\ud83d\ude00", "a"), frames);
+    }
+
+    @Test
+    public void testBinary() {
+        new FrameFragmenter(connection, 3).send(new byte[]{1, 2, 3, 4, 5, 6, 7});
+
+        Assert.assertEquals(4, frames.size());
+        Assert.assertEquals("{\"fragments\":3}", frames.get(0));
+        Assert.assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) frames.get(1));
+        Assert.assertArrayEquals(new byte[]{4, 5, 6}, (byte[]) frames.get(2));
+        Assert.assertArrayEquals(new byte[]{7}, (byte[]) frames.get(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSize() {
+        new FrameFragmenter(connection, 0);
+    }
+
+}
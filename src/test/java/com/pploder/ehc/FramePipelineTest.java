@@ -0,0 +1,74 @@
+package com.pploder.ehc;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.webbitserver.WebSocketConnection;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class FramePipelineTest {
+
+    private static final int MESSAGES = 500;
+
+    @Test(timeout = 10000)
+    public void testCoalescingWithBlockingLimit() throws Exception {
+        List<String> frames = new CopyOnWriteArrayList<>();
+        ExecutorService io = Executors.newSingleThreadExecutor();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        FramePipeline<?>[] pipeline = new FramePipeline<?>[1];
+
+        // The client acknowledges every ping on the I/O thread, which also runs the coalescing windows
+        WebSocketConnection connection = MockupProxy.of(WebSocketConnection.class, (method, args) -> {
+            switch (method) {
+                case "execute":
+                    io.execute((Runnable) args[0]);
+                    break;
+                case "send":
+                    frames.add((String) args[0]);
+                    break;
+                case "ping":
+                    byte[] payload = (byte[]) args[0];
+                    io.execute(() -> pipeline[0].pong(payload));
+                    break;
+                default:
+                    break;
+            }
+            return null;
+        });
+
+        OutboundOptions options = new OutboundOptions(scheduler, Duration.ofMillis(1), 64,
+                new OutboundLimit(1, 1024, OverflowPolicy.BLOCK), null, null, 0);
+
+        try {
+            io.submit(() -> pipeline[0] = new FramePipeline<>(FrameCodec.JSON, connection, options, false, null))
+                    .get();
+
+            for (int i = 0; i < MESSAGES; i++) {
+                pipeline[0].send(MessageContent.of("Message " + i).getEncoded());
+            }
+
+            pipeline[0].flush();
+            io.submit(() -> null).get();
+
+            int received = 0;
+            for (String frame : frames) {
+                received += frame.split("\"text\"", -1).length - 1;
+            }
+
+            Assert.assertEquals(MESSAGES, received);
+            Assert.assertEquals(0, pipeline[0].getDroppedMessageCount());
+            Assert.assertTrue(frames.get(frames.size() - 1).contains("Message " + (MESSAGES - 1)));
+        } finally {
+            scheduler.shutdownNow();
+            io.shutdownNow();
+            io.awaitTermination(1, TimeUnit.SECONDS);
+        }
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.pploder.ehc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class JsonMessageFormatTest {
+
+    private static final Boolean[] OVERRIDES = {null, true, false};
+
+    @Test
+    public void testPlain() {
+        Assert.assertEquals("[{\"text\":\"Hi\"}]", JsonMessageFormat.encode(MessageContent.of("Hi")));
+        Assert.assertEquals("[]", JsonMessageFormat.encode(new MessageContent()));
+    }
+
+    @Test
+    public void testEscaping() {
+        String text = "\"\\/\b\f\n\r\t\u0000\u001f\u007f\u009f\u00a0\u2028\u20ac\u2100\ud83d\ude00 a";
+
+        assertSameAsJSONSimple(MessageContent.of(text));
+        Assert.assertEquals("[{\"text\":\"\\u007F\\u2028\\u0001\"}]",
+                JsonMessageFormat.encode(MessageContent.of("\u007f\u2028\u0001")));
+    }
+
+    @Test
+    public void testStyles() {
+        Random random = new Random(42);
+
+        for (int i = 0; i < 500; i++) {
+            MessageSnippet[] snippets = new MessageSnippet[random.nextInt(4)];
+
+            for (int j = 0; j < snippets.length; j++) {
+                MessageStyle style = random.nextBoolean()
+                        ? MessageStyle.PLAIN
+                        : MessageStyle.PLAIN.withColor(random.nextInt(0x1000000));
+
+                snippets[j] = new MessageSnippet("s" + i + "/" + j, style
+                        .withBold(OVERRIDES[random.nextInt(3)])
+                        .withItalic(OVERRIDES[random.nextInt(3)])
+                        .withUnderlined(OVERRIDES[random.nextInt(3)])
+                        .withStrikethrough(OVERRIDES[random.nextInt(3)]));
+            }
+
+            assertSameAsJSONSimple(new MessageContent(snippets));
+        }
+    }
+
+    @Test
+    public void testEncodedMessage() {
+        MessageContent content = new MessageContent(new MessageSnippet("a", MessageStyle.PLAIN
+                .withColor(0xFF0000).withBold(true).withItalic(false).withStrikethrough(true)));
+
+        Assert.assertEquals(content.asJSON().toJSONString(), new EncodedMessage(content).getJSON());
+    }
+
+    private static void assertSameAsJSONSimple(MessageContent content) {
+        Assert.assertEquals(content.asJSON().toJSONString(), JsonMessageFormat.encode(content));
+    }
+
+}
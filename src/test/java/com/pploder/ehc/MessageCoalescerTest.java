@@ -0,0 +1,142 @@
+package com.pploder.ehc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class MessageCoalescerTest {
+
+    private static MessageCoalescer<String> coalescer(List<String> frames, ScheduledExecutorService scheduler,
+                                                      Duration window, int threshold) {
+        return new MessageCoalescer<>(FrameCodec.JSON, frames::add, scheduler, Runnable::run, window, threshold);
+    }
+
+    @Test
+    public void testSingleMessage() {
+        List<String> frames = new CopyOnWriteArrayList<>();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        try {
+            MessageCoalescer<String> coalescer = coalescer(frames, scheduler, Duration.ofHours(1), 1024);
+
+            coalescer.append("[{\"text\":\"a\"}]");
+            Assert.assertTrue(frames.isEmpty());
+            Assert.assertEquals(1, coalescer.getBufferedCount());
+
+            coalescer.flush();
+            Assert.assertEquals(1, frames.size());
+            Assert.assertEquals("[{\"text\":\"a\"}]", frames.get(0));
+            Assert.assertEquals(0, coalescer.getBufferedCount());
+
+            coalescer.flush();
+            Assert.assertEquals(1, frames.size());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBatch() {
+        List<String> frames = new CopyOnWriteArrayList<>();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        try {
+            MessageCoalescer<String> coalescer = coalescer(frames, scheduler, Duration.ofHours(1), 1024);
+
+            coalescer.append("[{\"text\":\"a\"}]");
+            coalescer.append("[{\"text\":\"b\"}]");
+            coalescer.append("[]");
+            coalescer.flush();
+
+            Assert.assertEquals(1, frames.size());
+            Assert.assertEquals("[[{\"text\":\"a\"}],[{\"text\":\"b\"}],[]]", frames.get(0));
+
+            coalescer.append("[{\"text\":\"c\"}]");
+            coalescer.append("[{\"text\":\"d\"}]");
+            coalescer.flush();
+
+            Assert.assertEquals("[[{\"text\":\"c\"}],[{\"text\":\"d\"}]]", frames.get(1));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testThreshold() {
+        List<String> frames = new CopyOnWriteArrayList<>();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        try {
+            MessageCoalescer<String> coalescer = coalescer(frames, scheduler, Duration.ofHours(1), 20);
+
+            coalescer.append("[{\"text\":\"a\"}]");
+            Assert.assertTrue(frames.isEmpty());
+
+            coalescer.append("[{\"text\":\"b\"}]");
+            Assert.assertEquals(1, frames.size());
+            Assert.assertEquals(0, coalescer.getBufferedCount());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testWindow() throws Exception {
+        List<String> frames = new CopyOnWriteArrayList<>();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        try {
+            MessageCoalescer<String> coalescer = coalescer(frames, scheduler, Duration.ofMillis(10), 1024);
+
+            coalescer.append("[{\"text\":\"a\"}]");
+            coalescer.append("[{\"text\":\"b\"}]");
+
+            scheduler.shutdown();
+            Assert.assertTrue(scheduler.awaitTermination(5, TimeUnit.SECONDS));
+
+            Assert.assertEquals(1, frames.size());
+            Assert.assertEquals("[[{\"text\":\"a\"}],[{\"text\":\"b\"}]]", frames.get(0));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBinaryBatch() {
+        List<byte[]> frames = new CopyOnWriteArrayList<>();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        try {
+            MessageCoalescer<byte[]> coalescer = new MessageCoalescer<>(FrameCodec.BINARY, frames::add, scheduler,
+                    Runnable::run, Duration.ofHours(1), 1024);
+
+            coalescer.append(new byte[]{1, 2});
+            coalescer.append(new byte[]{3});
+            coalescer.flush();
+
+            Assert.assertEquals(1, frames.size());
+            Assert.assertArrayEquals(new byte[]{1, 2, 3}, frames.get(0));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testShutDownScheduler() {
+        List<String> frames = new CopyOnWriteArrayList<>();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.shutdown();
+
+        MessageCoalescer<String> coalescer = coalescer(frames, scheduler, Duration.ofHours(1), 1024);
+        coalescer.append("[{\"text\":\"a\"}]");
+
+        Assert.assertEquals(1, frames.size());
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.pploder.ehc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.CharBuffer;
+
+public class MessageContentTest {
+
+    @Test
+    public void testMemoizedEncoding() {
+        MessageContent content = MessageContent.of("Hi");
+        EncodedMessage encoded = content.getEncoded();
+
+        Assert.assertSame(encoded, content.getEncoded());
+        Assert.assertSame(encoded.getJSON(), content.getEncoded().getJSON());
+        Assert.assertSame(encoded.getBinary(), content.getEncoded().getBinary());
+    }
+
+    @Test
+    public void testConstant() {
+        MessageContent content = MessageContent.constant("Help");
+
+        Assert.assertEquals("[{\"text\":\"Help\"}]", content.getEncoded().getJSON());
+        Assert.assertSame(content.getEncoded().getJSON(), content.getEncoded().getJSON());
+    }
+
+    @Test
+    public void testImmutable() {
+        MessageSnippet[] snippets = {new MessageSnippet("a")};
+        MessageContent content = new MessageContent(snippets);
+        String json = content.getEncoded().getJSON();
+
+        snippets[0] = new MessageSnippet("b");
+
+        Assert.assertEquals("a", content.getSnippet(0).getText());
+        Assert.assertEquals(json, JsonMessageFormat.encode(content));
+    }
+
+    @Test
+    public void testBuilderMergesSameStyle() {
+        MessageStyle red = MessageStyle.PLAIN.withColor(0xFF0000);
+
+        MessageContent content = MessageContent.builder()
+                .append("a")
+                .append("b")
+                .style(red)
+                .append("c")
+                .append("")
+                .append("d")
+                .append("e", MessageStyle.PLAIN)
+                .append("f")
+                .build();
+
+        Assert.assertEquals(4, content.getSnippetsCount());
+        Assert.assertEquals("ab", content.getSnippet(0).getText());
+        Assert.assertEquals("cd", content.getSnippet(1).getText());
+        Assert.assertEquals(red, content.getSnippet(1).getStyle());
+        Assert.assertEquals("e", content.getSnippet(2).getText());
+        Assert.assertEquals(MessageStyle.PLAIN, content.getSnippet(2).getStyle());
+        Assert.assertEquals("f", content.getSnippet(3).getText());
+        Assert.assertEquals(red, content.getSnippet(3).getStyle());
+    }
+
+    @Test
+    public void testBuilderDoesNotCopy() {
+        char[] chars = "Hello World".toCharArray();
+        CharBuffer buffer = CharBuffer.wrap(chars);
+
+        MessageContent content = MessageContent.builder()
+                .append(buffer, 6, 11)
+                .append(buffer, 0, 5)
+                .build();
+
+        // The builder references the characters until the content is encoded
+        chars[0] = 'J';
+
+        Assert.assertEquals(1, content.getSnippetsCount());
+        Assert.assertEquals("WorldJello", content.getSnippet(0).getText());
+        Assert.assertEquals(JsonMessageFormat.encode(MessageContent.of("WorldJello")),
+                content.getEncoded().getJSON());
+    }
+
+    @Test
+    public void testBuilderAppendContent() {
+        MessageContent content = MessageContent.builder()
+                .append(new MessageContent(new MessageSnippet("a"), new MessageSnippet("b")))
+                .append(new MessageSnippet("c", MessageStyle.PLAIN.withBold(true)))
+                .build();
+
+        Assert.assertEquals(2, content.getSnippetsCount());
+        Assert.assertEquals("ab", content.getSnippet(0).getText());
+        Assert.assertEquals("c", content.getSnippet(1).getText());
+        Assert.assertEquals(0, MessageContent.builder().build().getSnippetsCount());
+    }
+
+    @Test
+    public void testRope() {
+        String text = "ab\u00e4\ud83d\ude00cd";
+        MessageContent content = MessageContent.builder()
+                .append(text, 0, 3)
+                .append(text, 3, 4)
+                .append(new StringBuilder(text), 4, text.length())
+                .build();
+        CharSequence rope = content.getSnippet(0).getCharSequence();
+
+        Assert.assertTrue(rope instanceof Rope);
+        Assert.assertEquals(text.length(), rope.length());
+        Assert.assertEquals(text, rope.toString());
+
+        for (int i = 0; i < text.length(); i++) {
+            Assert.assertEquals(text.charAt(i), rope.charAt(i));
+
+            for (int j = i; j <= text.length(); j++) {
+                Assert.assertEquals(text.substring(i, j), rope.subSequence(i, j).toString());
+            }
+        }
+
+        // Surrogate pairs that are split across pieces are encoded like the whole string
+        Assert.assertArrayEquals(BinaryMessageFormat.encode(MessageContent.of(text)),
+                BinaryMessageFormat.encode(content));
+        Assert.assertEquals(JsonMessageFormat.encode(MessageContent.of(text)), JsonMessageFormat.encode(content));
+    }
+
+    @Test
+    public void testUnpairedSurrogates() {
+        String text = "\ud83da\ude00\ud83d";
+        MessageContent content = MessageContent.builder()
+                .append(text, 0, 2)
+                .append(text, 2, 4)
+                .build();
+
+        Assert.assertArrayEquals(BinaryMessageFormat.encode(MessageContent.of(text)),
+                BinaryMessageFormat.encode(content));
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.pploder.ehc;
+
+import org.json.simple.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MessageStyleTest {
+
+    @Test
+    public void testPlain() {
+        Assert.assertTrue(MessageStyle.PLAIN.isPlain());
+        Assert.assertFalse(MessageStyle.PLAIN.hasColor());
+        Assert.assertEquals(-1, MessageStyle.PLAIN.getRGB());
+        Assert.assertNull(MessageStyle.PLAIN.getBoldOverride());
+        Assert.assertSame(MessageStyle.PLAIN, MessageStyle.PLAIN.withColor(0x123456).withoutColor());
+    }
+
+    @Test
+    public void testOverrides() {
+        MessageStyle style = MessageStyle.PLAIN
+                .withColor(0x12, 0x34, 0x56)
+                .withBold(true)
+                .withItalic(false)
+                .withStrikethrough(true);
+
+        Assert.assertEquals(0x123456, style.getRGB());
+        Assert.assertEquals(0x12, style.getRed());
+        Assert.assertEquals(0x34, style.getGreen());
+        Assert.assertEquals(0x56, style.getBlue());
+        Assert.assertEquals(Boolean.TRUE, style.getBoldOverride());
+        Assert.assertEquals(Boolean.FALSE, style.getItalicOverride());
+        Assert.assertNull(style.getUnderlinedOverride());
+        Assert.assertEquals(Boolean.TRUE, style.getStrikethroughOverride());
+
+        Assert.assertSame(style, MessageStyle.PLAIN.withStrikethrough(true).withItalic(false)
+                .withBold(true).withColor(0x123456));
+        Assert.assertNull(style.withBold(null).getBoldOverride());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidColor() {
+        MessageStyle.PLAIN.withColor(256, 0, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBits() {
+        MessageStyle.of(0b11);
+    }
+
+    @Test
+    public void testJSONRoundTrip() {
+        MessageSnippet snippet = new MessageSnippet("a", MessageStyle.PLAIN.withColor(0xFF8000).withUnderlined(false));
+        JSONObject json = snippet.asJSON();
+
+        Assert.assertSame(snippet.getStyle(), MessageSnippet.fromJSON(json).getStyle());
+    }
+
+}
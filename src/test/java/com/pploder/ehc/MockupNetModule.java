@@ -15,6 +15,8 @@ public class MockupNetModule implements NetModule {
     private Iterable<Connection> connections;
     private String host;
     private int port;
+    private String httpURL;
+    private String websocketURL;
 
     public boolean wasInitCalled() {
         return initCalled;
@@ -52,6 +54,14 @@ public class MockupNetModule implements NetModule {
         this.port = port;
     }
 
+    public void setHttpURL(String httpURL) {
+        this.httpURL = httpURL;
+    }
+
+    public void setWebsocketURL(String websocketURL) {
+        this.websocketURL = websocketURL;
+    }
+
     @Override
     public String toString() {
         return "MockupNetModule";
@@ -113,12 +123,12 @@ public class MockupNetModule implements NetModule {
 
     @Override
     public String getHttpURL() {
-        return null;
+        return httpURL;
     }
 
     @Override
     public String getWebsocketURL() {
-        return null;
+        return websocketURL;
     }
 
 }
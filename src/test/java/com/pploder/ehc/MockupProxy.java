@@ -0,0 +1,54 @@
+package com.pploder.ehc;
+
+import org.webbitserver.WebSocketConnection;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+public final class MockupProxy {
+
+    public interface Answer {
+        Object answer(String method, Object[] args);
+    }
+
+    private MockupProxy() {
+    }
+
+    /**
+     * Creates a proxy that passes every call to the answer, except for the methods of {@link Object} which behave
+     * like those of a plain object.
+     */
+    public static <T> T of(Class<T> type, Answer answer) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() != Object.class) {
+                        return answer.answer(method.getName(), args);
+                    }
+
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            return "Mockup" + type.getSimpleName();
+                    }
+                }));
+    }
+
+    /**
+     * Creates a websocket connection that passes every written frame (a string or a copy of the written bytes)
+     * to the listener and ignores all other calls.
+     */
+    public static WebSocketConnection webSocketConnection(Consumer<Object> frameListener) {
+        return of(WebSocketConnection.class, (method, args) -> {
+            if (method.equals("send")) {
+                frameListener.accept(args.length == 1 ? args[0] : Arrays.copyOfRange((byte[]) args[0],
+                        (int) args[1], (int) args[1] + (int) args[2]));
+            }
+            return null;
+        });
+    }
+
+}
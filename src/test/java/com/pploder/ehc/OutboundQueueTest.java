@@ -0,0 +1,165 @@
+package com.pploder.ehc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class OutboundQueueTest {
+
+    private final List<String> frames = new ArrayList<>();
+    private final List<byte[]> pings = new ArrayList<>();
+    private final AtomicBoolean disconnected = new AtomicBoolean();
+
+    private OutboundQueue<String> queue(int maxMessages, OverflowPolicy policy) {
+        return new OutboundQueue<>(FrameCodec.JSON, frames::add, pings::add, () -> disconnected.set(true), () -> false,
+                new OutboundLimit(maxMessages, 1024, policy));
+    }
+
+    private byte[] lastPing() {
+        return pings.get(pings.size() - 1);
+    }
+
+    @Test
+    public void testWithinBudget() {
+        OutboundQueue<String> queue = queue(2, OverflowPolicy.DROP_NEWEST);
+
+        queue.offer("a");
+        queue.offer("b");
+
+        Assert.assertEquals(Arrays.asList("a", "b"), frames);
+        Assert.assertEquals(1, pings.size());
+        Assert.assertEquals(2, queue.getSentMessageCount());
+        Assert.assertEquals(2, queue.getPendingMessageCount());
+        Assert.assertEquals(0, queue.getDroppedMessageCount());
+    }
+
+    @Test
+    public void testAcknowledge() {
+        OutboundQueue<String> queue = queue(1, OverflowPolicy.DROP_OLDEST);
+
+        queue.offer("a");
+        queue.offer("b");
+        Assert.assertEquals(Arrays.asList("a"), frames);
+        Assert.assertEquals(2, queue.getPendingMessageCount());
+
+        Assert.assertTrue(queue.acknowledge(lastPing()));
+        Assert.assertEquals(Arrays.asList("a", "b"), frames);
+        Assert.assertEquals(2, pings.size());
+        Assert.assertEquals(1, queue.getPendingMessageCount());
+
+        Assert.assertTrue(queue.acknowledge(lastPing()));
+        Assert.assertEquals(0, queue.getPendingMessageCount());
+        Assert.assertEquals(2, pings.size());
+    }
+
+    @Test
+    public void testForeignPong() {
+        OutboundQueue<String> queue = queue(1, OverflowPolicy.DROP_NEWEST);
+
+        queue.offer("a");
+
+        Assert.assertFalse(queue.acknowledge(new byte[0]));
+        Assert.assertFalse(queue.acknowledge(null));
+        Assert.assertEquals(1, queue.getPendingMessageCount());
+    }
+
+    @Test
+    public void testDropNewest() {
+        OutboundQueue<String> queue = queue(2, OverflowPolicy.DROP_NEWEST);
+
+        queue.offer("a");
+        queue.offer("b");
+        queue.offer("c");
+
+        Assert.assertEquals(1, queue.getDroppedMessageCount());
+
+        queue.acknowledge(lastPing());
+        queue.offer("d");
+
+        Assert.assertEquals(Arrays.asList("a", "b", "d"), frames);
+    }
+
+    @Test
+    public void testDropOldest() {
+        OutboundQueue<String> queue = queue(2, OverflowPolicy.DROP_OLDEST);
+
+        queue.offer("a");
+        queue.offer("b");
+        queue.offer("c");
+        queue.offer("d");
+
+        // "c" was held back and then replaced by "d"
+        Assert.assertEquals(Arrays.asList("a", "b"), frames);
+        Assert.assertEquals(1, queue.getDroppedMessageCount());
+
+        // The first ping only covers "a"
+        queue.acknowledge(lastPing());
+
+        Assert.assertEquals(Arrays.asList("a", "b", "d"), frames);
+    }
+
+    @Test
+    public void testDisconnect() {
+        OutboundQueue<String> queue = queue(1, OverflowPolicy.DISCONNECT);
+
+        queue.offer("a");
+        Assert.assertFalse(disconnected.get());
+
+        queue.offer("b");
+        Assert.assertTrue(disconnected.get());
+        Assert.assertEquals(1, queue.getDroppedMessageCount());
+
+        queue.offer("c");
+        Assert.assertEquals(Arrays.asList("a"), frames);
+        Assert.assertEquals(2, queue.getDroppedMessageCount());
+    }
+
+    @Test
+    public void testBlock() throws Exception {
+        OutboundQueue<String> queue = new OutboundQueue<>(FrameCodec.JSON, frame -> {
+            synchronized (frames) {
+                frames.add(frame);
+            }
+        }, pings::add, () -> disconnected.set(true), () -> true, new OutboundLimit(2, 1024, OverflowPolicy.BLOCK));
+
+        queue.offer("a");
+        queue.offer("b");
+
+        Thread producer = new Thread(() -> queue.offer("c"));
+        producer.start();
+
+        producer.join(100);
+        Assert.assertTrue(producer.isAlive());
+
+        queue.acknowledge(lastPing());
+
+        producer.join(5000);
+        Assert.assertFalse(producer.isAlive());
+
+        synchronized (frames) {
+            Assert.assertEquals(Arrays.asList("a", "b", "c"), frames);
+        }
+    }
+
+    @Test
+    public void testBlockOnIOThread() {
+        OutboundQueue<String> queue = queue(1, OverflowPolicy.BLOCK);
+
+        queue.offer("a");
+        queue.offer("b");
+        queue.offer("c");
+
+        Assert.assertEquals(Arrays.asList("a"), frames);
+        Assert.assertEquals(2, queue.getDroppedMessageCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLimit() {
+        new OutboundLimit(0, 1024, OverflowPolicy.BLOCK);
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.pploder.ehc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ReplayBufferTest {
+
+    @Test
+    public void testReplay() {
+        ReplayBuffer<String> buffer = new ReplayBuffer<>(8, 1024);
+
+        Assert.assertEquals(1, buffer.append("a", 1));
+        Assert.assertEquals(2, buffer.append("b", 1));
+        Assert.assertEquals(3, buffer.append("c", 1));
+
+        List<String> replayed = new ArrayList<>();
+
+        Assert.assertEquals(2, buffer.replay(1, replayed::add));
+        Assert.assertEquals(Arrays.asList("b", "c"), replayed);
+    }
+
+    @Test
+    public void testNothingMissed() {
+        ReplayBuffer<String> buffer = new ReplayBuffer<>(8, 1024);
+        buffer.append("a", 1);
+
+        List<String> replayed = new ArrayList<>();
+
+        Assert.assertEquals(2, buffer.replay(1, replayed::add));
+        Assert.assertEquals(2, buffer.replay(100, replayed::add));
+        Assert.assertTrue(replayed.isEmpty());
+    }
+
+    @Test
+    public void testEvictByCount() {
+        ReplayBuffer<String> buffer = new ReplayBuffer<>(2, 1024);
+
+        for (String frame : Arrays.asList("a", "b", "c", "d", "e")) {
+            buffer.append(frame, 1);
+        }
+
+        List<String> replayed = new ArrayList<>();
+
+        // The client missed everything but only the last two frames are left
+        Assert.assertEquals(4, buffer.replay(0, replayed::add));
+        Assert.assertEquals(Arrays.asList("d", "e"), replayed);
+        Assert.assertEquals(2, buffer.getCount());
+        Assert.assertEquals(6, buffer.getNextSequence());
+    }
+
+    @Test
+    public void testEvictBySize() {
+        ReplayBuffer<String> buffer = new ReplayBuffer<>(8, 10);
+
+        buffer.append("a", 4);
+        buffer.append("b", 4);
+        buffer.append("c", 4);
+
+        Assert.assertEquals(2, buffer.getFirstSequence());
+
+        // A frame larger than the buffer replaces everything but is kept
+        buffer.append("d", 20);
+
+        List<String> replayed = new ArrayList<>();
+
+        Assert.assertEquals(4, buffer.replay(0, replayed::add));
+        Assert.assertEquals(Collections.singletonList("d"), replayed);
+    }
+
+}
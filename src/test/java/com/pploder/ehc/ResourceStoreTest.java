@@ -0,0 +1,159 @@
+package com.pploder.ehc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class ResourceStoreTest {
+
+    @Test
+    public void testLoadInMemory() {
+        ResourceStore resourceStore = new ResourceStore(Long.MAX_VALUE);
+
+        Supplier<Page> supplier = resourceStore.load(DefaultResource.MANIFEST);
+
+        Assert.assertTrue(supplier instanceof RawHttpSupplier);
+        Assert.assertSame(supplier, resourceStore.load(DefaultResource.MANIFEST));
+
+        Page page = supplier.get();
+
+        Assert.assertEquals("application/json", page.getMime());
+        Assert.assertEquals(DefaultResource.MANIFEST.getCacheControl(), page.getCacheControl());
+        Assert.assertTrue(page.getData() instanceof EncodedContent);
+    }
+
+    @Test
+    public void testLoadMapped() {
+        ResourceStore resourceStore = new ResourceStore(0);
+
+        Supplier<Page> supplier = resourceStore.load(DefaultResource.FAVICON);
+
+        Assert.assertTrue(supplier instanceof MappedFileSupplier);
+
+        Page page = supplier.get();
+
+        Assert.assertTrue(page.getData() instanceof ByteBuffer);
+        Assert.assertTrue(((ByteBuffer) page.getData()).remaining() > 0);
+        Assert.assertNotNull(page.getEntityTag());
+        Assert.assertNotNull(page.getLastModified());
+    }
+
+    @Test
+    public void testLazyMissingResource() {
+        Resource missing = new Resource() {
+            @Override
+            public String getPath() {
+                return "missing.txt";
+            }
+
+            @Override
+            public String getWebPath() {
+                return "/missing.txt";
+            }
+
+            @Override
+            public String getMime() {
+                return "text/plain";
+            }
+        };
+
+        Assert.assertNull(new ResourceStore().lazy(missing).get());
+    }
+
+    @Test
+    public void testMissingResourceRemembered() {
+        AtomicInteger lookups = new AtomicInteger();
+        Resource missing = new Resource() {
+            @Override
+            public String getPath() {
+                lookups.incrementAndGet();
+                return "missing.txt";
+            }
+
+            @Override
+            public String getWebPath() {
+                return "/missing.txt";
+            }
+
+            @Override
+            public String getMime() {
+                return "text/plain";
+            }
+        };
+
+        ResourceStore resourceStore = new ResourceStore();
+        Supplier<Page> supplier = resourceStore.lazy(missing);
+
+        Assert.assertNull(supplier.get());
+        int first = lookups.get();
+
+        Assert.assertNull(supplier.get());
+        Assert.assertNull(resourceStore.load(missing));
+        Assert.assertEquals(first, lookups.get());
+
+        resourceStore.clear();
+        Assert.assertNull(resourceStore.load(missing));
+        Assert.assertTrue(lookups.get() > first);
+    }
+
+    @Test
+    public void testFileCacheBounded() throws IOException {
+        Path root = Files.createTempDirectory("ehc-store");
+        Path a = Files.write(root.resolve("a.bin"), new byte[600]);
+        Path b = Files.write(root.resolve("b.bin"), new byte[600]);
+        Path large = Files.write(root.resolve("large.bin"), new byte[2000]);
+
+        // Zeros compress well, so the content plus its compressed forms stays well below 1000 bytes
+        ResourceStore resourceStore = new ResourceStore(Long.MAX_VALUE, 1000);
+
+        Supplier<Page> supplierA = resourceStore.loadFile(a, "application/octet-stream", null);
+        Assert.assertSame(supplierA, resourceStore.loadFile(a, "application/octet-stream", null));
+        long usageA = resourceStore.getFileCacheUsage();
+        Assert.assertTrue(usageA >= 600 && usageA <= 1000);
+
+        // Loading b exceeds the cache size and discards a
+        resourceStore.loadFile(b, "application/octet-stream", null);
+        Assert.assertEquals(usageA, resourceStore.getFileCacheUsage());
+        Assert.assertNotSame(supplierA, resourceStore.loadFile(a, "application/octet-stream", null));
+
+        // Files larger than the whole cache are served but not kept
+        Supplier<Page> supplierLarge = resourceStore.loadFile(large, "application/octet-stream", null);
+        Assert.assertNotSame(supplierLarge, resourceStore.loadFile(large, "application/octet-stream", null));
+        Assert.assertEquals(usageA, resourceStore.getFileCacheUsage());
+    }
+
+    @Test
+    public void testChangedAndDeletedFiles() throws IOException {
+        Path file = Files.write(Files.createTempFile("ehc-store", ".txt"), new byte[]{'a'});
+        ResourceStore resourceStore = new ResourceStore(Long.MAX_VALUE);
+
+        Supplier<Page> supplier = resourceStore.loadFile(file, "text/plain", null);
+        long usage = resourceStore.getFileCacheUsage();
+
+        Files.write(file, new byte[]{'a', 'b'});
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+
+        Assert.assertNotSame(supplier, resourceStore.loadFile(file, "text/plain", null));
+        Assert.assertEquals(usage + 1, resourceStore.getFileCacheUsage());
+
+        Files.delete(file);
+
+        try {
+            resourceStore.loadFile(file, "text/plain", null);
+            Assert.fail("Deleted file loaded");
+        } catch (NoSuchFileException e) {
+            // Expected
+        }
+
+        Assert.assertEquals(0, resourceStore.getFileCacheUsage());
+    }
+
+}
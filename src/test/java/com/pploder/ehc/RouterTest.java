@@ -0,0 +1,106 @@
+package com.pploder.ehc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RouterTest {
+
+    @Test
+    public void testExactRoute() {
+        Router router = new Router();
+        router.add("GET", "/", named("root"));
+        router.add("GET", "/favicon.ico", named("favicon"));
+
+        Assert.assertEquals("root", route(router, "GET", "/"));
+        Assert.assertEquals("root", route(router, "GET", "/?x=1"));
+        Assert.assertEquals("favicon", route(router, "GET", "/favicon.ico?v=2"));
+        Assert.assertNull(route(router, "GET", "/favicon.ico/"));
+        Assert.assertNull(route(router, "GET", "/favicon"));
+        Assert.assertNull(route(router, "GET", ""));
+    }
+
+    @Test
+    public void testMethods() {
+        Router router = new Router();
+        router.add("GET", "/a", named("get"));
+        router.add("POST", "/a", named("post"));
+        router.add(Router.ANY_METHOD, "/b", named("any"));
+
+        Assert.assertEquals("get", route(router, "GET", "/a"));
+        Assert.assertEquals("get", route(router, "HEAD", "/a"));
+        Assert.assertEquals("post", route(router, "post", "/a"));
+        Assert.assertNull(route(router, "DELETE", "/a"));
+        Assert.assertEquals("any", route(router, "DELETE", "/b"));
+    }
+
+    @Test
+    public void testPrefixRoute() {
+        Router router = new Router();
+        router.add("GET", "/static/**", match -> page(match.getRemainder()));
+        router.add("GET", "/static/special/**", named("special"));
+        router.add("GET", "/static/exact", named("exact"));
+
+        Assert.assertEquals("app.js", route(router, "GET", "/static/app.js?v=1"));
+        Assert.assertEquals("css/app.css", route(router, "GET", "/static/css/app.css"));
+        Assert.assertEquals("", route(router, "GET", "/static/"));
+        Assert.assertEquals("special", route(router, "GET", "/static/special/x"));
+        Assert.assertEquals("exact", route(router, "GET", "/static/exact"));
+        Assert.assertEquals("exact/more", route(router, "GET", "/static/exact/more"));
+    }
+
+    @Test
+    public void testParameters() {
+        Router router = new Router();
+        router.add("GET", "/reports/{id}/download", match -> page(match.getParameter("id")));
+        router.add("GET", "/reports/*/view", match -> page(match.getPath()));
+        router.add("GET", "/reports/latest/download", named("latest"));
+
+        Assert.assertEquals("42", route(router, "GET", "/reports/42/download?format=csv"));
+        Assert.assertEquals("/reports/42/view", route(router, "GET", "/reports/42/view"));
+        Assert.assertEquals("latest", route(router, "GET", "/reports/latest/download"));
+        Assert.assertNull(route(router, "GET", "/reports/42"));
+    }
+
+    @Test
+    public void testBacktracking() {
+        Router router = new Router();
+        router.add("GET", "/a/b/c", named("literal"));
+        router.add("GET", "/a/*/d", named("wildcard"));
+
+        Assert.assertEquals("wildcard", route(router, "GET", "/a/b/d"));
+        Assert.assertEquals("literal", route(router, "GET", "/a/b/c"));
+    }
+
+    @Test
+    public void testQuery() {
+        Router router = new Router();
+        router.add("GET", "/q", match -> page(match.getQuery()));
+
+        Assert.assertEquals("a=1&b=2", route(router, "GET", "/q?a=1&b=2"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPattern() {
+        new Router().add("GET", "relative", named("x"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPrefixNotLast() {
+        new Router().add("GET", "/a/**/b", named("x"));
+    }
+
+    private static RouteHandler named(String name) {
+        return match -> page(name);
+    }
+
+    private static Page page(String data) {
+        return new Page(data, 200, "text/plain", false);
+    }
+
+    private static String route(Router router, String method, String uri) {
+        Page page = router.route(method, uri);
+
+        return page == null ? null : (String) page.getData();
+    }
+
+}
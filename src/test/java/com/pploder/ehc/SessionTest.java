@@ -0,0 +1,123 @@
+package com.pploder.ehc;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.webbitserver.WebSocketConnection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class SessionTest {
+
+    private static final Pattern CONTROL = Pattern.compile("\\{\"session\":\"([^\"]+)\",\"sequence\":(\\d+)}");
+
+    @Test
+    public void testControlFrames() {
+        for (FrameCodec<?> codec : Arrays.asList(FrameCodec.JSON, FrameCodec.BINARY)) {
+            for (boolean compressed : new boolean[]{false, true}) {
+                for (int maxFrameSize : new int[]{0, 8}) {
+                    testControlFrames(codec, compressed, maxFrameSize);
+                }
+            }
+        }
+    }
+
+    private static <F> void testControlFrames(FrameCodec<F> codec, boolean compressed, int maxFrameSize) {
+        String format = (codec == FrameCodec.JSON ? "JSON" : "Binary") + (compressed ? " compressed" : "") + " fragmented after " + maxFrameSize;
+        OutboundOptions options = new OutboundOptions(null, null, 0, null, new FrameCompression(), new SessionResume(),
+                maxFrameSize);
+
+        Client first = new Client();
+        Session<F> session = new Session<>(codec, first.connection, options, compressed);
+
+        session.send(MessageContent.of("First").getEncoded());
+        session.send(MessageContent.of("Second").getEncoded());
+
+        Assert.assertNotNull(format, first.session);
+        Assert.assertEquals(format, 2, first.received());
+
+        session.detach(first.connection);
+        session.send(MessageContent.of("Third").getEncoded());
+
+        Client second = new Client();
+        session.resume(second.connection, compressed, first.sequence);
+
+        // Only the third frame was missed
+        Assert.assertEquals(format, first.session, second.session);
+        Assert.assertEquals(format, 1, second.received());
+        Assert.assertEquals(format, first.sequence + 1, second.sequence);
+    }
+
+    /**
+     * Processes the frames like the bundled interface does.
+     */
+    private static final class Client {
+
+        private final List<Object> frames = new ArrayList<>();
+
+        private final WebSocketConnection connection = MockupProxy.webSocketConnection(this::receive);
+
+        private int fragments = -1;
+        private final List<Object> parts = new ArrayList<>();
+
+        private String session;
+        private long sequence;
+
+        private void receive(Object frame) {
+            if (fragments >= 0) {
+                parts.add(frame);
+
+                if (parts.size() < fragments) {
+                    return;
+                }
+
+                frame = join(parts);
+                parts.clear();
+                fragments = -1;
+            }
+
+            if (frame instanceof String && ((String) frame).startsWith("{")) {
+                if (((String) frame).startsWith("{\"fragments\":")) {
+                    fragments = Integer.parseInt(((String) frame).replaceAll("\\D", ""));
+                } else {
+                    Matcher matcher = CONTROL.matcher((String) frame);
+                    Assert.assertTrue((String) frame, matcher.matches());
+                    Assert.assertTrue("Control frame after data frames", frames.isEmpty());
+
+                    session = matcher.group(1);
+                    sequence = Long.parseLong(matcher.group(2)) - 1;
+                }
+                return;
+            }
+
+            Assert.assertNotNull("Data frame before control frame", session);
+            frames.add(frame);
+            sequence++;
+        }
+
+        private int received() {
+            return frames.size();
+        }
+
+        private static Object join(List<Object> parts) {
+            if (parts.get(0) instanceof String) {
+                return String.join("", parts.toArray(new String[0]));
+            }
+
+            byte[] joined = new byte[parts.stream().mapToInt(part -> ((byte[]) part).length).sum()];
+            int offset = 0;
+
+            for (Object part : parts) {
+                System.arraycopy((byte[]) part, 0, joined, offset, ((byte[]) part).length);
+                offset += ((byte[]) part).length;
+            }
+
+            return joined;
+        }
+
+    }
+
+}
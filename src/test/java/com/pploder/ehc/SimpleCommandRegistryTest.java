@@ -3,9 +3,18 @@ package com.pploder.ehc;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -159,4 +168,176 @@ public class SimpleCommandRegistryTest {
         Assert.assertEquals("3", args.get().next());
     }
 
+    @Test
+    public void testCommandExecutor() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<String> executed = Collections.synchronizedList(new ArrayList<>());
+        Connection connection = new MockupConnection(new SimpleConsole<>(new MockupNetModule()), "RemoteAddress");
+
+        SimpleCommandRegistry commandRegistry = new SimpleCommandRegistry();
+        Assert.assertEquals(CommandExecutor.DIRECT, commandRegistry.getCommandExecutor());
+
+        commandRegistry.setCommandExecutor(CommandExecutor.ordered(pool));
+        commandRegistry.put("command", cmd -> executed.add(cmd.getArg(0)));
+
+        for (int i = 0; i < 100; i++) {
+            commandRegistry.supplyMessage(new SimpleMessage(connection, "command " + i));
+        }
+
+        pool.shutdown();
+        Assert.assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+
+        Assert.assertEquals(100, executed.size());
+
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(String.valueOf(i), executed.get(i));
+        }
+    }
+
+    @Test
+    public void testAsyncResponsesInOrder() throws Exception {
+        List<String> responses = new ArrayList<>();
+        Connection connection = new MockupConnection(new SimpleConsole<>(new MockupNetModule()), "RemoteAddress",
+                content -> responses.add(content.getSnippet(0).getText()));
+        CompletableFuture<MessageContent> slow = new CompletableFuture<>();
+
+        SimpleCommandRegistry commandRegistry = new SimpleCommandRegistry();
+        commandRegistry.putAsync("slow", cmd -> slow);
+        commandRegistry.putAsync("fast", cmd -> CompletableFuture.completedFuture(MessageContent.of("fast")));
+        commandRegistry.putAsync("silent", cmd -> CompletableFuture.completedFuture(null));
+
+        commandRegistry.supplyMessage(new SimpleMessage(connection, "slow"));
+        commandRegistry.supplyMessage(new SimpleMessage(connection, "silent"));
+        commandRegistry.supplyMessage(new SimpleMessage(connection, "fast"));
+
+        // The fast response has to wait for the slow one
+        Assert.assertTrue(responses.isEmpty());
+
+        slow.complete(MessageContent.of("slow"));
+
+        Assert.assertEquals(Arrays.asList("slow", "fast"), responses);
+    }
+
+    @Test
+    public void testFailures() throws Exception {
+        List<Throwable> failures = new ArrayList<>();
+        Connection connection = new MockupConnection(new SimpleConsole<>(new MockupNetModule()), "RemoteAddress");
+        CompletableFuture<MessageContent> failed = new CompletableFuture<>();
+        IllegalStateException asyncFailure = new IllegalStateException();
+        IllegalArgumentException syncFailure = new IllegalArgumentException();
+
+        SimpleCommandRegistry commandRegistry = new SimpleCommandRegistry();
+        commandRegistry.setFailureListener((cmd, failure) -> failures.add(failure));
+        commandRegistry.putAsync("async", cmd -> failed.thenApply(content -> content));
+        commandRegistry.put("sync", cmd -> {
+            throw syncFailure;
+        });
+
+        commandRegistry.supplyMessage(new SimpleMessage(connection, "async"));
+        commandRegistry.supplyMessage(new SimpleMessage(connection, "sync"));
+        failed.completeExceptionally(asyncFailure);
+
+        Assert.assertEquals(Arrays.asList(syncFailure, asyncFailure), failures);
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        List<String> responses = Collections.synchronizedList(new ArrayList<>());
+        Connection connection = new MockupConnection(new SimpleConsole<>(new MockupNetModule()), "RemoteAddress",
+                content -> responses.add(content.getSnippet(0).getText()));
+        AtomicBoolean interrupted = new AtomicBoolean();
+
+        SimpleCommandRegistry commandRegistry = new SimpleCommandRegistry();
+        commandRegistry.setCommandExecutor(CommandExecutor.ordered(pool));
+        commandRegistry.put("sleep", cmd -> {
+            try {
+                Thread.sleep(10000);
+            } catch (InterruptedException e) {
+                interrupted.set(cmd.getCancellationToken().isCancelled());
+            }
+        }, Duration.ofMillis(50));
+        commandRegistry.put("ping", cmd -> cmd.respond("pong"));
+
+        commandRegistry.supplyMessage(new SimpleMessage(connection, "sleep"));
+        commandRegistry.supplyMessage(new SimpleMessage(connection, "ping"));
+
+        pool.shutdown();
+        Assert.assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+
+        Assert.assertTrue(interrupted.get());
+        Assert.assertEquals(Arrays.asList("Command timed out: sleep", "pong"), responses);
+    }
+
+    @Test
+    public void testDefaultTimeout() throws Exception {
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        Connection connection = new MockupConnection(new SimpleConsole<>(new MockupNetModule()), "RemoteAddress");
+        CompletableFuture<MessageContent> never = new CompletableFuture<>();
+
+        SimpleCommandRegistry commandRegistry = new SimpleCommandRegistry();
+        commandRegistry.setDefaultTimeout(Duration.ofMillis(20));
+        commandRegistry.setFailureListener((cmd, failure) -> failures.add(failure));
+        commandRegistry.putAsync("never", cmd -> never);
+
+        commandRegistry.supplyMessage(new SimpleMessage(connection, "never"));
+
+        for (int i = 0; i < 100 && failures.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+
+        Assert.assertEquals(1, failures.size());
+        Assert.assertTrue(failures.get(0) instanceof CancellationException);
+        Assert.assertTrue(never.isCancelled());
+    }
+
+    @Test
+    public void testTimeoutScheduler() throws Exception {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+        scheduler.setRemoveOnCancelPolicy(true);
+        Connection connection = new MockupConnection(new SimpleConsole<>(new MockupNetModule()), "RemoteAddress");
+        CompletableFuture<MessageContent> response = new CompletableFuture<>();
+
+        try {
+            SimpleCommandRegistry commandRegistry = new SimpleCommandRegistry(
+                    SimpleCommandRegistry.DEFAULT_UNKNOWN_COMMAND_LISTENER, scheduler);
+            commandRegistry.putAsync("wait", cmd -> response, Duration.ofMinutes(1));
+
+            commandRegistry.supplyMessage(new SimpleMessage(connection, "wait"));
+            Assert.assertEquals(1, scheduler.getQueue().size());
+
+            response.complete(MessageContent.of("done"));
+            Assert.assertEquals(0, scheduler.getQueue().size());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testInterruptAndClose() throws Exception {
+        List<String> responses = new ArrayList<>();
+        Connection connection = new MockupConnection(new SimpleConsole<>(new MockupNetModule()), "RemoteAddress",
+                content -> responses.add(content.getSnippet(0).getText()));
+        List<CancellationToken> tokens = new ArrayList<>();
+
+        SimpleCommandRegistry commandRegistry = new SimpleCommandRegistry();
+        commandRegistry.putAsync("wait", cmd -> {
+            tokens.add(cmd.getCancellationToken());
+            return new CompletableFuture<>();
+        });
+
+        commandRegistry.supplyMessage(new SimpleMessage(connection, "wait"));
+        commandRegistry.supplyMessage(new SimpleMessage(connection, SimpleCommandRegistry.INTERRUPT));
+
+        Assert.assertTrue(tokens.get(0).isCancelled());
+        Assert.assertEquals(Collections.singletonList("Command interrupted: wait"), responses);
+
+        commandRegistry.supplyMessage(new SimpleMessage(connection, "wait"));
+        commandRegistry.cancel(connection);
+
+        // Nobody is left to tell about commands of a closed connection
+        Assert.assertTrue(tokens.get(1).isCancelled());
+        Assert.assertEquals(1, responses.size());
+    }
+
 }
@@ -3,7 +3,9 @@ package com.pploder.ehc;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
@@ -137,4 +139,50 @@ public class SimpleConsoleTest {
         Assert.assertTrue(mockupNetModule.wasGetConnectionsCalled());
     }
 
+    @Test
+    public void testBroadcast() throws Exception {
+        List<MessageContent> received = new ArrayList<>();
+        MockupNetModule mockupNetModule = new MockupNetModule();
+        SimpleConsole<?> simpleConsole = new SimpleConsole<>(mockupNetModule);
+
+        List<Connection> connections = new ArrayList<>();
+        connections.add(new MockupConnection(simpleConsole, "RemoteAddress1", received::add));
+        connections.add(new MockupConnection(simpleConsole, "RemoteAddress2", received::add));
+        connections.add(new MockupConnection(simpleConsole, "RemoteAddress3", received::add));
+        mockupNetModule.setConnections(connections);
+
+        MessageContent messageContent = MessageContent.of("Broadcast");
+        simpleConsole.broadcast(messageContent);
+
+        Assert.assertEquals(3, received.size());
+        Assert.assertTrue(received.stream().allMatch(content -> content == messageContent));
+    }
+
+    @Test
+    public void testFilteredBroadcast() throws Exception {
+        MockupNetModule mockupNetModule = new MockupNetModule();
+        SimpleConsole<?> simpleConsole = new SimpleConsole<>(mockupNetModule);
+
+        MockupConnection connection1 = new MockupConnection(simpleConsole, "RemoteAddress1");
+        MockupConnection connection2 = new MockupConnection(simpleConsole, "RemoteAddress2");
+        List<Connection> connections = new ArrayList<>();
+        connections.add(connection1);
+        connections.add(connection2);
+        mockupNetModule.setConnections(connections);
+
+        simpleConsole.broadcast(MessageContent.of("Broadcast"),
+                connection -> connection.getRemoteAddress().equals("RemoteAddress2"));
+
+        Assert.assertFalse(connection1.wasSendCalled());
+        Assert.assertTrue(connection2.wasSendCalled());
+    }
+
+    @Test
+    public void testEncodedOnce() {
+        EncodedMessage encodedMessage = new EncodedMessage(MessageContent.of("Broadcast"));
+
+        Assert.assertEquals("[{\"text\":\"Broadcast\"}]", encodedMessage.getJSON());
+        Assert.assertSame(encodedMessage.getJSON(), encodedMessage.getJSON());
+    }
+
 }
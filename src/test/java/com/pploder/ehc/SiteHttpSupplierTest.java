@@ -0,0 +1,94 @@
+package com.pploder.ehc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+
+public class SiteHttpSupplierTest {
+
+    @Test
+    public void testUnboundPlaceholdersAreKept() {
+        SiteHttpSupplier siteHttpSupplier = new SiteHttpSupplier("<p>{{ADDRESS}} {{WEBSOCKET}}</p>", null);
+
+        Assert.assertEquals("<p>{{ADDRESS}} {{WEBSOCKET}}</p>", render(siteHttpSupplier));
+    }
+
+    @Test
+    public void testBind() {
+        MockupNetModule mockupNetModule = new MockupNetModule();
+        mockupNetModule.setHttpURL("http://localhost:8080/");
+        mockupNetModule.setWebsocketURL("ws://localhost:8080/ws");
+
+        SiteHttpSupplier siteHttpSupplier = new SiteHttpSupplier("{{ADDRESS}}|{{WEBSOCKET}}|{{ADDRESS}}", null);
+        siteHttpSupplier.bind(mockupNetModule);
+
+        Assert.assertEquals("http://localhost:8080/|ws://localhost:8080/ws|http://localhost:8080/",
+                render(siteHttpSupplier));
+    }
+
+    @Test
+    public void testServed() {
+        SiteHttpSupplier siteHttpSupplier = new SiteHttpSupplier("<p>{{SERVED}}</p>");
+
+        String page = render(siteHttpSupplier);
+
+        Assert.assertTrue(page.startsWith("<p>"));
+        Assert.assertTrue(page.endsWith("</p>"));
+        Assert.assertFalse(page.contains("{{SERVED}}"));
+    }
+
+    @Test
+    public void testNonPlaceholderBraces() {
+        SiteHttpSupplier siteHttpSupplier = new SiteHttpSupplier("a {{ b }} {{c}} {{", null);
+
+        Assert.assertEquals("a {{ b }} {{c}} {{", render(siteHttpSupplier));
+    }
+
+    @Test
+    public void testMultiByteCharacters() {
+        MockupNetModule mockupNetModule = new MockupNetModule();
+        mockupNetModule.setHttpURL("\u00fc");
+        mockupNetModule.setWebsocketURL("\u20ac");
+
+        SiteHttpSupplier siteHttpSupplier = new SiteHttpSupplier("\u00e4{{ADDRESS}}\u00f6{{WEBSOCKET}}", null);
+        siteHttpSupplier.bind(mockupNetModule);
+
+        Assert.assertEquals("\u00e4\u00fc\u00f6\u20ac", render(siteHttpSupplier));
+    }
+
+    @Test
+    public void testStaticTemplateNotShared() {
+        SiteTemplate template = SiteTemplate.compile("static");
+
+        byte[] page = template.render(placeholder -> null);
+        page[0] = 'S';
+
+        Assert.assertEquals("static", new String(template.render(placeholder -> null), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testFactories() {
+        String fixed = "<p>{{SERVED}}</p>";
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("'served'");
+
+        Assert.assertEquals("<p>served</p>", render(SiteHttpSupplier.withFormatter(fixed, formatter)));
+        Assert.assertEquals("<p>{{SERVED}}</p>", render(SiteHttpSupplier.withFormatter(fixed, null)));
+        Assert.assertEquals("<p>served</p>",
+                render(SiteHttpSupplier.withTimestamp(fixed, new CachedTimestamp(formatter),
+                        SiteHttpSupplier.DEFAULT_RESPONSE_CODE)));
+
+        Assert.assertEquals(404, new SiteHttpSupplier(fixed, null, 404).get().getResponseCode());
+    }
+
+    private static String render(SiteHttpSupplier siteHttpSupplier) {
+        Page page = siteHttpSupplier.get();
+
+        Assert.assertTrue(page.isSite());
+        Assert.assertEquals(SiteHttpSupplier.DEFAULT_RESPONSE_CODE, page.getResponseCode());
+
+        return new String(((EncodedContent) page.getData()).getIdentity(), StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.pploder.ehc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class StaticDirectoryTest {
+
+    @Test
+    public void testServeFiles() throws Exception {
+        Path root = createDirectory();
+        StaticDirectory directory = new StaticDirectory("static", root, CacheControl.NO_CACHE, new ResourceStore());
+
+        Assert.assertEquals("/static/", directory.getPrefix());
+
+        Page page = directory.get("app.js");
+        Assert.assertEquals("application/javascript", page.getMime());
+        Assert.assertEquals("console.log(1);", identity(page));
+
+        Assert.assertEquals("<html></html>", identity(directory.get("docs/")));
+        Assert.assertEquals("<html></html>", identity(directory.get("docs%2Findex.html")));
+    }
+
+    @Test
+    public void testMissingFiles() throws Exception {
+        StaticDirectory directory = new StaticDirectory("/static/", createDirectory(), CacheControl.NO_CACHE,
+                new ResourceStore());
+
+        Assert.assertNull(directory.get("missing.js"));
+        Assert.assertNull(directory.get(""));
+    }
+
+    @Test
+    public void testTraversal() throws Exception {
+        Path root = createDirectory();
+        Files.write(root.getParent().resolve(root.getFileName() + ".secret"), new byte[]{1});
+
+        StaticDirectory directory = new StaticDirectory("/static/", root, CacheControl.NO_CACHE, new ResourceStore());
+
+        Assert.assertNull(directory.get("../" + root.getFileName() + ".secret"));
+        Assert.assertNull(directory.get("%2E%2E/" + root.getFileName() + ".secret"));
+        Assert.assertNull(directory.get("docs/../../" + root.getFileName() + ".secret"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotADirectory() throws Exception {
+        Path file = Files.createTempFile("ehc", ".txt");
+
+        new StaticDirectory("/static/", file, CacheControl.NO_CACHE, new ResourceStore());
+    }
+
+    private static Path createDirectory() throws IOException {
+        Path root = Files.createTempDirectory("ehc");
+        Files.write(root.resolve("app.js"), "console.log(1);".getBytes(StandardCharsets.UTF_8));
+        Files.createDirectory(root.resolve("docs"));
+        Files.write(root.resolve("docs").resolve("index.html"), "<html></html>".getBytes(StandardCharsets.UTF_8));
+
+        return root;
+    }
+
+    private static String identity(Page page) {
+        return new String(((EncodedContent) page.getData()).getIdentity(), StandardCharsets.UTF_8);
+    }
+
+}
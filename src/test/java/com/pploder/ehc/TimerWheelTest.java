@@ -0,0 +1,108 @@
+package com.pploder.ehc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TimerWheelTest {
+
+    private static final long TICK = Duration.ofMillis(100).toNanos();
+
+    @Test
+    public void testExpiry() {
+        List<String> ran = new ArrayList<>();
+        TimerWheel wheel = new TimerWheel(Duration.ofMillis(100), 8, 0);
+
+        wheel.schedule(() -> ran.add("b"), 3 * TICK);
+        wheel.schedule(() -> ran.add("a"), TICK / 2);
+        Assert.assertEquals(2, wheel.size());
+
+        wheel.advance(TICK - 1);
+        Assert.assertTrue(ran.isEmpty());
+
+        wheel.advance(TICK);
+        Assert.assertEquals(Arrays.asList("a"), ran);
+
+        wheel.advance(3 * TICK);
+        Assert.assertEquals(Arrays.asList("a", "b"), ran);
+        Assert.assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testRotations() {
+        List<String> ran = new ArrayList<>();
+        TimerWheel wheel = new TimerWheel(Duration.ofMillis(100), 4, 0);
+
+        wheel.schedule(() -> ran.add("late"), 10 * TICK);
+        wheel.schedule(() -> ran.add("early"), 2 * TICK);
+
+        wheel.advance(9 * TICK);
+        Assert.assertEquals(Arrays.asList("early"), ran);
+
+        wheel.advance(10 * TICK);
+        Assert.assertEquals(Arrays.asList("early", "late"), ran);
+    }
+
+    @Test
+    public void testCancel() {
+        List<String> ran = new ArrayList<>();
+        TimerWheel wheel = new TimerWheel(Duration.ofMillis(100), 8, 0);
+
+        TimerWheel.Timeout a = wheel.schedule(() -> ran.add("a"), TICK);
+        wheel.schedule(() -> ran.add("b"), TICK);
+        TimerWheel.Timeout c = wheel.schedule(() -> ran.add("c"), TICK);
+
+        a.cancel();
+        c.cancel();
+        c.cancel();
+        Assert.assertEquals(1, wheel.size());
+
+        wheel.advance(TICK);
+        Assert.assertEquals(Arrays.asList("b"), ran);
+    }
+
+    @Test
+    public void testReschedule() {
+        List<Long> ran = new ArrayList<>();
+        TimerWheel wheel = new TimerWheel(Duration.ofMillis(100), 8, 0);
+
+        Runnable[] task = new Runnable[1];
+        task[0] = () -> {
+            ran.add((long) ran.size());
+            wheel.schedule(task[0], 2 * TICK);
+        };
+
+        wheel.schedule(task[0], 2 * TICK);
+
+        for (int i = 1; i <= 20; i++) {
+            wheel.advance(i * TICK);
+        }
+
+        Assert.assertEquals(10, ran.size());
+        Assert.assertEquals(1, wheel.size());
+    }
+
+    @Test
+    public void testFailingTask() {
+        List<String> ran = new ArrayList<>();
+        TimerWheel wheel = new TimerWheel(Duration.ofMillis(100), 8, 0);
+
+        wheel.schedule(() -> {
+            throw new IllegalStateException();
+        }, TICK);
+        wheel.schedule(() -> ran.add("a"), TICK);
+
+        wheel.advance(TICK);
+        Assert.assertEquals(Arrays.asList("a"), ran);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSize() {
+        new TimerWheel(Duration.ofMillis(100), 6, 0);
+    }
+
+}